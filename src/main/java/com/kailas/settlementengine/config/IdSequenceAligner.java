@@ -0,0 +1,71 @@
+package com.kailas.settlementengine.config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Transactions and settlement logs used IDENTITY columns before moving to pooled
+ * sequences. On an existing PostgreSQL schema the new sequences start at 1, so
+ * they are moved past the current MAX(id) once the schema update has run.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class IdSequenceAligner {
+
+    private static final Logger log = LoggerFactory.getLogger(IdSequenceAligner.class);
+    private static final long ALLOCATION_SIZE = 50;
+
+    private static final Map<String, String> SEQUENCE_TABLES = Map.of(
+            "transactions_seq", "transactions",
+            "settlement_log_seq", "settlement_log"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdSequenceAligner(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void alignSequences() {
+        String databaseProduct = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()
+        );
+        if (!"PostgreSQL".equalsIgnoreCase(databaseProduct)) {
+            return;
+        }
+
+        SEQUENCE_TABLES.forEach(this::alignSequence);
+    }
+
+    private void alignSequence(String sequenceName, String tableName) {
+        Long maxId = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(id), 0) FROM " + tableName,
+                Long.class
+        );
+        Long lastValue = jdbcTemplate.queryForObject(
+                "SELECT last_value FROM " + sequenceName,
+                Long.class
+        );
+
+        long floor = (maxId == null ? 0L : maxId) + ALLOCATION_SIZE;
+        if (lastValue != null && lastValue >= floor) {
+            return;
+        }
+
+        jdbcTemplate.queryForObject("SELECT setval(CAST(? AS regclass), ?)", Long.class, sequenceName, floor);
+        log.info(
+                "event=id_sequence_aligned sequence={} maxId={} newValue={}",
+                sequenceName,
+                maxId,
+                floor
+        );
+    }
+}
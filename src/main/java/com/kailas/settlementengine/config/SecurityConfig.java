@@ -48,7 +48,10 @@ public class SecurityConfig {
                                 "/favicon.ico",
                                 "/style.css",
                                 "/app.js",
-                                "/login.css"
+                                "/login.css",
+                                // Scrapers cannot do form login; keep these off the public network.
+                                "/actuator/health",
+                                "/actuator/prometheus"
                         ).permitAll()
                         .requestMatchers(HttpMethod.GET,
                                 "/",
@@ -57,7 +60,11 @@ public class SecurityConfig {
                                 "/transactions",
                                 "/logs",
                                 "/api/settlements/stats",
+                                "/api/settlements/stream",
+                                "/api/settlements/runs",
                                 "/api/reconciliation/exceptions",
+                                "/api/reconciliation/exceptions/page",
+                                "/api/reconciliation/backfill",
                                 "/api/auth/me"
                         ).hasAnyRole("USER", "ADMIN")
                         .requestMatchers(HttpMethod.POST,
@@ -66,8 +73,10 @@ public class SecurityConfig {
                                 "/transactions",
                                 "/settlement/trigger",
                                 "/api/reconciliation/run",
+                                "/api/reconciliation/statements",
                                 "/api/reconciliation/exceptions/*/retry",
-                                "/api/reconciliation/exceptions/*/resolve"
+                                "/api/reconciliation/exceptions/*/resolve",
+                                "/api/reconciliation/exceptions/bulk/*"
                         ).hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
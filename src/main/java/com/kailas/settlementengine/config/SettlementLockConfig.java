@@ -0,0 +1,90 @@
+package com.kailas.settlementengine.config;
+
+import com.kailas.settlementengine.service.InProcessLockProvider;
+import com.kailas.settlementengine.service.PostgresAdvisoryLockProvider;
+import com.kailas.settlementengine.service.RedisLockService;
+import com.kailas.settlementengine.service.SettlementFlightRecorder;
+import com.kailas.settlementengine.service.SettlementLockBackend;
+import com.kailas.settlementengine.service.SettlementLockProvider;
+import com.kailas.settlementengine.service.SettlementNodeIdentity;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Picks the partition lock backend from settlement.lock.backend. Only the
+ * chosen backend is built, so the Postgres and in-process backends never open
+ * a Redis connection.
+ */
+@Configuration
+public class SettlementLockConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(SettlementLockConfig.class);
+
+    // Hikari's floor. A caller that finds every lock connection busy gives up
+    // quickly and is reported as LOCK_HELD instead of waiting out the default 30s.
+    private static final long LOCK_POOL_CONNECTION_TIMEOUT_MILLIS = 250L;
+
+    @Bean
+    public SettlementLockProvider settlementLockProvider(
+            ObjectProvider<StringRedisTemplate> redisTemplate,
+            DataSource dataSource,
+            SettlementNodeIdentity nodeIdentity,
+            SettlementFlightRecorder flightRecorder,
+            @Value("${settlement.lock.backend:redis}") String configuredBackend,
+            @Value("${settlement.lock.ttl-seconds:25}") long lockTtlSeconds,
+            @Value("${settlement.lock.postgres.pool-size:4}") int postgresPoolSize) {
+        SettlementLockBackend backend = SettlementLockBackend.parse(configuredBackend);
+        log.info("event=settlement_lock_backend_selected backend={}", backend);
+        return switch (backend) {
+            case REDIS -> new RedisLockService(
+                    redisTemplate.getObject(), nodeIdentity, flightRecorder, lockTtlSeconds
+            );
+            case POSTGRES -> new PostgresAdvisoryLockProvider(
+                    lockPool(dataSource, postgresPoolSize),
+                    nodeIdentity,
+                    flightRecorder,
+                    lockTtlSeconds
+            );
+            case IN_PROCESS -> new InProcessLockProvider(nodeIdentity, flightRecorder);
+        };
+    }
+
+    /**
+     * Advisory locks pin one connection per held lock, so they come from their
+     * own pool on the same database. Taken from the main pool, they would leave
+     * the claimer, the fence check and the settlement workers (sized at the main
+     * pool minus one) waiting for connections. A run holds one partition lock at
+     * a time, so the pool is sized by concurrent runs on this node (the
+     * continuous dispatcher, the Quartz sweep, manual triggers) plus status reads,
+     * not by the partition count.
+     */
+    private static HikariDataSource lockPool(DataSource dataSource, int poolSize) {
+        if (!(dataSource instanceof HikariDataSource main)) {
+            throw new IllegalStateException("settlement.lock.backend=POSTGRES needs a Hikari datasource.");
+        }
+        if (poolSize <= 0) {
+            throw new IllegalStateException("settlement.lock.postgres.pool-size must be greater than zero.");
+        }
+        HikariDataSource lockPool = new HikariDataSource();
+        lockPool.setPoolName("settlement-lock");
+        lockPool.setJdbcUrl(main.getJdbcUrl());
+        lockPool.setUsername(main.getUsername());
+        lockPool.setPassword(main.getPassword());
+        if (main.getDriverClassName() != null) {
+            lockPool.setDriverClassName(main.getDriverClassName());
+        }
+        lockPool.setMaximumPoolSize(poolSize);
+        lockPool.setMinimumIdle(0);
+        lockPool.setConnectionTimeout(LOCK_POOL_CONNECTION_TIMEOUT_MILLIS);
+        log.info("event=settlement_lock_pool_created maxPoolSize={}", poolSize);
+        return lockPool;
+    }
+}
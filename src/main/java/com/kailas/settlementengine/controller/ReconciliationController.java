@@ -1,29 +1,79 @@
 package com.kailas.settlementengine.controller;
 
+import com.kailas.settlementengine.controller.dto.BulkExceptionRequest;
+import com.kailas.settlementengine.controller.dto.BulkExceptionResponse;
 import com.kailas.settlementengine.controller.dto.ExceptionQueueItemResponse;
+import com.kailas.settlementengine.controller.dto.ExceptionQueuePageResponse;
 import com.kailas.settlementengine.controller.dto.ReconciliationRunResponse;
 import com.kailas.settlementengine.controller.dto.ResolveExceptionRequest;
+import com.kailas.settlementengine.controller.dto.StatementReconciliationRequest;
+import com.kailas.settlementengine.controller.dto.StatementReconciliationResponse;
+import com.kailas.settlementengine.service.BankStatementReconciliationService;
+import com.kailas.settlementengine.service.BulkExceptionOutcome;
+import com.kailas.settlementengine.service.BulkExceptionResult;
+import com.kailas.settlementengine.service.ExceptionQueueFilter;
+import com.kailas.settlementengine.service.ReconciliationBackfillService;
 import com.kailas.settlementengine.service.ReconciliationService;
+import com.kailas.settlementengine.service.SettlementDispatcher;
+import com.kailas.settlementengine.service.StatementFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/reconciliation")
 public class ReconciliationController {
 
     private final ReconciliationService reconciliationService;
+    private final BankStatementReconciliationService statementReconciliationService;
+    private final ReconciliationBackfillService backfillService;
+    private final SettlementDispatcher settlementDispatcher;
 
-    public ReconciliationController(ReconciliationService reconciliationService) {
+    public ReconciliationController(ReconciliationService reconciliationService,
+                                    BankStatementReconciliationService statementReconciliationService,
+                                    ReconciliationBackfillService backfillService,
+                                    SettlementDispatcher settlementDispatcher) {
         this.reconciliationService = reconciliationService;
+        this.statementReconciliationService = statementReconciliationService;
+        this.backfillService = backfillService;
+        this.settlementDispatcher = settlementDispatcher;
     }
 
     @PostMapping("/run")
     public ReconciliationRunResponse runReconciliation() {
-        long updated = reconciliationService.reconcilePendingTransactions();
-        return new ReconciliationRunResponse(updated);
+        return ReconciliationRunResponse.fromResult(reconciliationService.reconcilePendingTransactions());
+    }
+
+    @PostMapping("/statements")
+    public StatementReconciliationResponse reconcileStatement(@RequestBody StatementReconciliationRequest request) {
+        StatementFormat format;
+        try {
+            format = request.format() == null
+                    ? StatementFormat.CSV
+                    : StatementFormat.valueOf(request.format().trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported statement format: " + request.format(), ex);
+        }
+
+        try {
+            return StatementReconciliationResponse.fromResult(
+                    statementReconciliationService.reconcileStatement(request.fileName(), format)
+            );
+        } catch (IllegalStateException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, ex.getMessage(), ex);
+        }
+    }
+
+    @GetMapping("/backfill")
+    public Map<String, Object> getBackfillProgress() {
+        return backfillService.describe();
     }
 
     @GetMapping("/exceptions")
@@ -34,12 +84,40 @@ public class ReconciliationController {
                 .toList();
     }
 
+    @GetMapping("/exceptions/page")
+    public ExceptionQueuePageResponse getExceptionPage(@RequestParam(required = false) String cursor,
+                                                       @RequestParam(defaultValue = "50") int limit,
+                                                       @RequestParam(required = false) String reason,
+                                                       @RequestParam(required = false) Long merchantId,
+                                                       @RequestParam(required = false) BigDecimal minAmount,
+                                                       @RequestParam(required = false) BigDecimal maxAmount,
+                                                       @RequestParam(required = false) Long minAgeMinutes,
+                                                       @RequestParam(required = false) Long maxAgeMinutes) {
+        ExceptionQueueFilter filter = new ExceptionQueueFilter(
+                reason,
+                merchantId,
+                minAmount,
+                maxAmount,
+                minAgeMinutes,
+                maxAgeMinutes
+        );
+        try {
+            return ExceptionQueuePageResponse.fromPage(
+                    reconciliationService.getExceptionPage(filter, cursor, limit)
+            );
+        } catch (IllegalStateException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
+        }
+    }
+
     @PostMapping("/exceptions/{transactionId}/retry")
     public ExceptionQueueItemResponse retryException(@PathVariable Long transactionId) {
         try {
-            return ExceptionQueueItemResponse.fromTransaction(
+            ExceptionQueueItemResponse response = ExceptionQueueItemResponse.fromTransaction(
                     reconciliationService.retryException(transactionId)
             );
+            settlementDispatcher.signalWork();
+            return response;
         } catch (IllegalStateException ex) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
         } catch (IllegalArgumentException ex) {
@@ -62,4 +140,57 @@ public class ReconciliationController {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, ex.getMessage(), ex);
         }
     }
+
+    @PostMapping("/exceptions/bulk/retry")
+    public BulkExceptionResponse retryExceptions(@RequestBody BulkExceptionRequest request) {
+        try {
+            BulkExceptionResult result = hasIds(request)
+                    ? reconciliationService.retryExceptions(request.transactionIds())
+                    : reconciliationService.retryExceptions(toFilter(request));
+            if (result.count(BulkExceptionOutcome.RETRIED) > 0) {
+                settlementDispatcher.signalWork();
+            }
+            return BulkExceptionResponse.fromResult(result);
+        } catch (IllegalStateException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
+        }
+    }
+
+    @PostMapping("/exceptions/bulk/resolve")
+    public BulkExceptionResponse resolveExceptions(@RequestBody BulkExceptionRequest request) {
+        try {
+            BulkExceptionResult result = hasIds(request)
+                    ? reconciliationService.resolveExceptions(request.transactionIds(), request.note())
+                    : reconciliationService.resolveExceptions(toFilter(request), request.note());
+            return BulkExceptionResponse.fromResult(result);
+        } catch (IllegalStateException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Ids and filter are mutually exclusive; a request with neither would
+     * otherwise select the whole queue.
+     */
+    private static boolean hasIds(BulkExceptionRequest request) {
+        boolean hasIds = request.transactionIds() != null && !request.transactionIds().isEmpty();
+        if (hasIds == request.hasFilter()) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Provide either transactionIds or a filter (reason, merchantId, amount range, age)."
+            );
+        }
+        return hasIds;
+    }
+
+    private static ExceptionQueueFilter toFilter(BulkExceptionRequest request) {
+        return new ExceptionQueueFilter(
+                request.reason(),
+                request.merchantId(),
+                request.minAmount(),
+                request.maxAmount(),
+                request.minAgeMinutes(),
+                request.maxAgeMinutes()
+        );
+    }
 }
@@ -34,6 +34,9 @@ public class SettlementController {
                         MANUAL_TRIGGER_MIN_LOCK_HOLD_MILLIS
                 );
 
+        if (result.outcome() == SettlementExecutionService.SettlementRunOutcome.NOTHING_ASSIGNED) {
+            return "No settlement partitions are assigned to this node. Trigger skipped.";
+        }
         if (!result.lockAcquired()) {
             return "Settlement already running. Duplicate trigger skipped.";
         }
@@ -1,21 +1,42 @@
 package com.kailas.settlementengine.controller;
 
+import com.kailas.settlementengine.controller.dto.SettlementRunResponse;
 import com.kailas.settlementengine.service.SettlementMonitoringService;
+import com.kailas.settlementengine.service.SettlementStatsStreamService;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
 public class SettlementMonitoringController {
     private final SettlementMonitoringService monitoringService;
+    private final SettlementStatsStreamService statsStreamService;
 
-    public SettlementMonitoringController(SettlementMonitoringService monitoringService) {
+    public SettlementMonitoringController(SettlementMonitoringService monitoringService,
+                                          SettlementStatsStreamService statsStreamService) {
         this.monitoringService = monitoringService;
+        this.statsStreamService = statsStreamService;
     }
 
     @GetMapping("/api/settlements/stats")
     public Map<String, Object> getSettlementStats() {
         return monitoringService.getStats();
     }
-}
\ No newline at end of file
+
+    @GetMapping("/api/settlements/runs")
+    public List<SettlementRunResponse> getRecentRuns(@RequestParam(defaultValue = "20") int limit) {
+        return monitoringService.recentRuns(limit).stream()
+                .map(SettlementRunResponse::fromRecord)
+                .toList();
+    }
+
+    @GetMapping(path = "/api/settlements/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSettlementStats() {
+        return statsStreamService.subscribe();
+    }
+}
@@ -6,6 +6,8 @@ import com.kailas.settlementengine.entity.Transaction;
 import com.kailas.settlementengine.repository.CustomerRepository;
 import com.kailas.settlementengine.repository.MerchantRepository;
 import com.kailas.settlementengine.repository.TransactionRepository;
+import com.kailas.settlementengine.service.SettlementDispatcher;
+import com.kailas.settlementengine.service.TransactionStateMachine;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
@@ -17,13 +19,19 @@ public class TransactionController {
     private final TransactionRepository transactionRepository;
     private final CustomerRepository customerRepository;
     private final MerchantRepository merchantRepository;
+    private final SettlementDispatcher settlementDispatcher;
+    private final TransactionStateMachine transactionStateMachine;
 
     public TransactionController(TransactionRepository transactionRepository,
                                  CustomerRepository customerRepository,
-                                 MerchantRepository merchantRepository) {
+                                 MerchantRepository merchantRepository,
+                                 SettlementDispatcher settlementDispatcher,
+                                 TransactionStateMachine transactionStateMachine) {
         this.transactionRepository = transactionRepository;
         this.customerRepository = customerRepository;
         this.merchantRepository = merchantRepository;
+        this.settlementDispatcher = settlementDispatcher;
+        this.transactionStateMachine = transactionStateMachine;
     }
 
     @PostMapping
@@ -41,7 +49,10 @@ public class TransactionController {
         transaction.setMerchant(merchant);
         transaction.setAmount(amount);
 
-        return transactionRepository.save(transaction);
+        Transaction saved = transactionRepository.save(transaction);
+        transactionStateMachine.recordCreated(saved);
+        settlementDispatcher.signalWork();
+        return saved;
     }
 
     @GetMapping
@@ -0,0 +1,27 @@
+package com.kailas.settlementengine.controller.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Either transactionIds or at least one filter field; note is only used by resolve.
+ */
+public record BulkExceptionRequest(
+        List<Long> transactionIds,
+        String reason,
+        Long merchantId,
+        BigDecimal minAmount,
+        BigDecimal maxAmount,
+        Long minAgeMinutes,
+        Long maxAgeMinutes,
+        String note
+) {
+    public boolean hasFilter() {
+        return (reason != null && !reason.isBlank())
+                || merchantId != null
+                || minAmount != null
+                || maxAmount != null
+                || minAgeMinutes != null
+                || maxAgeMinutes != null;
+    }
+}
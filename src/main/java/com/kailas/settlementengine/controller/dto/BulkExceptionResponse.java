@@ -0,0 +1,23 @@
+package com.kailas.settlementengine.controller.dto;
+
+import com.kailas.settlementengine.service.BulkExceptionOutcome;
+import com.kailas.settlementengine.service.BulkExceptionResult;
+
+import java.util.List;
+import java.util.Map;
+
+public record BulkExceptionResponse(
+        int requested,
+        Map<BulkExceptionOutcome, Long> counts,
+        List<BulkExceptionResult.ItemOutcome> outcomes,
+        boolean truncated
+) {
+    public static BulkExceptionResponse fromResult(BulkExceptionResult result) {
+        return new BulkExceptionResponse(
+                result.outcomes().size(),
+                result.countsByOutcome(),
+                result.outcomes(),
+                result.truncated()
+        );
+    }
+}
@@ -0,0 +1,21 @@
+package com.kailas.settlementengine.controller.dto;
+
+import com.kailas.settlementengine.service.ExceptionQueuePage;
+
+import java.util.List;
+
+public record ExceptionQueuePageResponse(
+        List<ExceptionQueueItemResponse> items,
+        String nextCursor,
+        Long total,
+        Boolean totalCapped
+) {
+    public static ExceptionQueuePageResponse fromPage(ExceptionQueuePage page) {
+        return new ExceptionQueuePageResponse(
+                page.items().stream().map(ExceptionQueueItemResponse::fromTransaction).toList(),
+                page.nextCursor(),
+                page.total(),
+                page.totalCapped()
+        );
+    }
+}
@@ -1,5 +1,25 @@
 package com.kailas.settlementengine.controller.dto;
 
+import com.kailas.settlementengine.service.ReconciliationRunResult;
+
+import java.time.LocalDateTime;
+
 public record ReconciliationRunResponse(
-        long updatedTransactions
-) {}
+        long updatedTransactions,
+        long matched,
+        long missingSettledAt,
+        long failedQueued,
+        LocalDateTime watermark,
+        long watermarkLagMillis
+) {
+    public static ReconciliationRunResponse fromResult(ReconciliationRunResult result) {
+        return new ReconciliationRunResponse(
+                result.updatedCount(),
+                result.matchedCount(),
+                result.missingSettledAtCount(),
+                result.failedQueuedCount(),
+                result.watermark(),
+                result.watermarkLagMillis()
+        );
+    }
+}
@@ -0,0 +1,43 @@
+package com.kailas.settlementengine.controller.dto;
+
+import com.kailas.settlementengine.service.SettlementRunRecord;
+
+import java.time.LocalDateTime;
+
+public record SettlementRunResponse(
+        long sequence,
+        String source,
+        LocalDateTime startedAt,
+        LocalDateTime finishedAt,
+        long durationMillis,
+        boolean succeeded,
+        String error,
+        long claimed,
+        long processed,
+        long settled,
+        long retried,
+        long failed,
+        long claimMillis,
+        long decideMillis,
+        long persistMillis
+) {
+    public static SettlementRunResponse fromRecord(SettlementRunRecord record) {
+        return new SettlementRunResponse(
+                record.sequence(),
+                record.source(),
+                record.startedAt(),
+                record.finishedAt(),
+                record.durationMillis(),
+                record.succeeded(),
+                record.error(),
+                record.claimedCount(),
+                record.processedCount(),
+                record.settledCount(),
+                record.retriedCount(),
+                record.failedCount(),
+                record.claimMillis(),
+                record.decideMillis(),
+                record.persistMillis()
+        );
+    }
+}
@@ -0,0 +1,6 @@
+package com.kailas.settlementengine.controller.dto;
+
+public record StatementReconciliationRequest(
+        String fileName,
+        String format
+) {}
@@ -0,0 +1,29 @@
+package com.kailas.settlementengine.controller.dto;
+
+import com.kailas.settlementengine.service.StatementReconciliationResult;
+
+public record StatementReconciliationResponse(
+        String statementName,
+        long statementLines,
+        int partitions,
+        long matched,
+        long mismatched,
+        long missing,
+        long unexpected,
+        long inFlight,
+        long durationMillis
+) {
+    public static StatementReconciliationResponse fromResult(StatementReconciliationResult result) {
+        return new StatementReconciliationResponse(
+                result.statementName(),
+                result.statementLines(),
+                result.partitions(),
+                result.matchedCount(),
+                result.mismatchedCount(),
+                result.missingCount(),
+                result.unexpectedCount(),
+                result.inFlightCount(),
+                result.durationMillis()
+        );
+    }
+}
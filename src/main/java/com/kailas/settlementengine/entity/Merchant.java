@@ -24,6 +24,11 @@ public class Merchant {
 
     private LocalDateTime createdAt;
 
+    // Optional per-merchant retry backoff; null falls back to settlement.retry.backoff.*
+    private Long retryBackoffBaseSeconds;
+
+    private Long retryBackoffMaxSeconds;
+
     @PrePersist
     public void prePersist() {
         this.createdAt = LocalDateTime.now();
@@ -49,6 +54,14 @@ public class Merchant {
         return createdAt;
     }
 
+    public Long getRetryBackoffBaseSeconds() {
+        return retryBackoffBaseSeconds;
+    }
+
+    public Long getRetryBackoffMaxSeconds() {
+        return retryBackoffMaxSeconds;
+    }
+
     public void setName(String name) {
         this.name = name;
     }
@@ -60,4 +73,12 @@ public class Merchant {
     public void setSettlementCycle(String settlementCycle) {
         this.settlementCycle = settlementCycle;
     }
-}
\ No newline at end of file
+
+    public void setRetryBackoffBaseSeconds(Long retryBackoffBaseSeconds) {
+        this.retryBackoffBaseSeconds = retryBackoffBaseSeconds;
+    }
+
+    public void setRetryBackoffMaxSeconds(Long retryBackoffMaxSeconds) {
+        this.retryBackoffMaxSeconds = retryBackoffMaxSeconds;
+    }
+}
@@ -0,0 +1,39 @@
+package com.kailas.settlementengine.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Persisted progress of an incremental job: rows changed at or before the
+ * watermark have already been processed.
+ */
+@Entity
+@Table(name = "reconciliation_checkpoint")
+public class ReconciliationCheckpoint {
+
+    @Id
+    private String name;
+
+    private LocalDateTime watermark;
+
+    private LocalDateTime updatedAt;
+
+    public ReconciliationCheckpoint() {}
+
+    public ReconciliationCheckpoint(String name, LocalDateTime watermark) {
+        this.name = name;
+        this.watermark = watermark;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public String getName() { return name; }
+
+    public LocalDateTime getWatermark() { return watermark; }
+    public void setWatermark(LocalDateTime watermark) { this.watermark = watermark; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
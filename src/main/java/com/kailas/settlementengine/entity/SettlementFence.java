@@ -0,0 +1,37 @@
+package com.kailas.settlementengine.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Highest fencing token that has claimed rows under a partition lock. Claims
+ * carrying a lower token come from a run whose lock already expired.
+ */
+@Entity
+@Table(name = "settlement_fence")
+public class SettlementFence {
+
+    @Id
+    private String lockKey;
+
+    private long fencingToken;
+
+    private LocalDateTime updatedAt;
+
+    public SettlementFence() {}
+
+    public SettlementFence(String lockKey, long fencingToken) {
+        this.lockKey = lockKey;
+        this.fencingToken = fencingToken;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public String getLockKey() { return lockKey; }
+
+    public long getFencingToken() { return fencingToken; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+}
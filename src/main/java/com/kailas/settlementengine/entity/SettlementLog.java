@@ -9,8 +9,10 @@ import java.time.LocalDateTime;
 @Entity
 public class SettlementLog {
 
+    // Pooled sequence ids; see Transaction.id.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "settlement_log_seq")
+    @SequenceGenerator(name = "settlement_log_seq", sequenceName = "settlement_log_seq", allocationSize = 50)
     private Long id;
 
     private Integer attemptNumber;
@@ -5,11 +5,28 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transactions")
+@Table(
+        name = "transactions",
+        indexes = {
+                @Index(name = "idx_transactions_status_next_attempt", columnList = "status, nextAttemptAt"),
+                @Index(name = "idx_transactions_status_lease", columnList = "status, leaseExpiresAt"),
+                @Index(name = "idx_transactions_status_settled_at", columnList = "status, settledAt"),
+                @Index(
+                        name = "idx_transactions_exception_queue",
+                        columnList = "reconciliationStatus, createdAt, id"
+                ),
+                @Index(
+                        name = "idx_transactions_reconciliation_delta",
+                        columnList = "reconciliationStatus, reconciliationUpdatedAt"
+                )
+        }
+)
 public class Transaction {
 
+    // Pooled sequence ids (instead of IDENTITY) let Hibernate batch inserts.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = 50)
     private Long id;
     private BigDecimal amount;
     private LocalDateTime createdAt;
@@ -20,10 +37,16 @@ public class Transaction {
     private ReconciliationStatus reconciliationStatus;
     private int retryCount;
     private int maxRetries;
+    // Earliest time the next settlement attempt may claim this row (retry backoff).
+    private LocalDateTime nextAttemptAt;
     private LocalDateTime settledAt;
     private LocalDateTime reconciliationUpdatedAt;
     private String exceptionReason;
 
+    // Claim lease: the node settling a PROCESSING row and until when it owns it.
+    private String claimOwner;
+    private LocalDateTime leaseExpiresAt;
+
     //Changed to LAZY to fix N+1 problem
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "merchant_id")
@@ -40,6 +63,7 @@ public class Transaction {
         this.reconciliationStatus = ReconciliationStatus.PENDING;
         this.retryCount = 0;
         this.maxRetries = 3;
+        this.nextAttemptAt = this.createdAt;
         this.reconciliationUpdatedAt = LocalDateTime.now();
     }
 
@@ -64,6 +88,9 @@ public class Transaction {
     public int getMaxRetries() { return maxRetries; }
     public void setMaxRetries(int maxRetries) { this.maxRetries = maxRetries; }
 
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+
     public LocalDateTime getSettledAt() { return settledAt; }
     public void setSettledAt(LocalDateTime settledAt) { this.settledAt = settledAt; }
 
@@ -75,6 +102,12 @@ public class Transaction {
     public String getExceptionReason() { return exceptionReason; }
     public void setExceptionReason(String exceptionReason) { this.exceptionReason = exceptionReason; }
 
+    public String getClaimOwner() { return claimOwner; }
+    public void setClaimOwner(String claimOwner) { this.claimOwner = claimOwner; }
+
+    public LocalDateTime getLeaseExpiresAt() { return leaseExpiresAt; }
+    public void setLeaseExpiresAt(LocalDateTime leaseExpiresAt) { this.leaseExpiresAt = leaseExpiresAt; }
+
     public Merchant getMerchant() { return merchant; }
     public void setMerchant(Merchant merchant) { this.merchant = merchant; }
 
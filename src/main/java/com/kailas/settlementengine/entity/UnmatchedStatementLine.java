@@ -0,0 +1,58 @@
+package com.kailas.settlementengine.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Bank statement line with no Transaction behind it. These have no row to put
+ * into the exception queue, so they are kept here for the operator.
+ */
+@Entity
+@Table(
+        name = "unmatched_statement_lines",
+        indexes = @Index(name = "idx_unmatched_statement_lines_statement", columnList = "statementName")
+)
+public class UnmatchedStatementLine {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "unmatched_statement_line_seq")
+    @SequenceGenerator(
+            name = "unmatched_statement_line_seq",
+            sequenceName = "unmatched_statement_line_seq",
+            allocationSize = 50
+    )
+    private Long id;
+
+    private String statementName;
+    private long lineNumber;
+    private String reference;
+    private BigDecimal amount;
+    private LocalDate valueDate;
+    private LocalDateTime recordedAt;
+
+    public UnmatchedStatementLine() {}
+
+    public UnmatchedStatementLine(String statementName,
+                                  long lineNumber,
+                                  String reference,
+                                  BigDecimal amount,
+                                  LocalDate valueDate) {
+        this.statementName = statementName;
+        this.lineNumber = lineNumber;
+        this.reference = reference;
+        this.amount = amount;
+        this.valueDate = valueDate;
+        this.recordedAt = LocalDateTime.now();
+    }
+
+    public Long getId() { return id; }
+    public String getStatementName() { return statementName; }
+    public long getLineNumber() { return lineNumber; }
+    public String getReference() { return reference; }
+    public BigDecimal getAmount() { return amount; }
+    public LocalDate getValueDate() { return valueDate; }
+    public LocalDateTime getRecordedAt() { return recordedAt; }
+}
@@ -0,0 +1,13 @@
+package com.kailas.settlementengine.repository;
+
+import com.kailas.settlementengine.entity.ReconciliationStatus;
+import com.kailas.settlementengine.entity.TransactionStatus;
+
+/**
+ * The state bulk exception actions validate against.
+ */
+public record ExceptionStateView(
+        Long id,
+        TransactionStatus status,
+        ReconciliationStatus reconciliationStatus
+) {}
@@ -0,0 +1,7 @@
+package com.kailas.settlementengine.repository;
+
+import com.kailas.settlementengine.entity.ReconciliationCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ReconciliationCheckpointRepository extends JpaRepository<ReconciliationCheckpoint, String> {
+}
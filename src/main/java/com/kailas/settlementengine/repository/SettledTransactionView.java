@@ -0,0 +1,13 @@
+package com.kailas.settlementengine.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * The columns statement matching needs, without loading the entity graph.
+ */
+public record SettledTransactionView(
+        Long id,
+        BigDecimal amount,
+        LocalDateTime settledAt
+) {}
@@ -0,0 +1,32 @@
+package com.kailas.settlementengine.repository;
+
+import com.kailas.settlementengine.entity.SettlementFence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface SettlementFenceRepository extends JpaRepository<SettlementFence, String> {
+
+    /**
+     * Moves the fence up to the token unless a newer token already passed it.
+     * The row stays locked until the calling transaction commits.
+     */
+    @Modifying
+    @Query("UPDATE SettlementFence f SET f.fencingToken = :token, f.updatedAt = :now " +
+            "WHERE f.lockKey = :lockKey AND f.fencingToken <= :token")
+    int advance(@Param("lockKey") String lockKey,
+                @Param("token") long token,
+                @Param("now") LocalDateTime now);
+
+    /**
+     * Creates a key's fence at token 0; fails with a duplicate key if it exists.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO settlement_fence (lock_key, fencing_token, updated_at) VALUES (:lockKey, 0, :now)",
+            nativeQuery = true)
+    int create(@Param("lockKey") String lockKey,
+               @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,20 @@
+package com.kailas.settlementengine.repository;
+
+import com.kailas.settlementengine.entity.Transaction;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Id-only reads for Specification filters, which derived and @Query methods
+ * cannot express and {@code findBy(Specification, ...)} answers with whole
+ * entities.
+ */
+public interface TransactionIdQueries {
+
+    /**
+     * Ids of the rows matching the specification, in sort order, at most limit.
+     */
+    List<Long> findIds(Specification<Transaction> specification, Sort sort, int limit);
+}
@@ -0,0 +1,47 @@
+package com.kailas.settlementengine.repository;
+
+import com.kailas.settlementengine.entity.Transaction;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Picked up by Spring Data as the implementation of {@link TransactionIdQueries}
+ * for {@link TransactionRepository}.
+ */
+class TransactionIdQueriesImpl implements TransactionIdQueries {
+
+    private final EntityManager entityManager;
+
+    TransactionIdQueriesImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<Long> findIds(Specification<Transaction> specification, Sort sort, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Transaction> root = query.from(Transaction.class);
+        query.select(root.get("id"));
+        query.where(specification.toPredicate(root, query, cb));
+
+        List<Order> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            orders.add(order.isAscending()
+                    ? cb.asc(root.get(order.getProperty()))
+                    : cb.desc(root.get(order.getProperty())));
+        }
+        query.orderBy(orders);
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -3,31 +3,257 @@ package com.kailas.settlementengine.repository;
 import com.kailas.settlementengine.entity.ReconciliationStatus;
 import com.kailas.settlementengine.entity.Transaction;
 import com.kailas.settlementengine.entity.TransactionStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+public interface TransactionRepository extends JpaRepository<Transaction, Long>,
+        JpaSpecificationExecutor<Transaction>, TransactionIdQueries {
 
     List<Transaction> findByStatus(TransactionStatus status);
     Optional<Transaction> findByIdAndStatus(Long id, TransactionStatus status);
     List<Transaction> findByReconciliationStatus(ReconciliationStatus status);
     List<Transaction> findByReconciliationStatusOrderByCreatedAtAsc(ReconciliationStatus status);
     List<Transaction> findByReconciliationStatusIn(List<ReconciliationStatus> statuses);
-    List<Transaction> findByReconciliationStatusIsNull();
 
     long countByStatus(TransactionStatus status);
     long countByReconciliationStatus(ReconciliationStatus status);
 
-    @Query("SELECT AVG(t.retryCount) FROM Transaction t")
-    Double findAverageRetryCount();
+    /**
+     * Row counts per status and reconciliation status in one scan, with the retry
+     * sum for the average. Used to correct the live status counters.
+     */
+    @Query("SELECT new com.kailas.settlementengine.repository.TransactionStatusAggregate(" +
+            "t.status, t.reconciliationStatus, COUNT(t), SUM(t.retryCount)) " +
+            "FROM Transaction t GROUP BY t.status, t.reconciliationStatus")
+    List<TransactionStatusAggregate> aggregateByStatus();
+
+    /**
+     * Backfill of rows created before reconciliation existed, as keyset pages.
+     */
+    @Query("SELECT t.id FROM Transaction t WHERE t.reconciliationStatus IS NULL " +
+            "AND t.id > :afterId ORDER BY t.id")
+    List<Long> findIdsWithoutReconciliationStatus(@Param("afterId") long afterId, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Transaction t SET t.reconciliationStatus = 'PENDING', t.reconciliationUpdatedAt = :now " +
+            "WHERE t.id IN :ids AND t.reconciliationStatus IS NULL")
+    int initializeReconciliationStatus(@Param("ids") Collection<Long> ids,
+                                       @Param("now") LocalDateTime now);
+
+    /**
+     * Keyset page of PENDING SETTLED/FAILED rows whose reconciliation state changed
+     * inside the (after, upTo] window, i.e. the delta since the last watermark.
+     */
+    @Query("SELECT t.id FROM Transaction t WHERE t.reconciliationStatus = 'PENDING' " +
+            "AND t.status IN ('SETTLED', 'FAILED') " +
+            "AND t.reconciliationUpdatedAt > :after AND t.reconciliationUpdatedAt <= :upTo " +
+            "AND t.id > :afterId ORDER BY t.id")
+    List<Long> findReconcilableIdsChangedBetween(@Param("after") LocalDateTime after,
+                                                 @Param("upTo") LocalDateTime upTo,
+                                                 @Param("afterId") long afterId,
+                                                 Pageable pageable);
+
+    /**
+     * Reconciliation rules as set-based updates over a batch of PENDING rows.
+     */
+    @Modifying
+    @Query("UPDATE Transaction t SET t.reconciliationStatus = 'MATCHED', " +
+            "t.exceptionReason = NULL, t.reconciliationUpdatedAt = :now " +
+            "WHERE t.id IN :ids AND t.reconciliationStatus = 'PENDING' " +
+            "AND t.status = 'SETTLED' AND t.settledAt IS NOT NULL")
+    int markSettledPendingMatched(@Param("ids") Collection<Long> ids,
+                                  @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Transaction t SET t.reconciliationStatus = 'EXCEPTION_QUEUED', " +
+            "t.exceptionReason = :reason, t.reconciliationUpdatedAt = :now " +
+            "WHERE t.id IN :ids AND t.reconciliationStatus = 'PENDING' " +
+            "AND t.status = 'SETTLED' AND t.settledAt IS NULL")
+    int queueSettledPendingWithoutSettledAt(@Param("ids") Collection<Long> ids,
+                                            @Param("reason") String reason,
+                                            @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Transaction t SET t.reconciliationStatus = 'EXCEPTION_QUEUED', " +
+            "t.exceptionReason = :reason, t.reconciliationUpdatedAt = :now " +
+            "WHERE t.id IN :ids AND t.reconciliationStatus = 'PENDING' " +
+            "AND t.status = 'FAILED'")
+    int queueFailedPending(@Param("ids") Collection<Long> ids,
+                           @Param("reason") String reason,
+                           @Param("now") LocalDateTime now);
+
+    /**
+     * Keyset page of SETTLED rows with settledAt in [from, to), the ledger side of
+     * a bank statement join.
+     */
+    @Query("SELECT new com.kailas.settlementengine.repository.SettledTransactionView(t.id, t.amount, t.settledAt) " +
+            "FROM Transaction t WHERE t.status = 'SETTLED' " +
+            "AND t.settledAt >= :from AND t.settledAt < :to " +
+            "AND t.id > :afterId ORDER BY t.id")
+    List<SettledTransactionView> findSettledBetween(@Param("from") LocalDateTime from,
+                                                    @Param("to") LocalDateTime to,
+                                                    @Param("afterId") long afterId,
+                                                    Pageable pageable);
+
+    @Query("SELECT t.id FROM Transaction t WHERE t.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Statement matching outcomes. Rows an operator already RESOLVED are left alone.
+     */
+    @Modifying
+    @Query("UPDATE Transaction t SET t.reconciliationStatus = 'MATCHED', " +
+            "t.exceptionReason = NULL, t.reconciliationUpdatedAt = :now " +
+            "WHERE t.id IN :ids " +
+            "AND (t.reconciliationStatus IS NULL OR t.reconciliationStatus <> 'RESOLVED')")
+    int markStatementMatched(@Param("ids") Collection<Long> ids,
+                             @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Transaction t SET t.reconciliationStatus = 'EXCEPTION_QUEUED', " +
+            "t.exceptionReason = :reason, t.reconciliationUpdatedAt = :now " +
+            "WHERE t.id IN :ids " +
+            "AND (t.reconciliationStatus IS NULL OR t.reconciliationStatus <> 'RESOLVED')")
+    int queueStatementExceptions(@Param("ids") Collection<Long> ids,
+                                 @Param("reason") String reason,
+                                 @Param("now") LocalDateTime now);
+
+    /**
+     * Locks the given rows and returns what bulk exception actions check, so the
+     * updates that follow apply to exactly the rows validated here.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT new com.kailas.settlementengine.repository.ExceptionStateView(t.id, t.status, t.reconciliationStatus) " +
+            "FROM Transaction t WHERE t.id IN :ids")
+    List<ExceptionStateView> lockExceptionStates(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Bulk exception retry for FAILED rows: back to CAPTURED, due now.
+     */
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = 'CAPTURED', t.nextAttemptAt = :now, " +
+            "t.reconciliationStatus = 'PENDING', t.exceptionReason = NULL, t.reconciliationUpdatedAt = :now " +
+            "WHERE t.id IN :ids AND t.reconciliationStatus = 'EXCEPTION_QUEUED' AND t.status = 'FAILED'")
+    int retryFailedExceptions(@Param("ids") Collection<Long> ids,
+                              @Param("now") LocalDateTime now);
+
+    /**
+     * Bulk exception retry for rows whose status stays: reconcile them again.
+     */
+    @Modifying
+    @Query("UPDATE Transaction t SET t.reconciliationStatus = 'PENDING', " +
+            "t.exceptionReason = NULL, t.reconciliationUpdatedAt = :now " +
+            "WHERE t.id IN :ids AND t.reconciliationStatus = 'EXCEPTION_QUEUED'")
+    int requeueExceptions(@Param("ids") Collection<Long> ids,
+                          @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Transaction t SET t.reconciliationStatus = 'RESOLVED', t.reconciliationUpdatedAt = :now " +
+            "WHERE t.id IN :ids AND t.reconciliationStatus = 'EXCEPTION_QUEUED'")
+    int resolveExceptions(@Param("ids") Collection<Long> ids,
+                          @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Transaction t SET t.reconciliationStatus = 'RESOLVED', " +
+            "t.exceptionReason = :note, t.reconciliationUpdatedAt = :now " +
+            "WHERE t.id IN :ids AND t.reconciliationStatus = 'EXCEPTION_QUEUED'")
+    int resolveExceptionsWithNote(@Param("ids") Collection<Long> ids,
+                                  @Param("note") String note,
+                                  @Param("now") LocalDateTime now);
+
+    /**
+     * Keyset page of candidate ids that are due (retry backoff elapsed); only the
+     * primary key is read, so no entity (or Merchant/Customer proxy) is
+     * materialized while scanning the backlog.
+     */
+    @Query("SELECT t.id FROM Transaction t " +
+            "WHERE t.status = :status AND t.id > :afterId " +
+            "AND (t.nextAttemptAt IS NULL OR t.nextAttemptAt <= :now) ORDER BY t.id")
+    List<Long> findDueIdsByStatusAfter(@Param("status") TransactionStatus status,
+                                       @Param("afterId") long afterId,
+                                       @Param("now") LocalDateTime now,
+                                       Pageable pageable);
+
+    @Query("SELECT t.id FROM Transaction t " +
+            "WHERE t.status = :status AND t.id > :afterId " +
+            "AND (t.nextAttemptAt IS NULL OR t.nextAttemptAt <= :now) " +
+            "AND MOD(COALESCE(t.merchant.id, 0), :partitionCount) = :partitionIndex " +
+            "ORDER BY t.id")
+    List<Long> findDueIdsByStatusAfterInPartition(@Param("status") TransactionStatus status,
+                                                  @Param("afterId") long afterId,
+                                                  @Param("now") LocalDateTime now,
+                                                  @Param("partitionCount") int partitionCount,
+                                                  @Param("partitionIndex") int partitionIndex,
+                                                  Pageable pageable);
+
+    /**
+     * Row-locks the still-claimable ids of a batch, skipping rows another node
+     * already holds. A lock timeout of -2 is rendered as FOR UPDATE SKIP LOCKED
+     * on PostgreSQL/MySQL 8 and degrades to a plain FOR UPDATE on dialects
+     * without SKIP LOCKED support (e.g. older H2).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT t.id FROM Transaction t " +
+            "WHERE t.id IN :ids AND t.status = 'CAPTURED' " +
+            "AND (t.nextAttemptAt IS NULL OR t.nextAttemptAt <= :now) ORDER BY t.id")
+    List<Long> lockClaimableIds(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = 'PROCESSING', " +
+            "t.claimOwner = :owner, t.leaseExpiresAt = :leaseExpiresAt " +
+            "WHERE t.id IN :ids AND t.status = 'CAPTURED'")
+    int claimTransactions(@Param("ids") Collection<Long> ids,
+                          @Param("owner") String owner,
+                          @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+
+    /**
+     * Loads the claimed rows this node still owns, row-locked so the lease
+     * reaper cannot hand them to another node while they are being settled.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Transaction t " +
+            "WHERE t.id IN :ids AND t.status = 'PROCESSING' AND t.claimOwner = :owner")
+    List<Transaction> lockOwnedProcessing(@Param("ids") Collection<Long> ids,
+                                          @Param("owner") String owner);
+
+    /**
+     * Extends the leases of the given rows that this owner still holds. Callers
+     * pass only ids a live run is settling, never every row the owner has.
+     */
+    @Modifying
+    @Query("UPDATE Transaction t SET t.leaseExpiresAt = :leaseExpiresAt " +
+            "WHERE t.id IN :ids AND t.status = 'PROCESSING' AND t.claimOwner = :owner")
+    int renewLeases(@Param("owner") String owner,
+                    @Param("ids") Collection<Long> ids,
+                    @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+
+    /**
+     * PROCESSING rows whose lease ran out (or that were claimed before leases
+     * existed), skipping rows a live settler currently has locked.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT t.id FROM Transaction t WHERE t.status = 'PROCESSING' " +
+            "AND (t.leaseExpiresAt IS NULL OR t.leaseExpiresAt < :now) ORDER BY t.id")
+    List<Long> lockExpiredLeaseIds(@Param("now") LocalDateTime now, Pageable pageable);
 
     @Modifying
-    @Query("UPDATE Transaction t SET t.status = 'PROCESSING' " +
-            "WHERE t.id = :id AND t.status = 'CAPTURED'")
-    int claimTransaction(@Param("id") Long id);
+    @Query("UPDATE Transaction t SET t.status = 'CAPTURED', " +
+            "t.claimOwner = NULL, t.leaseExpiresAt = NULL " +
+            "WHERE t.id IN :ids AND t.status = 'PROCESSING'")
+    int releaseExpiredLeases(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,62 @@
+package com.kailas.settlementengine.repository;
+
+import com.kailas.settlementengine.entity.ReconciliationStatus;
+import com.kailas.settlementengine.entity.Transaction;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Composable Transaction predicates for the exception queue. The queue is read
+ * in (createdAt, id) order, which idx_transactions_exception_queue serves.
+ */
+public final class TransactionSpecifications {
+
+    private TransactionSpecifications() {}
+
+    public static Specification<Transaction> hasReconciliationStatus(ReconciliationStatus status) {
+        return (root, query, cb) -> cb.equal(root.get("reconciliationStatus"), status);
+    }
+
+    /**
+     * Rows strictly after the (createdAt, id) cursor.
+     */
+    public static Specification<Transaction> after(LocalDateTime createdAt, long id) {
+        return (root, query, cb) -> cb.or(
+                cb.greaterThan(root.get("createdAt"), createdAt),
+                cb.and(
+                        cb.equal(root.get("createdAt"), createdAt),
+                        cb.greaterThan(root.get("id"), id)
+                )
+        );
+    }
+
+    public static Specification<Transaction> reasonStartsWith(String prefix) {
+        return (root, query, cb) -> cb.like(root.get("exceptionReason"), escapeLike(prefix) + "%", '\\');
+    }
+
+    public static Specification<Transaction> hasMerchant(Long merchantId) {
+        return (root, query, cb) -> cb.equal(root.get("merchant").get("id"), merchantId);
+    }
+
+    public static Specification<Transaction> amountAtLeast(BigDecimal minAmount) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("amount"), minAmount);
+    }
+
+    public static Specification<Transaction> amountAtMost(BigDecimal maxAmount) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("amount"), maxAmount);
+    }
+
+    public static Specification<Transaction> createdAtOrBefore(LocalDateTime createdAt) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("createdAt"), createdAt);
+    }
+
+    public static Specification<Transaction> createdAtOrAfter(LocalDateTime createdAt) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("createdAt"), createdAt);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
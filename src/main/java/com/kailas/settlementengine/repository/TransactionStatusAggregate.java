@@ -0,0 +1,14 @@
+package com.kailas.settlementengine.repository;
+
+import com.kailas.settlementengine.entity.ReconciliationStatus;
+import com.kailas.settlementengine.entity.TransactionStatus;
+
+/**
+ * Row count and retry total for one (status, reconciliationStatus) group.
+ */
+public record TransactionStatusAggregate(
+        TransactionStatus status,
+        ReconciliationStatus reconciliationStatus,
+        Long transactionCount,
+        Long retryCountSum
+) {}
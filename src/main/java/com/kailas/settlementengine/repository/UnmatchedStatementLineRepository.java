@@ -0,0 +1,7 @@
+package com.kailas.settlementengine.repository;
+
+import com.kailas.settlementengine.entity.UnmatchedStatementLine;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface UnmatchedStatementLineRepository extends JpaRepository<UnmatchedStatementLine, Long> {
+}
@@ -1,6 +1,7 @@
 package com.kailas.settlementengine.scheduler;
 
 import org.quartz.*;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -16,13 +17,57 @@ public class QuartzConfig {
     }
 
     @Bean
-    public Trigger settlementTrigger() {
+    public Trigger settlementTrigger(@Value("${settlement.sweep.interval-seconds:30}") int intervalSeconds) {
         return TriggerBuilder.newTrigger()
                 .forJob(settlementJobDetail())
                 .withIdentity("settlementTrigger")
                 .withSchedule(
                         SimpleScheduleBuilder.simpleSchedule()
-                                .withIntervalInSeconds(30)
+                                .withIntervalInSeconds(intervalSeconds)
+                                .repeatForever()
+                )
+                .build();
+    }
+
+    @Bean
+    public JobDetail settlementLeaseJobDetail() {
+        return JobBuilder.newJob(SettlementLeaseJob.class)
+                .withIdentity("settlementLeaseJob")
+                .storeDurably()
+                .build();
+    }
+
+    @Bean
+    public Trigger settlementLeaseTrigger(
+            @Value("${settlement.lease.heartbeat-interval-seconds:20}") int intervalSeconds) {
+        return TriggerBuilder.newTrigger()
+                .forJob(settlementLeaseJobDetail())
+                .withIdentity("settlementLeaseTrigger")
+                .withSchedule(
+                        SimpleScheduleBuilder.simpleSchedule()
+                                .withIntervalInSeconds(intervalSeconds)
+                                .repeatForever()
+                )
+                .build();
+    }
+
+    @Bean
+    public JobDetail statusCounterCorrectionJobDetail() {
+        return JobBuilder.newJob(StatusCounterCorrectionJob.class)
+                .withIdentity("statusCounterCorrectionJob")
+                .storeDurably()
+                .build();
+    }
+
+    @Bean
+    public Trigger statusCounterCorrectionTrigger(
+            @Value("${settlement.stats.counter-correction-interval-seconds:60}") int intervalSeconds) {
+        return TriggerBuilder.newTrigger()
+                .forJob(statusCounterCorrectionJobDetail())
+                .withIdentity("statusCounterCorrectionTrigger")
+                .withSchedule(
+                        SimpleScheduleBuilder.simpleSchedule()
+                                .withIntervalInSeconds(intervalSeconds)
                                 .repeatForever()
                 )
                 .build();
@@ -25,6 +25,10 @@ public class SettlementJob implements Job {
             SettlementExecutionService.SettlementRunResult result =
                     executionService.runWithLock("SCHEDULED_JOB");
 
+            if (result.outcome() == SettlementExecutionService.SettlementRunOutcome.NOTHING_ASSIGNED) {
+                log.info("event=scheduled_settlement_skipped reason=no_assigned_partitions");
+                return;
+            }
             if (!result.lockAcquired()) {
                 log.info("event=scheduled_settlement_skipped reason=lock_unavailable");
                 return;
@@ -0,0 +1,40 @@
+package com.kailas.settlementengine.scheduler;
+
+import com.kailas.settlementengine.service.SettlementLeaseService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Lease heartbeat and reaper: extends this node's claim leases, then returns
+ * PROCESSING rows with expired leases to CAPTURED.
+ */
+@Component
+@DisallowConcurrentExecution
+public class SettlementLeaseJob implements Job {
+
+    private static final Logger log = LoggerFactory.getLogger(SettlementLeaseJob.class);
+    private final SettlementLeaseService leaseService;
+
+    public SettlementLeaseJob(SettlementLeaseService leaseService) {
+        this.leaseService = leaseService;
+    }
+
+    @Override
+    public void execute(JobExecutionContext context) {
+        try {
+            leaseService.renewLeases();
+            leaseService.reapExpiredLeases();
+        } catch (Exception e) {
+            log.error(
+                    "event=settlement_lease_job_failed errorType={} message={}",
+                    e.getClass().getSimpleName(),
+                    e.getMessage(),
+                    e
+            );
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.kailas.settlementengine.scheduler;
+
+import com.kailas.settlementengine.service.SettlementMonitoringService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resets the live status counters to a DB count, fixing drift from other nodes
+ * and from write paths that do not report deltas.
+ */
+@Component
+@DisallowConcurrentExecution
+public class StatusCounterCorrectionJob implements Job {
+
+    private static final Logger log = LoggerFactory.getLogger(StatusCounterCorrectionJob.class);
+    private final SettlementMonitoringService monitoringService;
+
+    public StatusCounterCorrectionJob(SettlementMonitoringService monitoringService) {
+        this.monitoringService = monitoringService;
+    }
+
+    @Override
+    public void execute(JobExecutionContext context) {
+        try {
+            monitoringService.correctStatusCounters();
+        } catch (Exception e) {
+            log.error(
+                    "event=status_counter_correction_failed errorType={} message={}",
+                    e.getClass().getSimpleName(),
+                    e.getMessage(),
+                    e
+            );
+        }
+    }
+}
@@ -0,0 +1,573 @@
+package com.kailas.settlementengine.service;
+
+import com.kailas.settlementengine.entity.ReconciliationStatus;
+import com.kailas.settlementengine.entity.TransactionStatus;
+import com.kailas.settlementengine.entity.UnmatchedStatementLine;
+import com.kailas.settlementengine.repository.ExceptionStateView;
+import com.kailas.settlementengine.repository.SettledTransactionView;
+import com.kailas.settlementengine.repository.TransactionRepository;
+import com.kailas.settlementengine.repository.UnmatchedStatementLineRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Matches a bank settlement statement against SETTLED transactions with a grace
+ * hash join, so memory stays within a fixed budget whatever the statement size:
+ * <ol>
+ *   <li>The statement is streamed through {@link MappedStatementReader} and each
+ *   line is spilled to one of N partition files by hash of its reference.</li>
+ *   <li>SETTLED rows in the statement's value-date window are keyset-paged from
+ *   the database and spilled to N partition files with the same hash.</li>
+ *   <li>Each partition pair is joined on its own: the statement side is loaded
+ *   into a hash table and the ledger side is streamed past it.</li>
+ * </ol>
+ * N is chosen from the file size so one partition's hash table fits the budget.
+ * Matching rows become MATCHED; amount/date mismatches and settled rows absent
+ * from the statement go to the exception queue; lines with no Transaction behind
+ * them are stored as {@link UnmatchedStatementLine}s. Lines for transactions that
+ * are still CAPTURED or PROCESSING are left alone for a later pass.
+ * <p>
+ * Nothing is written until the whole statement has been read, so a malformed
+ * line rejects the statement without touching the database.
+ */
+@Service
+public class BankStatementReconciliationService {
+
+    private static final Logger log = LoggerFactory.getLogger(BankStatementReconciliationService.class);
+
+    static final String MISMATCH_REASON = "Amount or value date differs from bank statement";
+    static final String MISSING_REASON = "Settled transaction missing from bank statement";
+    static final String NOT_SETTLED_IN_WINDOW_REASON = "Bank statement line for a transaction not settled on that date";
+
+    // Conservative sizing: short CSV lines are ~24 bytes, and a HashMap entry
+    // with its boxed key and line record costs ~160 bytes of heap.
+    private static final long MIN_BYTES_PER_LINE = 24;
+    private static final long HEAP_BYTES_PER_ENTRY = 160;
+    private static final int MAX_PARTITIONS = 1024;
+    private static final int SPILL_BUFFER_BYTES = 8 * 1024;
+
+    private final TransactionRepository transactionRepository;
+    private final UnmatchedStatementLineRepository unmatchedLineRepository;
+    private final TransactionStateMachine transactionStateMachine;
+    private final TransactionTemplate transactionTemplate;
+    private final MappedStatementReader statementReader = new MappedStatementReader();
+    private final Path inboxDir;
+    private final Path spillDir;
+    private final long memoryBudgetBytes;
+    private final int chunkSize;
+
+    public BankStatementReconciliationService(TransactionRepository transactionRepository,
+                                              UnmatchedStatementLineRepository unmatchedLineRepository,
+                                              TransactionStateMachine transactionStateMachine,
+                                              PlatformTransactionManager transactionManager,
+                                              @Value("${settlement.statement.inbox-dir:statements}") String inboxDir,
+                                              @Value("${settlement.statement.spill-dir:}") String spillDir,
+                                              @Value("${settlement.statement.memory-budget-mb:64}") long memoryBudgetMb,
+                                              @Value("${settlement.reconciliation.chunk-size:10000}") int chunkSize) {
+        if (memoryBudgetMb <= 0) {
+            throw new IllegalStateException("settlement.statement.memory-budget-mb must be greater than zero.");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalStateException("settlement.reconciliation.chunk-size must be greater than zero.");
+        }
+        this.transactionRepository = transactionRepository;
+        this.unmatchedLineRepository = unmatchedLineRepository;
+        this.transactionStateMachine = transactionStateMachine;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.inboxDir = Paths.get(inboxDir).toAbsolutePath().normalize();
+        this.spillDir = spillDir == null || spillDir.isBlank()
+                ? Paths.get(System.getProperty("java.io.tmpdir"))
+                : Paths.get(spillDir);
+        this.memoryBudgetBytes = memoryBudgetMb * 1024 * 1024;
+        this.chunkSize = chunkSize;
+    }
+
+    public StatementReconciliationResult reconcileStatement(String fileName, StatementFormat format) {
+        Path statement = resolveStatement(fileName);
+        long startedAt = System.nanoTime();
+        Path workDir = null;
+
+        try {
+            int partitions = partitionCount(Files.size(statement));
+            workDir = Files.createTempDirectory(spillDir, "statement-");
+            OutcomeBuffer outcomes = new OutcomeBuffer(fileName);
+
+            StatementSpill statementSpill = spillStatement(statement, format, workDir, partitions);
+            replayUnexpected(workDir, statementSpill.unexpectedLines(), outcomes);
+            long[] ledgerCounts = statementSpill.lines() == 0
+                    ? new long[partitions]
+                    : spillLedger(statementSpill, workDir, partitions);
+
+            for (int partition = 0; partition < partitions; partition++) {
+                joinPartition(workDir, partition, statementSpill.counts()[partition], ledgerCounts[partition], outcomes);
+            }
+            outcomes.flush();
+
+            StatementReconciliationResult result = new StatementReconciliationResult(
+                    fileName,
+                    statementSpill.lines(),
+                    partitions,
+                    outcomes.matchedCount,
+                    outcomes.mismatchedCount,
+                    outcomes.missingCount,
+                    outcomes.unexpectedCount,
+                    outcomes.inFlightCount,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)
+            );
+            log.info(
+                    "event=statement_reconciliation_completed statement={} lines={} partitions={} matched={} mismatched={} missing={} unexpected={} inFlight={} durationMillis={}",
+                    fileName,
+                    result.statementLines(),
+                    partitions,
+                    result.matchedCount(),
+                    result.mismatchedCount(),
+                    result.missingCount(),
+                    result.unexpectedCount(),
+                    result.inFlightCount(),
+                    result.durationMillis()
+            );
+            return result;
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to reconcile statement " + fileName + ": " + e.getMessage(), e);
+        } catch (IllegalArgumentException e) {
+            // Malformed line: the request was bad, not the statement lookup.
+            throw new IllegalStateException(e.getMessage(), e);
+        } finally {
+            deleteQuietly(workDir);
+        }
+    }
+
+    /**
+     * Statements are only read from the configured inbox directory.
+     */
+    private Path resolveStatement(String fileName) {
+        if (fileName == null || fileName.isBlank()) {
+            throw new IllegalStateException("Statement file name is required.");
+        }
+        Path statement = inboxDir.resolve(fileName).normalize();
+        if (!statement.startsWith(inboxDir)) {
+            throw new IllegalStateException("Statement must be inside the statement inbox.");
+        }
+        if (!Files.isRegularFile(statement)) {
+            throw new IllegalArgumentException("Statement not found: " + fileName);
+        }
+        return statement;
+    }
+
+    int partitionCount(long statementBytes) {
+        long worstCaseHeap = statementBytes / MIN_BYTES_PER_LINE * HEAP_BYTES_PER_ENTRY;
+        long needed = Math.max(1L, (worstCaseHeap + memoryBudgetBytes - 1) / memoryBudgetBytes);
+        int partitions = 1;
+        while (partitions < needed && partitions < MAX_PARTITIONS) {
+            partitions <<= 1;
+        }
+        return partitions;
+    }
+
+    /**
+     * Spills the statement without writing anything to the database: lines whose
+     * reference is not a transaction id go to their own spill file and are only
+     * recorded once the whole file has parsed.
+     */
+    private StatementSpill spillStatement(Path statement,
+                                          StatementFormat format,
+                                          Path workDir,
+                                          int partitions) throws IOException {
+        LocalDate[] dateRange = new LocalDate[2];
+        long lines;
+        try (SpillWriter writer = new SpillWriter(workDir, "statement", partitions);
+             SpillWriter unexpectedWriter = new SpillWriter(workDir, "unexpected", 1)) {
+            lines = statementReader.read(statement, format, line -> {
+                Long transactionId = parseReference(line.reference());
+                if (transactionId == null) {
+                    unexpectedWriter.write(0L, out -> {
+                        out.writeUTF(line.reference());
+                        out.writeUTF(line.amount().toPlainString());
+                        out.writeLong(line.valueDate().toEpochDay());
+                        out.writeLong(line.lineNumber());
+                    });
+                    return;
+                }
+                if (dateRange[0] == null || line.valueDate().isBefore(dateRange[0])) {
+                    dateRange[0] = line.valueDate();
+                }
+                if (dateRange[1] == null || line.valueDate().isAfter(dateRange[1])) {
+                    dateRange[1] = line.valueDate();
+                }
+                writer.write(transactionId, out -> {
+                    out.writeLong(transactionId);
+                    out.writeUTF(line.amount().toPlainString());
+                    out.writeLong(line.valueDate().toEpochDay());
+                    out.writeLong(line.lineNumber());
+                });
+            });
+            return new StatementSpill(lines, writer.counts, unexpectedWriter.counts[0], dateRange[0], dateRange[1]);
+        }
+    }
+
+    private void replayUnexpected(Path workDir, long count, OutcomeBuffer outcomes) throws IOException {
+        if (count == 0) {
+            return;
+        }
+        try (DataInputStream in = openSpill(workDir, "unexpected", 0)) {
+            for (long i = 0; i < count; i++) {
+                outcomes.unexpected(new StatementLine(
+                        in.readUTF(),
+                        new BigDecimal(in.readUTF()),
+                        LocalDate.ofEpochDay(in.readLong()),
+                        in.readLong()
+                ));
+            }
+        }
+    }
+
+    private long[] spillLedger(StatementSpill statementSpill, Path workDir, int partitions) throws IOException {
+        if (statementSpill.fromDate() == null) {
+            return new long[partitions];
+        }
+        LocalDateTime from = statementSpill.fromDate().atStartOfDay();
+        LocalDateTime to = statementSpill.toDate().plusDays(1).atStartOfDay();
+
+        try (SpillWriter writer = new SpillWriter(workDir, "ledger", partitions)) {
+            long afterId = 0L;
+            while (true) {
+                List<SettledTransactionView> page = transactionRepository.findSettledBetween(
+                        from,
+                        to,
+                        afterId,
+                        PageRequest.of(0, chunkSize)
+                );
+                for (SettledTransactionView row : page) {
+                    writer.write(row.id(), out -> {
+                        out.writeLong(row.id());
+                        out.writeUTF(row.amount() == null ? "" : row.amount().toPlainString());
+                        out.writeLong(row.settledAt().toLocalDate().toEpochDay());
+                    });
+                }
+                if (page.size() < chunkSize) {
+                    break;
+                }
+                afterId = page.get(page.size() - 1).id();
+            }
+            return writer.counts;
+        }
+    }
+
+    private void joinPartition(Path workDir,
+                               int partition,
+                               long statementCount,
+                               long ledgerCount,
+                               OutcomeBuffer outcomes) throws IOException {
+        if (statementCount == 0 && ledgerCount == 0) {
+            return;
+        }
+
+        Map<Long, StatementLine> statementLines = new HashMap<>();
+        try (DataInputStream in = openSpill(workDir, "statement", partition)) {
+            for (long i = 0; i < statementCount; i++) {
+                long transactionId = in.readLong();
+                StatementLine line = new StatementLine(
+                        Long.toString(transactionId),
+                        new BigDecimal(in.readUTF()),
+                        LocalDate.ofEpochDay(in.readLong()),
+                        in.readLong()
+                );
+                if (statementLines.putIfAbsent(transactionId, line) != null) {
+                    // The bank reported the same reference twice.
+                    outcomes.unexpected(line);
+                }
+            }
+        }
+
+        try (DataInputStream in = openSpill(workDir, "ledger", partition)) {
+            for (long i = 0; i < ledgerCount; i++) {
+                long transactionId = in.readLong();
+                String amount = in.readUTF();
+                LocalDate settledOn = LocalDate.ofEpochDay(in.readLong());
+
+                StatementLine line = statementLines.remove(transactionId);
+                if (line == null) {
+                    outcomes.missing(transactionId);
+                } else if (!amount.isEmpty()
+                        && new BigDecimal(amount).compareTo(line.amount()) == 0
+                        && settledOn.equals(line.valueDate())) {
+                    outcomes.matched(transactionId);
+                } else {
+                    outcomes.mismatched(transactionId);
+                }
+            }
+        }
+
+        // Statement lines left over have no SETTLED row on that date: either the
+        // transaction exists in another state/date, or the bank invented it.
+        // Which of the existing ones are still in flight is decided under lock at flush.
+        List<StatementLine> leftovers = new ArrayList<>(statementLines.values());
+        statementLines.clear();
+        for (int from = 0; from < leftovers.size(); from += chunkSize) {
+            List<StatementLine> batch = leftovers.subList(from, Math.min(from + chunkSize, leftovers.size()));
+            Set<Long> existing = new HashSet<>(transactionRepository.findExistingIds(
+                    batch.stream().map(line -> Long.parseLong(line.reference())).toList()
+            ));
+            for (StatementLine line : batch) {
+                long transactionId = Long.parseLong(line.reference());
+                if (existing.contains(transactionId)) {
+                    outcomes.notSettledInWindow(transactionId);
+                } else {
+                    outcomes.unexpected(line);
+                }
+            }
+        }
+    }
+
+    private static Long parseReference(String reference) {
+        try {
+            long transactionId = Long.parseLong(reference);
+            return transactionId > 0 ? transactionId : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static DataInputStream openSpill(Path workDir, String side, int partition) throws IOException {
+        return new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(spillFile(workDir, side, partition)),
+                SPILL_BUFFER_BYTES
+        ));
+    }
+
+    private static Path spillFile(Path workDir, String side, int partition) {
+        return workDir.resolve(side + "-" + partition + ".bin");
+    }
+
+    private static int partitionOf(long transactionId, int partitions) {
+        // Fibonacci hashing spreads sequential ids evenly over the partitions.
+        return (int) ((transactionId * 0x9E3779B97F4A7C15L) >>> 40) & (partitions - 1);
+    }
+
+    private static void deleteQuietly(Path workDir) {
+        if (workDir == null) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(workDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    log.warn("event=statement_spill_cleanup_failed path={} message={}", path, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            log.warn("event=statement_spill_cleanup_failed path={} message={}", workDir, e.getMessage());
+        }
+    }
+
+    private record StatementSpill(long lines,
+                                  long[] counts,
+                                  long unexpectedLines,
+                                  LocalDate fromDate,
+                                  LocalDate toDate) {}
+
+    @FunctionalInterface
+    private interface SpillRecord {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * One buffered output stream per partition; buffers are small so even the
+     * maximum partition count stays within a few MB.
+     */
+    private static final class SpillWriter implements AutoCloseable {
+        private final DataOutputStream[] outputs;
+        private final long[] counts;
+
+        private SpillWriter(Path workDir, String side, int partitions) throws IOException {
+            this.outputs = new DataOutputStream[partitions];
+            this.counts = new long[partitions];
+            for (int partition = 0; partition < partitions; partition++) {
+                outputs[partition] = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(spillFile(workDir, side, partition)),
+                        SPILL_BUFFER_BYTES
+                ));
+            }
+        }
+
+        private void write(long transactionId, SpillRecord record) {
+            int partition = partitionOf(transactionId, outputs.length);
+            try {
+                record.writeTo(outputs[partition]);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to write statement spill file: " + e.getMessage(), e);
+            }
+            counts[partition]++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (DataOutputStream output : outputs) {
+                if (output == null) {
+                    continue;
+                }
+                try {
+                    output.close();
+                } catch (IOException e) {
+                    failure = failure == null ? e : failure;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Collects join outcomes and writes them in bulk, one short transaction per
+     * chunk, so no outcome list grows past the chunk size. Each outcome locks its
+     * rows first, so the reconciliation status moves published to the counters
+     * are the ones the UPDATE made.
+     */
+    private final class OutcomeBuffer {
+        private final String statementName;
+        private final List<Long> matched = new ArrayList<>();
+        private final List<Long> mismatched = new ArrayList<>();
+        private final List<Long> notSettledInWindow = new ArrayList<>();
+        private final List<Long> missing = new ArrayList<>();
+        private final List<UnmatchedStatementLine> unexpected = new ArrayList<>();
+
+        private long matchedCount;
+        private long mismatchedCount;
+        private long missingCount;
+        private long unexpectedCount;
+        private long inFlightCount;
+
+        private OutcomeBuffer(String statementName) {
+            this.statementName = statementName;
+        }
+
+        private void matched(long transactionId) {
+            add(matched, transactionId);
+        }
+
+        private void mismatched(long transactionId) {
+            add(mismatched, transactionId);
+        }
+
+        private void notSettledInWindow(long transactionId) {
+            add(notSettledInWindow, transactionId);
+        }
+
+        private void missing(long transactionId) {
+            add(missing, transactionId);
+        }
+
+        private void unexpected(StatementLine line) {
+            unexpected.add(new UnmatchedStatementLine(
+                    statementName,
+                    line.lineNumber(),
+                    line.reference(),
+                    line.amount(),
+                    line.valueDate()
+            ));
+            if (unexpected.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        private void add(List<Long> outcome, long transactionId) {
+            outcome.add(transactionId);
+            if (outcome.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (matched.isEmpty() && mismatched.isEmpty() && notSettledInWindow.isEmpty()
+                    && missing.isEmpty() && unexpected.isEmpty()) {
+                return;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                matchedCount += apply(matched, ReconciliationStatus.MATCHED, false,
+                        ids -> transactionRepository.markStatementMatched(ids, now));
+                mismatchedCount += apply(mismatched, ReconciliationStatus.EXCEPTION_QUEUED, false,
+                        ids -> transactionRepository.queueStatementExceptions(ids, MISMATCH_REASON, now));
+                mismatchedCount += apply(notSettledInWindow, ReconciliationStatus.EXCEPTION_QUEUED, true,
+                        ids -> transactionRepository.queueStatementExceptions(ids, NOT_SETTLED_IN_WINDOW_REASON, now));
+                missingCount += apply(missing, ReconciliationStatus.EXCEPTION_QUEUED, false,
+                        ids -> transactionRepository.queueStatementExceptions(ids, MISSING_REASON, now));
+                if (!unexpected.isEmpty()) {
+                    unmatchedLineRepository.saveAll(unexpected);
+                    unexpectedCount += unexpected.size();
+                }
+            });
+            matched.clear();
+            mismatched.clear();
+            notSettledInWindow.clear();
+            missing.clear();
+            unexpected.clear();
+        }
+
+        /**
+         * Runs one outcome's UPDATE on the locked rows an operator has not
+         * RESOLVED. With {@code settledOrFailedOnly}, rows still CAPTURED or
+         * PROCESSING are skipped and counted as in flight.
+         */
+        private int apply(List<Long> ids,
+                          ReconciliationStatus target,
+                          boolean settledOrFailedOnly,
+                          ToIntFunction<List<Long>> update) {
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            List<Long> applicable = new ArrayList<>(ids.size());
+            Map<ReconciliationStatus, Long> movedFrom = new HashMap<>();
+            for (ExceptionStateView state : transactionRepository.lockExceptionStates(ids)) {
+                if (state.reconciliationStatus() == ReconciliationStatus.RESOLVED) {
+                    continue;
+                }
+                if (settledOrFailedOnly
+                        && state.status() != TransactionStatus.SETTLED
+                        && state.status() != TransactionStatus.FAILED) {
+                    inFlightCount++;
+                    continue;
+                }
+                applicable.add(state.id());
+                movedFrom.merge(state.reconciliationStatus(), 1L, Long::sum);
+            }
+            if (applicable.isEmpty()) {
+                return 0;
+            }
+            int updated = update.applyAsInt(applicable);
+            movedFrom.forEach((from, count) ->
+                    transactionStateMachine.recordBulkReconciliationChange(from, target, count));
+            return updated;
+        }
+    }
+}
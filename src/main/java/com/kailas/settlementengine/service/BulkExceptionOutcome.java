@@ -0,0 +1,8 @@
+package com.kailas.settlementengine.service;
+
+public enum BulkExceptionOutcome {
+    RETRIED,
+    RESOLVED,
+    NOT_FOUND,
+    NOT_IN_EXCEPTION_QUEUE
+}
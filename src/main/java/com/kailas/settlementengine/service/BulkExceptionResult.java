@@ -0,0 +1,28 @@
+package com.kailas.settlementengine.service;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-id outcome of a bulk retry/resolve. truncated is set when a filter
+ * matched more rows than one request may touch; repeat the call for the rest.
+ */
+public record BulkExceptionResult(
+        List<ItemOutcome> outcomes,
+        boolean truncated
+) {
+    public record ItemOutcome(Long transactionId, BulkExceptionOutcome outcome) {}
+
+    public Map<BulkExceptionOutcome, Long> countsByOutcome() {
+        Map<BulkExceptionOutcome, Long> counts = new EnumMap<>(BulkExceptionOutcome.class);
+        for (ItemOutcome item : outcomes) {
+            counts.merge(item.outcome(), 1L, Long::sum);
+        }
+        return counts;
+    }
+
+    public long count(BulkExceptionOutcome outcome) {
+        return countsByOutcome().getOrDefault(outcome, 0L);
+    }
+}
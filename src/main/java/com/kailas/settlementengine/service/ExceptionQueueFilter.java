@@ -0,0 +1,18 @@
+package com.kailas.settlementengine.service;
+
+import java.math.BigDecimal;
+
+/**
+ * Optional exception queue filters; null fields are not applied. Ages are
+ * minutes since the transaction was created.
+ */
+public record ExceptionQueueFilter(
+        String reasonPrefix,
+        Long merchantId,
+        BigDecimal minAmount,
+        BigDecimal maxAmount,
+        Long minAgeMinutes,
+        Long maxAgeMinutes
+) {
+    public static final ExceptionQueueFilter NONE = new ExceptionQueueFilter(null, null, null, null, null, null);
+}
@@ -0,0 +1,17 @@
+package com.kailas.settlementengine.service;
+
+import com.kailas.settlementengine.entity.Transaction;
+
+import java.util.List;
+
+/**
+ * One keyset page of the exception queue. nextCursor is null on the last page.
+ * total is the count of matching rows, computed only for the first page of a
+ * query and capped: when totalCapped is true there are more than total rows.
+ */
+public record ExceptionQueuePage(
+        List<Transaction> items,
+        String nextCursor,
+        Long total,
+        Boolean totalCapped
+) {}
@@ -0,0 +1,58 @@
+package com.kailas.settlementengine.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Partition locks held in this JVM. Only safe when a single node settles, or in
+ * tests. A lock here cannot outlive the process that holds it, so leases are
+ * never lost and claims under them are not fenced.
+ */
+public class InProcessLockProvider implements SettlementLockProvider {
+
+    private final ConcurrentMap<String, String> holders = new ConcurrentHashMap<>();
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final String instanceId;
+    private final SettlementFlightRecorder flightRecorder;
+
+    public InProcessLockProvider(SettlementNodeIdentity nodeIdentity, SettlementFlightRecorder flightRecorder) {
+        this.instanceId = nodeIdentity.getNodeId();
+        this.flightRecorder = flightRecorder;
+    }
+
+    @Override
+    public SettlementLockBackend backend() {
+        return SettlementLockBackend.IN_PROCESS;
+    }
+
+    @Override
+    public SettlementLockLease acquireLock(String key) {
+        SettlementFlightRecorder.LockEvent lockEvent = flightRecorder.beginLockAcquire(key);
+        String lockId = instanceId + "#local-" + acquisitions.incrementAndGet();
+        if (holders.putIfAbsent(key, lockId) != null) {
+            flightRecorder.endLock(lockEvent, null, false);
+            return null;
+        }
+        flightRecorder.endLock(lockEvent, lockId, true);
+        return new SettlementLockLease(SettlementLockBackend.IN_PROCESS, key, lockId, SettlementLockLease.UNFENCED);
+    }
+
+    @Override
+    public void releaseLock(SettlementLockLease lease) {
+        SettlementFlightRecorder.LockEvent lockEvent = flightRecorder.beginLockRelease(lease.key());
+        flightRecorder.endLock(lockEvent, lease.lockId(), holders.remove(lease.key(), lease.lockId()));
+    }
+
+    @Override
+    public List<SettlementLockStatus> getLockStatuses(List<String> keys) {
+        List<SettlementLockStatus> statuses = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            String holder = holders.get(key);
+            statuses.add(holder == null ? SettlementLockStatus.FREE : new SettlementLockStatus(holder, -1L));
+        }
+        return statuses;
+    }
+}
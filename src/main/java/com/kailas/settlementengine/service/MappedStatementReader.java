@@ -0,0 +1,116 @@
+package com.kailas.settlementengine.service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Streams a statement file through memory-mapped windows. Only one window is
+ * mapped at a time and lines are handed to the consumer as they are parsed, so
+ * heap use does not depend on the file size. A window ends at its last complete
+ * line; the next window is mapped from there.
+ */
+public class MappedStatementReader {
+
+    static final long DEFAULT_WINDOW_BYTES = 64L * 1024 * 1024;
+
+    private final long windowBytes;
+
+    public MappedStatementReader() {
+        this(DEFAULT_WINDOW_BYTES);
+    }
+
+    MappedStatementReader(long windowBytes) {
+        if (windowBytes <= 0 || windowBytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Statement window size must be between 1 byte and 2 GiB.");
+        }
+        this.windowBytes = windowBytes;
+    }
+
+    /**
+     * Returns the number of statement lines passed to the consumer.
+     */
+    public long read(Path path, StatementFormat format, Consumer<StatementLine> consumer) throws IOException {
+        long emitted = 0;
+        long lineNumber = 0;
+        byte[] lineBytes = new byte[256];
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+
+            while (position < size) {
+                int length = (int) Math.min(windowBytes, size - position);
+                boolean lastWindow = position + length == size;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+                int lineStart = 0;
+                for (int i = 0; i < length; i++) {
+                    if (window.get(i) != '\n') {
+                        continue;
+                    }
+                    lineNumber++;
+                    lineBytes = ensureCapacity(lineBytes, i - lineStart);
+                    if (emit(window, lineStart, i, lineBytes, format, lineNumber, consumer)) {
+                        emitted++;
+                    }
+                    lineStart = i + 1;
+                }
+
+                if (lastWindow) {
+                    if (lineStart < length) {
+                        lineNumber++;
+                        lineBytes = ensureCapacity(lineBytes, length - lineStart);
+                        if (emit(window, lineStart, length, lineBytes, format, lineNumber, consumer)) {
+                            emitted++;
+                        }
+                    }
+                    break;
+                }
+                if (lineStart == 0) {
+                    throw new IllegalArgumentException(
+                            "Statement line " + (lineNumber + 1) + " is longer than the " + windowBytes + " byte window."
+                    );
+                }
+                position += lineStart;
+            }
+        }
+        return emitted;
+    }
+
+    private static boolean emit(MappedByteBuffer window,
+                                int from,
+                                int to,
+                                byte[] lineBytes,
+                                StatementFormat format,
+                                long lineNumber,
+                                Consumer<StatementLine> consumer) {
+        int end = to;
+        if (end > from && window.get(end - 1) == '\r') {
+            end--;
+        }
+        if (end == from) {
+            return false;
+        }
+        window.get(from, lineBytes, 0, end - from);
+        String text = new String(lineBytes, 0, end - from, StandardCharsets.UTF_8);
+        if (text.isBlank()) {
+            return false;
+        }
+
+        StatementLine line = format.parse(text, lineNumber);
+        if (line == null) {
+            return false;
+        }
+        consumer.accept(line);
+        return true;
+    }
+
+    private static byte[] ensureCapacity(byte[] buffer, int length) {
+        return buffer.length >= length ? buffer : new byte[Math.max(length, buffer.length * 2)];
+    }
+}
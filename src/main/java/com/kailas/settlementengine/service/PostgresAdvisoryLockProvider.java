@@ -0,0 +1,266 @@
+package com.kailas.settlementengine.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Partition locks as PostgreSQL session-level advisory locks, so a deployment
+ * with only the database can settle. Each held lock keeps one connection of a
+ * dedicated lock pool (owned by this provider and closed with it) for the
+ * length of the run: Postgres drops the lock the moment that session ends, so a
+ * dead node's lock goes away with its connection instead of waiting out a TTL.
+ * Fencing tokens come from the settlement_lock_fence_seq sequence, and the
+ * holder is published as the session's application_name so every node can read
+ * it from pg_stat_activity.
+ */
+public class PostgresAdvisoryLockProvider implements SettlementLockProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(PostgresAdvisoryLockProvider.class);
+
+    // First key of the two-int advisory lock form, so settlement locks never
+    // collide with advisory locks taken by other applications on the database.
+    static final int LOCK_NAMESPACE = 0x5e771e;
+    static final String FENCE_SEQUENCE = "settlement_lock_fence_seq";
+    private static final String APPLICATION_NAME_PREFIX = "settlement-lock:";
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final HikariDataSource dataSource;
+    private final String instanceId;
+    private final SettlementFlightRecorder flightRecorder;
+    private final long validateIntervalMillis;
+    private final ScheduledExecutorService watchdog;
+    private final Map<SettlementLockLease, HeldLock> heldLocks = new ConcurrentHashMap<>();
+
+    public PostgresAdvisoryLockProvider(HikariDataSource dataSource,
+                                        SettlementNodeIdentity nodeIdentity,
+                                        SettlementFlightRecorder flightRecorder,
+                                        long lockTtlSeconds) {
+        if (lockTtlSeconds <= 0) {
+            throw new IllegalStateException("settlement.lock.ttl-seconds must be greater than zero.");
+        }
+        this.dataSource = dataSource;
+        this.instanceId = nodeIdentity.getNodeId();
+        this.flightRecorder = flightRecorder;
+        // Advisory locks do not expire; the TTL only sets how often a held
+        // session is checked, so a dropped connection is noticed as quickly as
+        // the Redis watchdog notices a lost key.
+        this.validateIntervalMillis = Math.max(TimeUnit.SECONDS.toMillis(lockTtlSeconds) / 3, 1L);
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "settlement-lock-validator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        createFenceSequence();
+    }
+
+    @Override
+    public SettlementLockBackend backend() {
+        return SettlementLockBackend.POSTGRES;
+    }
+
+    @Override
+    public SettlementLockLease acquireLock(String key) {
+        SettlementFlightRecorder.LockEvent lockEvent = flightRecorder.beginLockAcquire(key);
+        Connection connection = null;
+        try {
+            try {
+                connection = dataSource.getConnection();
+            } catch (SQLTransientConnectionException ex) {
+                // Hikari attaches the last connect failure as the cause when the
+                // database is unreachable; without one, every lock connection is
+                // held by other runs on this node, which is a held lock.
+                if (ex.getCause() != null) {
+                    throw ex;
+                }
+                flightRecorder.endLock(lockEvent, null, false);
+                log.info("event=lock_pool_exhausted key={} backend=postgres", key);
+                return null;
+            }
+            connection.setAutoCommit(true);
+            if (!queryBoolean(connection, "SELECT pg_try_advisory_lock(?, ?)", key)) {
+                flightRecorder.endLock(lockEvent, null, false);
+                connection.close();
+                return null;
+            }
+
+            long token = nextFencingToken(connection);
+            String lockId = instanceId + "#" + token;
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT set_config('application_name', ?, false)")) {
+                statement.setString(1, APPLICATION_NAME_PREFIX + lockId);
+                statement.execute();
+            }
+
+            SettlementLockLease lease = new SettlementLockLease(SettlementLockBackend.POSTGRES, key, lockId, token);
+            ScheduledFuture<?> validation = watchdog.scheduleAtFixedRate(
+                    () -> validate(lease),
+                    validateIntervalMillis,
+                    validateIntervalMillis,
+                    TimeUnit.MILLISECONDS
+            );
+            heldLocks.put(lease, new HeldLock(connection, validation));
+            flightRecorder.endLock(lockEvent, lockId, true);
+            log.info("event=lock_acquired key={} lockId={} fencingToken={} backend=postgres", key, lockId, token);
+            return lease;
+        } catch (SQLException ex) {
+            closeQuietly(connection);
+            throw new IllegalStateException("Could not acquire advisory lock for " + key + ".", ex);
+        }
+    }
+
+    @Override
+    public void releaseLock(SettlementLockLease lease) {
+        HeldLock held = heldLocks.remove(lease);
+        if (held == null) {
+            return;
+        }
+        held.validation().cancel(false);
+        SettlementFlightRecorder.LockEvent lockEvent = flightRecorder.beginLockRelease(lease.key());
+        boolean released = false;
+        synchronized (held.connection()) {
+            try {
+                released = queryBoolean(held.connection(), "SELECT pg_advisory_unlock(?, ?)", lease.key());
+                try (Statement statement = held.connection().createStatement()) {
+                    statement.execute("RESET application_name");
+                }
+            } catch (SQLException ex) {
+                log.warn("event=lock_release_failed key={} lockId={} message={}", lease.key(), lease.lockId(), ex.getMessage());
+            } finally {
+                // Closing the session drops the lock too, if the unlock failed.
+                closeQuietly(held.connection());
+            }
+        }
+        flightRecorder.endLock(lockEvent, lease.lockId(), released);
+        log.info("event=lock_released key={} lockId={} backend=postgres", lease.key(), lease.lockId());
+    }
+
+    @Override
+    public List<SettlementLockStatus> getLockStatuses(List<String> keys) {
+        Map<Long, String> holdersByObjectId = new HashMap<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT l.objid::bigint, a.application_name FROM pg_locks l " +
+                             "JOIN pg_stat_activity a ON a.pid = l.pid " +
+                             "WHERE l.locktype = 'advisory' AND l.classid = ? AND l.objsubid = 2 AND l.granted")) {
+            statement.setInt(1, LOCK_NAMESPACE);
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    String applicationName = rows.getString(2);
+                    holdersByObjectId.put(
+                            rows.getLong(1),
+                            applicationName != null && applicationName.startsWith(APPLICATION_NAME_PREFIX)
+                                    ? applicationName.substring(APPLICATION_NAME_PREFIX.length())
+                                    : applicationName
+                    );
+                }
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Could not read advisory lock holders.", ex);
+        }
+
+        List<SettlementLockStatus> statuses = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            // pg_locks reports objid as an unsigned oid.
+            String holder = holdersByObjectId.get(Integer.toUnsignedLong(lockObjectId(key)));
+            statuses.add(holder == null ? SettlementLockStatus.FREE : new SettlementLockStatus(holder, -1L));
+        }
+        return statuses;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+        heldLocks.keySet().forEach(this::releaseLock);
+        dataSource.close();
+    }
+
+    static int lockObjectId(String key) {
+        return key.hashCode();
+    }
+
+    private void validate(SettlementLockLease lease) {
+        HeldLock held = heldLocks.get(lease);
+        if (held == null) {
+            return;
+        }
+        boolean valid;
+        synchronized (held.connection()) {
+            try {
+                valid = held.connection().isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException ex) {
+                valid = false;
+            }
+        }
+        if (!valid) {
+            lease.markLost();
+            held.validation().cancel(false);
+            log.warn("event=lock_lost key={} lockId={} backend=postgres reason=session_closed", lease.key(), lease.lockId());
+        }
+    }
+
+    private void createFenceSequence() {
+        try (Connection connection = dataSource.getConnection()) {
+            String product = connection.getMetaData().getDatabaseProductName();
+            if (!"PostgreSQL".equalsIgnoreCase(product)) {
+                throw new IllegalStateException(
+                        "settlement.lock.backend=POSTGRES needs a PostgreSQL datasource, found " + product + "."
+                );
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE SEQUENCE IF NOT EXISTS " + FENCE_SEQUENCE);
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Could not create " + FENCE_SEQUENCE + ".", ex);
+        }
+    }
+
+    private static long nextFencingToken(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT nextval('" + FENCE_SEQUENCE + "')")) {
+            rows.next();
+            return rows.getLong(1);
+        }
+    }
+
+    private static boolean queryBoolean(Connection connection, String sql, String key) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, LOCK_NAMESPACE);
+            statement.setInt(2, lockObjectId(key));
+            try (ResultSet rows = statement.executeQuery()) {
+                return rows.next() && rows.getBoolean(1);
+            }
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException ex) {
+            log.warn("event=lock_connection_close_failed message={}", ex.getMessage());
+        }
+    }
+
+    private record HeldLock(Connection connection, ScheduledFuture<?> validation) {
+    }
+}
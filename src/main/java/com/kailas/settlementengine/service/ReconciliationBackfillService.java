@@ -0,0 +1,174 @@
+package com.kailas.settlementengine.service;
+
+import com.kailas.settlementengine.entity.ReconciliationStatus;
+import com.kailas.settlementengine.repository.TransactionRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gives rows created before reconciliation existed a PENDING reconciliation
+ * status. Runs once the application is ready, on its own thread, as keyset
+ * pages of bulk UPDATEs (one short transaction each), so startup time does not
+ * depend on table size and the app serves traffic while it runs. Progress is
+ * reported separately from readiness.
+ */
+@Service
+public class ReconciliationBackfillService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReconciliationBackfillService.class);
+
+    public enum State {
+        NOT_STARTED,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        DISABLED
+    }
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionStateMachine transactionStateMachine;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int chunkSize;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reconciliation-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong backfilledCount = new AtomicLong();
+    private final AtomicLong chunkCount = new AtomicLong();
+    private volatile State state;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime completedAt;
+    private volatile String lastError;
+
+    public ReconciliationBackfillService(TransactionRepository transactionRepository,
+                                         TransactionStateMachine transactionStateMachine,
+                                         PlatformTransactionManager transactionManager,
+                                         @Value("${settlement.reconciliation.backfill.enabled:true}") boolean enabled,
+                                         @Value("${settlement.reconciliation.chunk-size:10000}") int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalStateException("settlement.reconciliation.chunk-size must be greater than zero.");
+        }
+        this.transactionRepository = transactionRepository;
+        this.transactionStateMachine = transactionStateMachine;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+        this.state = enabled ? State.NOT_STARTED : State.DISABLED;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBackfill() {
+        if (!enabled) {
+            log.info("event=reconciliation_backfill_disabled");
+            return;
+        }
+        executor.submit(this::runBackfill);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs the backfill on the calling thread; returns the number of rows updated.
+     */
+    long runBackfill() {
+        state = State.RUNNING;
+        startedAt = LocalDateTime.now();
+        completedAt = null;
+        lastError = null;
+        log.info("event=reconciliation_backfill_started chunkSize={}", chunkSize);
+
+        try {
+            long afterId = 0L;
+            while (!Thread.currentThread().isInterrupted()) {
+                List<Long> ids = transactionRepository.findIdsWithoutReconciliationStatus(
+                        afterId,
+                        PageRequest.of(0, chunkSize)
+                );
+                if (ids.isEmpty()) {
+                    break;
+                }
+
+                Integer updated = transactionTemplate.execute(
+                        status -> transactionRepository.initializeReconciliationStatus(ids, LocalDateTime.now())
+                );
+                int updatedCount = updated == null ? 0 : updated;
+                transactionStateMachine.recordBulkReconciliationChange(null, ReconciliationStatus.PENDING, updatedCount);
+                backfilledCount.addAndGet(updatedCount);
+                chunkCount.incrementAndGet();
+                log.debug(
+                        "event=reconciliation_backfill_chunk afterId={} updatedCount={} totalCount={}",
+                        afterId,
+                        updated,
+                        backfilledCount.get()
+                );
+
+                if (ids.size() < chunkSize) {
+                    break;
+                }
+                afterId = ids.get(ids.size() - 1);
+            }
+
+            completedAt = LocalDateTime.now();
+            state = Thread.currentThread().isInterrupted() ? State.FAILED : State.COMPLETED;
+            if (state == State.FAILED) {
+                lastError = "Interrupted";
+            }
+            log.info(
+                    "event=reconciliation_backfill_finished state={} backfilledCount={} chunkCount={}",
+                    state,
+                    backfilledCount.get(),
+                    chunkCount.get()
+            );
+        } catch (RuntimeException e) {
+            completedAt = LocalDateTime.now();
+            lastError = e.getMessage();
+            state = State.FAILED;
+            log.error(
+                    "event=reconciliation_backfill_failed backfilledCount={} errorType={} message={}",
+                    backfilledCount.get(),
+                    e.getClass().getSimpleName(),
+                    e.getMessage(),
+                    e
+            );
+        }
+        return backfilledCount.get();
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public Map<String, Object> describe() {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("state", state);
+        progress.put("backfilledCount", backfilledCount.get());
+        progress.put("chunkCount", chunkCount.get());
+        progress.put("chunkSize", chunkSize);
+        progress.put("startedAt", startedAt);
+        progress.put("completedAt", completedAt);
+        progress.put("lastError", lastError);
+        return progress;
+    }
+}
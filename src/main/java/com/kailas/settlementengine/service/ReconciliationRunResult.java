@@ -0,0 +1,49 @@
+package com.kailas.settlementengine.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Rows moved by one reconciliation run, per rule, and the watermark the run
+ * advanced to. Lag is how far the watermark trails the end of the run.
+ */
+public record ReconciliationRunResult(
+        long matchedCount,
+        long missingSettledAtCount,
+        long failedQueuedCount,
+        LocalDateTime watermark,
+        long watermarkLagMillis
+) {
+    public static final ReconciliationRunResult EMPTY = new ReconciliationRunResult(0L, 0L, 0L, null, 0L);
+
+    public ReconciliationRunResult(long matchedCount, long missingSettledAtCount, long failedQueuedCount) {
+        this(matchedCount, missingSettledAtCount, failedQueuedCount, null, 0L);
+    }
+
+    public long updatedCount() {
+        return matchedCount + missingSettledAtCount + failedQueuedCount;
+    }
+
+    public long exceptionQueuedCount() {
+        return missingSettledAtCount + failedQueuedCount;
+    }
+
+    public ReconciliationRunResult plus(ReconciliationRunResult other) {
+        return new ReconciliationRunResult(
+                matchedCount + other.matchedCount,
+                missingSettledAtCount + other.missingSettledAtCount,
+                failedQueuedCount + other.failedQueuedCount,
+                watermark,
+                watermarkLagMillis
+        );
+    }
+
+    public ReconciliationRunResult withWatermark(LocalDateTime watermark, long watermarkLagMillis) {
+        return new ReconciliationRunResult(
+                matchedCount,
+                missingSettledAtCount,
+                failedQueuedCount,
+                watermark,
+                watermarkLagMillis
+        );
+    }
+}
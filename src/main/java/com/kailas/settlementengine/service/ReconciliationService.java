@@ -1,65 +1,171 @@
 package com.kailas.settlementengine.service;
 
+import com.kailas.settlementengine.entity.ReconciliationCheckpoint;
 import com.kailas.settlementengine.entity.ReconciliationStatus;
 import com.kailas.settlementengine.entity.Transaction;
 import com.kailas.settlementengine.entity.TransactionStatus;
+import com.kailas.settlementengine.repository.ExceptionStateView;
+import com.kailas.settlementengine.repository.ReconciliationCheckpointRepository;
 import com.kailas.settlementengine.repository.TransactionRepository;
-import jakarta.annotation.PostConstruct;
+import com.kailas.settlementengine.repository.TransactionSpecifications;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 @Service
 public class ReconciliationService {
 
     private static final Logger log = LoggerFactory.getLogger(ReconciliationService.class);
 
+    static final String MISSING_SETTLED_AT_REASON = "SETTLED transaction missing settledAt timestamp";
+    static final String FAILED_REASON = "Settlement failed after max retries";
+    static final String CHECKPOINT_NAME = "pending-transactions";
+    static final int MAX_EXCEPTION_PAGE_SIZE = 200;
+    private static final Sort EXCEPTION_QUEUE_ORDER = Sort.by("createdAt", "id");
+    private static final LocalDateTime INITIAL_WATERMARK = LocalDateTime.of(1970, 1, 1, 0, 0);
+
     private final TransactionRepository transactionRepository;
+    private final ReconciliationCheckpointRepository checkpointRepository;
     private final TransactionStateMachine transactionStateMachine;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final Duration watermarkSafetyLag;
+    private final int bulkMaxIds;
+    private final int exceptionCountCap;
+    private final SettlementMetrics metrics;
+    private final SettlementFlightRecorder flightRecorder;
+    private final Queue<Long> enqueuedIds = new ConcurrentLinkedQueue<>();
 
     public ReconciliationService(TransactionRepository transactionRepository,
-                                 TransactionStateMachine transactionStateMachine) {
+                                 ReconciliationCheckpointRepository checkpointRepository,
+                                 TransactionStateMachine transactionStateMachine,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${settlement.reconciliation.chunk-size:10000}") int chunkSize,
+                                 @Value("${settlement.reconciliation.watermark-safety-seconds:5}")
+                                 long watermarkSafetySeconds,
+                                 @Value("${settlement.reconciliation.bulk-max-ids:10000}") int bulkMaxIds,
+                                 @Value("${settlement.reconciliation.exceptions.count-cap:1000}")
+                                 int exceptionCountCap,
+                                 SettlementMetrics metrics,
+                                 SettlementFlightRecorder flightRecorder) {
+        if (chunkSize <= 0) {
+            throw new IllegalStateException("settlement.reconciliation.chunk-size must be greater than zero.");
+        }
+        if (watermarkSafetySeconds < 0) {
+            throw new IllegalStateException("settlement.reconciliation.watermark-safety-seconds must not be negative.");
+        }
+        if (bulkMaxIds <= 0) {
+            throw new IllegalStateException("settlement.reconciliation.bulk-max-ids must be greater than zero.");
+        }
+        if (exceptionCountCap <= 0) {
+            throw new IllegalStateException("settlement.reconciliation.exceptions.count-cap must be greater than zero.");
+        }
         this.transactionRepository = transactionRepository;
+        this.checkpointRepository = checkpointRepository;
         this.transactionStateMachine = transactionStateMachine;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.watermarkSafetyLag = Duration.ofSeconds(watermarkSafetySeconds);
+        this.bulkMaxIds = bulkMaxIds;
+        this.exceptionCountCap = exceptionCountCap;
+        this.metrics = metrics;
+        this.flightRecorder = flightRecorder;
     }
 
-    @PostConstruct
-    @Transactional
-    public void initializeReconciliationStatus() {
-        List<Transaction> missing = transactionRepository.findByReconciliationStatusIsNull();
+    /**
+     * Hands rows that just reached SETTLED/FAILED straight to the next pass, so
+     * they are reconciled without waiting for the watermark to pass them.
+     */
+    public void enqueue(Collection<Long> transactionIds) {
+        enqueuedIds.addAll(transactionIds);
+    }
 
-        for (Transaction transaction : missing) {
-            transaction.setReconciliationStatus(ReconciliationStatus.PENDING);
-            transaction.setReconciliationUpdatedAt(LocalDateTime.now());
-            transactionRepository.save(transaction);
-        }
+    /**
+     * Incremental pass. Applies the rules (SETTLED with settledAt -> MATCHED,
+     * SETTLED without settledAt and FAILED -> EXCEPTION_QUEUED) as bulk UPDATEs to
+     * the enqueued rows and to rows whose reconciliation state changed after the
+     * persisted watermark, then advances the watermark. The watermark stops a
+     * safety lag short of now so rows written by transactions still committing
+     * are picked up by the next pass. Cost follows the delta, not the table size.
+     */
+    public ReconciliationRunResult reconcilePendingTransactions() {
+        SettlementFlightRecorder.ReconciliationPassEvent passEvent = flightRecorder.beginReconciliationPass();
+        long startedAtNanos = System.nanoTime();
+        LocalDateTime passStartedAt = LocalDateTime.now();
+        LocalDateTime upTo = passStartedAt.minus(watermarkSafetyLag);
+        ReconciliationRunResult result = ReconciliationRunResult.EMPTY;
 
-        if (!missing.isEmpty()) {
-            log.info(
-                    "event=reconciliation_initialized missingStatusCount={}",
-                    missing.size()
-            );
+        List<Long> batch = new ArrayList<>(chunkSize);
+        Long enqueuedId;
+        while ((enqueuedId = enqueuedIds.poll()) != null) {
+            batch.add(enqueuedId);
+            if (batch.size() == chunkSize) {
+                result = result.plus(reconcileBatch(batch));
+                batch = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            result = result.plus(reconcileBatch(batch));
         }
-    }
 
-    @Transactional
-    public long reconcilePendingTransactions() {
-        List<Transaction> pending =
-                transactionRepository.findByReconciliationStatus(ReconciliationStatus.PENDING);
-
-        long updatedCount = 0;
-        for (Transaction transaction : pending) {
-            if (applyReconciliationRule(transaction)) {
-                transactionRepository.save(transaction);
-                updatedCount++;
+        LocalDateTime watermark = loadWatermark();
+        if (upTo.isAfter(watermark)) {
+            long afterId = 0L;
+            while (true) {
+                List<Long> changedIds = transactionRepository.findReconcilableIdsChangedBetween(
+                        watermark,
+                        upTo,
+                        afterId,
+                        PageRequest.of(0, chunkSize)
+                );
+                if (changedIds.isEmpty()) {
+                    break;
+                }
+                result = result.plus(reconcileBatch(changedIds));
+                if (changedIds.size() < chunkSize) {
+                    break;
+                }
+                afterId = changedIds.get(changedIds.size() - 1);
             }
+            watermark = advanceWatermark(upTo);
         }
 
-        return updatedCount;
+        long lagMillis = Math.max(Duration.between(watermark, LocalDateTime.now()).toMillis(), 0L);
+        result = result.withWatermark(watermark, lagMillis);
+        if (result.updatedCount() > 0) {
+            log.info(
+                    "event=reconciliation_completed matchedCount={} missingSettledAtCount={} failedQueuedCount={} watermark={} lagMillis={}",
+                    result.matchedCount(),
+                    result.missingSettledAtCount(),
+                    result.failedQueuedCount(),
+                    watermark,
+                    lagMillis
+            );
+        }
+        metrics.recordReconciliationPass(System.nanoTime() - startedAtNanos);
+        flightRecorder.endReconciliationPass(passEvent, result);
+        return result;
     }
 
     @Transactional(readOnly = true)
@@ -69,6 +175,48 @@ public class ReconciliationService {
         );
     }
 
+    /**
+     * Keyset page of the exception queue in (createdAt, id) order. The cursor is
+     * the opaque nextCursor of the previous page; a page never re-reads the rows
+     * before it, so deep pages cost the same as the first one.
+     */
+    @Transactional(readOnly = true)
+    public ExceptionQueuePage getExceptionPage(ExceptionQueueFilter filter, String cursor, int limit) {
+        if (limit <= 0 || limit > MAX_EXCEPTION_PAGE_SIZE) {
+            throw new IllegalStateException("limit must be between 1 and " + MAX_EXCEPTION_PAGE_SIZE + ".");
+        }
+
+        Specification<Transaction> filtered = exceptionQueueSpecification(filter);
+        Specification<Transaction> page = filtered;
+        if (cursor != null && !cursor.isBlank()) {
+            ExceptionCursor position = ExceptionCursor.decode(cursor);
+            page = filtered.and(TransactionSpecifications.after(position.createdAt(), position.id()));
+        }
+
+        List<Transaction> rows = transactionRepository.findBy(
+                page,
+                query -> query.sortBy(EXCEPTION_QUEUE_ORDER).limit(limit + 1).all()
+        );
+
+        String nextCursor = null;
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            Transaction last = rows.get(limit - 1);
+            nextCursor = new ExceptionCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        // Only the first page counts, and it stops at the cap instead of scanning the
+        // whole filtered queue; later pages reuse the client's copy.
+        Long total = null;
+        Boolean totalCapped = null;
+        if (cursor == null || cursor.isBlank()) {
+            int counted = transactionRepository.findIds(filtered, Sort.unsorted(), exceptionCountCap + 1).size();
+            totalCapped = counted > exceptionCountCap;
+            total = (long) Math.min(counted, exceptionCountCap);
+        }
+        return new ExceptionQueuePage(List.copyOf(rows), nextCursor, total, totalCapped);
+    }
+
     @Transactional
     public Transaction retryException(Long transactionId) {
         Transaction transaction = getTransactionOrThrow(transactionId);
@@ -77,7 +225,7 @@ public class ReconciliationService {
             throw new IllegalStateException("Transaction is not in exception queue");
         }
 
-        transaction.setReconciliationStatus(ReconciliationStatus.PENDING);
+        transactionStateMachine.changeReconciliationStatus(transaction, ReconciliationStatus.PENDING);
         transaction.setExceptionReason(null);
         transaction.setReconciliationUpdatedAt(LocalDateTime.now());
 
@@ -87,6 +235,7 @@ public class ReconciliationService {
                     TransactionStatus.CAPTURED,
                     "reconciliation-retry"
             );
+            transaction.setNextAttemptAt(LocalDateTime.now());
         }
 
         log.info(
@@ -106,7 +255,7 @@ public class ReconciliationService {
             throw new IllegalStateException("Transaction is not in exception queue");
         }
 
-        transaction.setReconciliationStatus(ReconciliationStatus.RESOLVED);
+        transactionStateMachine.changeReconciliationStatus(transaction, ReconciliationStatus.RESOLVED);
         if (note != null && !note.isBlank()) {
             transaction.setExceptionReason(note.trim());
         }
@@ -121,33 +270,245 @@ public class ReconciliationService {
         return transactionRepository.save(transaction);
     }
 
-    private boolean applyReconciliationRule(Transaction transaction) {
+    /**
+     * Bulk form of {@link #retryException(Long)}: FAILED rows go back to CAPTURED
+     * (through the state machine rules), other queued rows are reconciled again.
+     */
+    public BulkExceptionResult retryExceptions(List<Long> transactionIds) {
+        return applyBulk(BulkAction.RETRY, validateBulkIds(transactionIds), false, null);
+    }
+
+    public BulkExceptionResult retryExceptions(ExceptionQueueFilter filter) {
+        List<Long> matchingIds = findExceptionIds(filter);
+        boolean truncated = matchingIds.size() > bulkMaxIds;
+        return applyBulk(BulkAction.RETRY, truncated ? matchingIds.subList(0, bulkMaxIds) : matchingIds, truncated, null);
+    }
+
+    /**
+     * Bulk form of {@link #resolveException(Long, String)}.
+     */
+    public BulkExceptionResult resolveExceptions(List<Long> transactionIds, String note) {
+        return applyBulk(BulkAction.RESOLVE, validateBulkIds(transactionIds), false, note);
+    }
+
+    public BulkExceptionResult resolveExceptions(ExceptionQueueFilter filter, String note) {
+        List<Long> matchingIds = findExceptionIds(filter);
+        boolean truncated = matchingIds.size() > bulkMaxIds;
+        return applyBulk(BulkAction.RESOLVE, truncated ? matchingIds.subList(0, bulkMaxIds) : matchingIds, truncated, note);
+    }
+
+    private List<Long> validateBulkIds(List<Long> transactionIds) {
+        if (transactionIds == null || transactionIds.isEmpty()) {
+            throw new IllegalStateException("transactionIds must not be empty.");
+        }
+        List<Long> distinctIds = transactionIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (distinctIds.size() > bulkMaxIds) {
+            throw new IllegalStateException("At most " + bulkMaxIds + " transactionIds per request.");
+        }
+        return distinctIds;
+    }
+
+    /**
+     * Queued ids matching the filter, oldest first, one more than a request may
+     * touch so the caller can tell the selection was cut off.
+     */
+    private List<Long> findExceptionIds(ExceptionQueueFilter filter) {
+        return transactionRepository.findIds(
+                exceptionQueueSpecification(filter),
+                EXCEPTION_QUEUE_ORDER,
+                bulkMaxIds + 1
+        );
+    }
+
+    /**
+     * Validates and applies one bulk action chunk by chunk. Each chunk locks its
+     * rows, sorts them by outcome and then moves every eligible row with one
+     * set-based UPDATE per target state, all in one short transaction.
+     */
+    private BulkExceptionResult applyBulk(BulkAction action, List<Long> transactionIds, boolean truncated, String note) {
+        List<BulkExceptionResult.ItemOutcome> outcomes = new ArrayList<>(transactionIds.size());
+        String trimmedNote = note == null || note.isBlank() ? null : note.trim();
+
+        for (int from = 0; from < transactionIds.size(); from += chunkSize) {
+            List<Long> chunk = transactionIds.subList(from, Math.min(from + chunkSize, transactionIds.size()));
+            List<BulkExceptionResult.ItemOutcome> chunkOutcomes =
+                    transactionTemplate.execute(status -> applyBulkChunk(action, chunk, trimmedNote));
+            if (chunkOutcomes != null) {
+                outcomes.addAll(chunkOutcomes);
+            }
+        }
+
+        BulkExceptionResult result = new BulkExceptionResult(List.copyOf(outcomes), truncated);
+        log.info(
+                "event=reconciliation_bulk_{} requestedCount={} appliedCount={} truncated={}",
+                action.name().toLowerCase(Locale.ROOT),
+                transactionIds.size(),
+                result.count(action.appliedOutcome),
+                truncated
+        );
+        return result;
+    }
+
+    private List<BulkExceptionResult.ItemOutcome> applyBulkChunk(BulkAction action, List<Long> chunk, String note) {
+        Map<Long, ExceptionStateView> stateById = new HashMap<>();
+        for (ExceptionStateView state : transactionRepository.lockExceptionStates(chunk)) {
+            stateById.put(state.id(), state);
+        }
+
+        List<BulkExceptionResult.ItemOutcome> outcomes = new ArrayList<>(chunk.size());
+        List<Long> backToCaptured = new ArrayList<>();
+        List<Long> statusUnchanged = new ArrayList<>();
+        for (Long transactionId : chunk) {
+            ExceptionStateView state = stateById.get(transactionId);
+            BulkExceptionOutcome outcome;
+            if (state == null) {
+                outcome = BulkExceptionOutcome.NOT_FOUND;
+            } else if (state.reconciliationStatus() != ReconciliationStatus.EXCEPTION_QUEUED) {
+                outcome = BulkExceptionOutcome.NOT_IN_EXCEPTION_QUEUE;
+            } else {
+                outcome = action.appliedOutcome;
+                if (action == BulkAction.RETRY
+                        && state.status() == TransactionStatus.FAILED
+                        && transactionStateMachine.isTransitionAllowed(state.status(), TransactionStatus.CAPTURED)) {
+                    backToCaptured.add(transactionId);
+                } else {
+                    statusUnchanged.add(transactionId);
+                }
+            }
+            outcomes.add(new BulkExceptionResult.ItemOutcome(transactionId, outcome));
+        }
+
         LocalDateTime now = LocalDateTime.now();
+        if (!backToCaptured.isEmpty()) {
+            int retried = transactionRepository.retryFailedExceptions(backToCaptured, now);
+            transactionStateMachine.recordBulkTransition(TransactionStatus.FAILED, TransactionStatus.CAPTURED, retried);
+            transactionStateMachine.recordBulkReconciliationChange(
+                    ReconciliationStatus.EXCEPTION_QUEUED, ReconciliationStatus.PENDING, retried
+            );
+        }
+        if (!statusUnchanged.isEmpty()) {
+            if (action == BulkAction.RETRY) {
+                transactionStateMachine.recordBulkReconciliationChange(
+                        ReconciliationStatus.EXCEPTION_QUEUED,
+                        ReconciliationStatus.PENDING,
+                        transactionRepository.requeueExceptions(statusUnchanged, now)
+                );
+            } else {
+                int resolved = note == null
+                        ? transactionRepository.resolveExceptions(statusUnchanged, now)
+                        : transactionRepository.resolveExceptionsWithNote(statusUnchanged, note, now);
+                transactionStateMachine.recordBulkReconciliationChange(
+                        ReconciliationStatus.EXCEPTION_QUEUED, ReconciliationStatus.RESOLVED, resolved
+                );
+            }
+        }
+        return outcomes;
+    }
+
+    private enum BulkAction {
+        RETRY(BulkExceptionOutcome.RETRIED),
+        RESOLVE(BulkExceptionOutcome.RESOLVED);
+
+        private final BulkExceptionOutcome appliedOutcome;
 
-        if (transaction.getStatus() == TransactionStatus.SETTLED
-                && transaction.getSettledAt() != null) {
-            transaction.setReconciliationStatus(ReconciliationStatus.MATCHED);
-            transaction.setExceptionReason(null);
-            transaction.setReconciliationUpdatedAt(now);
-            return true;
+        BulkAction(BulkExceptionOutcome appliedOutcome) {
+            this.appliedOutcome = appliedOutcome;
         }
+    }
+
+    private ReconciliationRunResult reconcileBatch(List<Long> ids) {
+        ReconciliationRunResult batchResult = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            ReconciliationRunResult applied = new ReconciliationRunResult(
+                    transactionRepository.markSettledPendingMatched(ids, now),
+                    transactionRepository.queueSettledPendingWithoutSettledAt(ids, MISSING_SETTLED_AT_REASON, now),
+                    transactionRepository.queueFailedPending(ids, FAILED_REASON, now)
+            );
+            transactionStateMachine.recordBulkReconciliationChange(
+                    ReconciliationStatus.PENDING, ReconciliationStatus.MATCHED, applied.matchedCount()
+            );
+            transactionStateMachine.recordBulkReconciliationChange(
+                    ReconciliationStatus.PENDING,
+                    ReconciliationStatus.EXCEPTION_QUEUED,
+                    applied.exceptionQueuedCount()
+            );
+            return applied;
+        });
+        return batchResult == null ? ReconciliationRunResult.EMPTY : batchResult;
+    }
+
+    private LocalDateTime loadWatermark() {
+        return checkpointRepository.findById(CHECKPOINT_NAME)
+                .map(ReconciliationCheckpoint::getWatermark)
+                .orElse(INITIAL_WATERMARK);
+    }
 
-        if (transaction.getStatus() == TransactionStatus.SETTLED
-                && transaction.getSettledAt() == null) {
-            transaction.setReconciliationStatus(ReconciliationStatus.EXCEPTION_QUEUED);
-            transaction.setExceptionReason("SETTLED transaction missing settledAt timestamp");
-            transaction.setReconciliationUpdatedAt(now);
-            return true;
+    /**
+     * Moves the watermark forward only; a concurrent pass on another node that
+     * already went further keeps its value.
+     */
+    private LocalDateTime advanceWatermark(LocalDateTime upTo) {
+        LocalDateTime advanced = transactionTemplate.execute(status -> {
+            ReconciliationCheckpoint checkpoint = checkpointRepository.findById(CHECKPOINT_NAME)
+                    .orElseGet(() -> new ReconciliationCheckpoint(CHECKPOINT_NAME, INITIAL_WATERMARK));
+            if (upTo.isAfter(checkpoint.getWatermark())) {
+                checkpoint.setWatermark(upTo);
+                checkpoint.setUpdatedAt(LocalDateTime.now());
+                checkpointRepository.save(checkpoint);
+            }
+            return checkpoint.getWatermark();
+        });
+        return advanced == null ? upTo : advanced;
+    }
+
+    private static Specification<Transaction> exceptionQueueSpecification(ExceptionQueueFilter filter) {
+        LocalDateTime now = LocalDateTime.now();
+        Specification<Transaction> specification =
+                TransactionSpecifications.hasReconciliationStatus(ReconciliationStatus.EXCEPTION_QUEUED);
+        if (filter.reasonPrefix() != null && !filter.reasonPrefix().isBlank()) {
+            specification = specification.and(TransactionSpecifications.reasonStartsWith(filter.reasonPrefix()));
+        }
+        if (filter.merchantId() != null) {
+            specification = specification.and(TransactionSpecifications.hasMerchant(filter.merchantId()));
         }
+        if (filter.minAmount() != null) {
+            specification = specification.and(TransactionSpecifications.amountAtLeast(filter.minAmount()));
+        }
+        if (filter.maxAmount() != null) {
+            specification = specification.and(TransactionSpecifications.amountAtMost(filter.maxAmount()));
+        }
+        if (filter.minAgeMinutes() != null) {
+            specification = specification.and(
+                    TransactionSpecifications.createdAtOrBefore(now.minusMinutes(filter.minAgeMinutes()))
+            );
+        }
+        if (filter.maxAgeMinutes() != null) {
+            specification = specification.and(
+                    TransactionSpecifications.createdAtOrAfter(now.minusMinutes(filter.maxAgeMinutes()))
+            );
+        }
+        return specification;
+    }
 
-        if (transaction.getStatus() == TransactionStatus.FAILED) {
-            transaction.setReconciliationStatus(ReconciliationStatus.EXCEPTION_QUEUED);
-            transaction.setExceptionReason("Settlement failed after max retries");
-            transaction.setReconciliationUpdatedAt(now);
-            return true;
+    private record ExceptionCursor(LocalDateTime createdAt, long id) {
+
+        private String encode() {
+            String raw = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
         }
 
-        return false;
+        private static ExceptionCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.lastIndexOf('|');
+                return new ExceptionCursor(
+                        LocalDateTime.parse(raw.substring(0, separator)),
+                        Long.parseLong(raw.substring(separator + 1))
+                );
+            } catch (RuntimeException e) {
+                throw new IllegalStateException("Invalid exception queue cursor.", e);
+            }
+        }
     }
 
     private Transaction getTransactionOrThrow(Long transactionId) {
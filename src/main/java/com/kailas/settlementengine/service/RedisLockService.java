@@ -1,55 +1,207 @@
 package com.kailas.settlementengine.service;
 
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.stereotype.Service;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 
-import java.time.Duration;
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
-@Service
-public class RedisLockService {
+/**
+ * Partition locks in Redis. Each acquisition takes the next fencing token from
+ * an INCR counter next to the lock key and stores "nodeId#token" as the lock
+ * value, so every run holds a distinct lock id. A watchdog renews the TTL of
+ * every held lock while its run is alive; a run that outlives the TTL therefore
+ * keeps its lock, and a dead node's lock still expires one TTL after it stopped.
+ * Acquire, release, extend, the status read and the fencing floor are Lua scripts
+ * (src/main/resources/redis), so each is one atomic round trip; the template
+ * sends them as EVALSHA and falls back to EVAL once per node if Redis has not
+ * cached the script yet.
+ */
+public class RedisLockService implements SettlementLockProvider {
 
     private static final Logger log = LoggerFactory.getLogger(RedisLockService.class);
+
+    static final RedisScript<Long> ACQUIRE_SCRIPT = script("redis/lock-acquire.lua", Long.class);
+    static final RedisScript<Long> RELEASE_SCRIPT = script("redis/lock-release.lua", Long.class);
+    static final RedisScript<Long> EXTEND_SCRIPT = script("redis/lock-extend.lua", Long.class);
+    static final RedisScript<Long> FENCE_FLOOR_SCRIPT = script("redis/lock-fence-floor.lua", Long.class);
+    @SuppressWarnings("rawtypes")
+    static final RedisScript<List> STATUS_SCRIPT = script("redis/lock-status.lua", List.class);
+
     private final StringRedisTemplate redisTemplate;
 
     private volatile String currentLockId = null;
-    private final String INSTANCE_ID = UUID.randomUUID().toString();
+    private final String instanceId;
+    private final SettlementFlightRecorder flightRecorder;
+    private final String lockTtlMillis;
+    private final long renewIntervalMillis;
+    private final ScheduledExecutorService watchdog;
+    private final Map<SettlementLockLease, ScheduledFuture<?>> renewals = new ConcurrentHashMap<>();
 
-    public RedisLockService(StringRedisTemplate redisTemplate) {
+    public RedisLockService(StringRedisTemplate redisTemplate,
+                            SettlementNodeIdentity nodeIdentity,
+                            SettlementFlightRecorder flightRecorder,
+                            long lockTtlSeconds) {
+        if (lockTtlSeconds <= 0) {
+            throw new IllegalStateException("settlement.lock.ttl-seconds must be greater than zero.");
+        }
         this.redisTemplate = redisTemplate;
+        this.instanceId = nodeIdentity.getNodeId();
+        this.flightRecorder = flightRecorder;
+        this.lockTtlMillis = String.valueOf(TimeUnit.SECONDS.toMillis(lockTtlSeconds));
+        // Three renewals per TTL: one missed renewal (GC pause, Redis blip) does
+        // not lose the lock.
+        this.renewIntervalMillis = Math.max(TimeUnit.SECONDS.toMillis(lockTtlSeconds) / 3, 1L);
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "settlement-lock-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
-    public String acquireLock(String key, long timeoutSeconds) {
-        Boolean success = redisTemplate.opsForValue()
-                .setIfAbsent(key, INSTANCE_ID, Duration.ofSeconds(timeoutSeconds));
+    @Override
+    public SettlementLockBackend backend() {
+        return SettlementLockBackend.REDIS;
+    }
+
+    /**
+     * Takes the lock and starts renewing it, or returns null if another run holds it.
+     */
+    @Override
+    public SettlementLockLease acquireLock(String key) {
+        SettlementFlightRecorder.LockEvent lockEvent = flightRecorder.beginLockAcquire(key);
+        Long token = redisTemplate.execute(ACQUIRE_SCRIPT, List.of(key, fenceKey(key)), instanceId, lockTtlMillis);
 
-        if (Boolean.TRUE.equals(success)) {
-            currentLockId = INSTANCE_ID;
-            log.info("event=lock_acquired instanceId={}", INSTANCE_ID);
-            return INSTANCE_ID;
+        if (token != null && token > 0) {
+            String lockId = instanceId + "#" + token;
+            SettlementLockLease lease = new SettlementLockLease(SettlementLockBackend.REDIS, key, lockId, token);
+            startRenewing(lease);
+            currentLockId = lockId;
+            flightRecorder.endLock(lockEvent, lockId, true);
+            log.info("event=lock_acquired key={} lockId={} fencingToken={}", key, lockId, token);
+            return lease;
         }
 
+        flightRecorder.endLock(lockEvent, null, false);
         return null;
     }
 
-    public void releaseLock(String key, String lockId) {
-        String value = redisTemplate.opsForValue().get(key);
+    @Override
+    public void releaseLock(SettlementLockLease lease) {
+        stopRenewing(lease);
+        SettlementFlightRecorder.LockEvent lockEvent = flightRecorder.beginLockRelease(lease.key());
+        Long released = redisTemplate.execute(RELEASE_SCRIPT, List.of(lease.key()), lease.lockId());
 
-        if (lockId != null && lockId.equals(value)) {
-            redisTemplate.delete(key);
+        if (released != null && released > 0) {
             currentLockId = null;
-            log.info("event=lock_released instanceId={}", lockId);
+            flightRecorder.endLock(lockEvent, lease.lockId(), true);
+            log.info("event=lock_released key={} lockId={}", lease.key(), lease.lockId());
+            return;
+        }
+        flightRecorder.endLock(lockEvent, lease.lockId(), false);
+        log.warn("event=lock_release_skipped key={} lockId={} reason=not_holder", lease.key(), lease.lockId());
+    }
+
+    /**
+     * Extends the TTL if this lease still holds the key. Returns false (and
+     * marks the lease lost) once the key expired or another run took it.
+     */
+    boolean renew(SettlementLockLease lease) {
+        Long extended = redisTemplate.execute(EXTEND_SCRIPT, List.of(lease.key()), lease.lockId(), lockTtlMillis);
+        if (extended != null && extended > 0) {
+            return true;
+        }
+        lease.markLost();
+        log.warn("event=lock_lost key={} lockId={}", lease.key(), lease.lockId());
+        return false;
+    }
+
+    /**
+     * A flush or failover can reset the INCR counter below the database fence,
+     * after which every token would be refused as stale; raise it back above.
+     */
+    @Override
+    public void raiseFencingFloor(String key, long floor) {
+        Long raised = redisTemplate.execute(FENCE_FLOOR_SCRIPT, List.of(fenceKey(key)), String.valueOf(floor));
+        if (raised != null && raised > 0) {
+            log.warn("event=lock_fencing_counter_raised key={} floor={}", key, floor);
+        }
+    }
+
+    /**
+     * Holder and remaining TTL of every key, one script call per key: the
+     * partition locks hash to different slots, and a cluster refuses a script
+     * whose keys span more than one.
+     */
+    @Override
+    public List<SettlementLockStatus> getLockStatuses(List<String> keys) {
+        List<SettlementLockStatus> statuses = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            List<?> status = redisTemplate.execute(STATUS_SCRIPT, List.of(key));
+            String holder = status == null ? "" : String.valueOf(status.get(0));
+            long ttlMillis = status == null ? -2L : ((Number) status.get(1)).longValue();
+            statuses.add(holder.isEmpty() ? SettlementLockStatus.FREE : new SettlementLockStatus(holder, ttlMillis));
+        }
+        return statuses;
+    }
+
+    /**
+     * The fencing counter shares the lock key's hash slot ({key} hash tag), so
+     * the acquire script touches a single slot on Redis Cluster too.
+     */
+    static String fenceKey(String key) {
+        return "{" + key + "}:fence";
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+    }
+
+    private void startRenewing(SettlementLockLease lease) {
+        ScheduledFuture<?> renewal = watchdog.scheduleAtFixedRate(
+                () -> renewQuietly(lease),
+                renewIntervalMillis,
+                renewIntervalMillis,
+                TimeUnit.MILLISECONDS
+        );
+        renewals.put(lease, renewal);
+    }
+
+    private void stopRenewing(SettlementLockLease lease) {
+        ScheduledFuture<?> renewal = renewals.remove(lease);
+        if (renewal != null) {
+            renewal.cancel(false);
         }
     }
 
-    // ✅ Expose lock status
-    public boolean isLockHeld(String key) {
-        return redisTemplate.hasKey(key);
+    private void renewQuietly(SettlementLockLease lease) {
+        try {
+            if (!renew(lease)) {
+                stopRenewing(lease);
+            }
+        } catch (RuntimeException ex) {
+            // Keep trying: the key survives until its TTL runs out, which is two
+            // more renewal attempts away.
+            log.warn("event=lock_renew_failed key={} lockId={} message={}", lease.key(), lease.lockId(), ex.getMessage());
+        }
     }
 
-    public String getCurrentLockHolder(String key) {
-        return redisTemplate.opsForValue().get(key);
+    private static <T> RedisScript<T> script(String location, Class<T> resultType) {
+        DefaultRedisScript<T> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource(location));
+        script.setResultType(resultType);
+        return script;
     }
 }
@@ -0,0 +1,74 @@
+package com.kailas.settlementengine.service;
+
+import com.kailas.settlementengine.entity.Merchant;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Exponential backoff with jitter for failed settlement attempts. The delay before
+ * attempt n+1 is base * multiplier^(n-1), capped at max, then spread by +/- jitter
+ * so transactions that failed together do not all come due on the same tick.
+ * A merchant can override the base and max delay.
+ */
+@Component
+public class RetryBackoffPolicy {
+
+    private final long baseSeconds;
+    private final long maxSeconds;
+    private final double multiplier;
+    private final double jitter;
+    private final DoubleSupplier random;
+
+    @Autowired
+    public RetryBackoffPolicy(@Value("${settlement.retry.backoff.base-seconds:30}") long baseSeconds,
+                              @Value("${settlement.retry.backoff.max-seconds:3600}") long maxSeconds,
+                              @Value("${settlement.retry.backoff.multiplier:2.0}") double multiplier,
+                              @Value("${settlement.retry.backoff.jitter:0.2}") double jitter) {
+        this(baseSeconds, maxSeconds, multiplier, jitter, () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    RetryBackoffPolicy(long baseSeconds, long maxSeconds, double multiplier, double jitter, DoubleSupplier random) {
+        if (baseSeconds < 0 || maxSeconds < baseSeconds) {
+            throw new IllegalStateException(
+                    "settlement.retry.backoff requires 0 <= base-seconds <= max-seconds."
+            );
+        }
+        if (multiplier < 1.0) {
+            throw new IllegalStateException("settlement.retry.backoff.multiplier must be at least 1.0.");
+        }
+        if (jitter < 0.0 || jitter > 1.0) {
+            throw new IllegalStateException("settlement.retry.backoff.jitter must be between 0.0 and 1.0.");
+        }
+        this.baseSeconds = baseSeconds;
+        this.maxSeconds = maxSeconds;
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+        this.random = random;
+    }
+
+    /**
+     * Delay before the next attempt after {@code failedAttempts} failures.
+     */
+    public Duration delayAfter(int failedAttempts, Merchant merchant) {
+        long base = baseSeconds;
+        long max = maxSeconds;
+        if (merchant != null) {
+            if (merchant.getRetryBackoffBaseSeconds() != null) {
+                base = merchant.getRetryBackoffBaseSeconds();
+            }
+            if (merchant.getRetryBackoffMaxSeconds() != null) {
+                max = merchant.getRetryBackoffMaxSeconds();
+            }
+        }
+
+        double exponential = base * Math.pow(multiplier, Math.max(failedAttempts - 1, 0));
+        double capped = Math.min(exponential, max);
+        double spread = capped * (1.0 + jitter * (2.0 * random.getAsDouble() - 1.0));
+        return Duration.ofMillis(Math.round(Math.min(spread, max) * 1000.0));
+    }
+}
@@ -0,0 +1,17 @@
+package com.kailas.settlementengine.service;
+
+/**
+ * Outcome picked for a claimed transaction by the decide stage, before anything
+ * is written for it. {@code outcomeUnknown} means the gateway never answered
+ * (timeout or error), so the bank may or may not have settled it.
+ */
+public record SettlementDecision(Long transactionId, boolean success, boolean outcomeUnknown) {
+
+    public SettlementDecision(Long transactionId, boolean success) {
+        this(transactionId, success, false);
+    }
+
+    public static SettlementDecision unknown(Long transactionId) {
+        return new SettlementDecision(transactionId, false, true);
+    }
+}
@@ -0,0 +1,178 @@
+package com.kailas.settlementengine.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Continuous settlement: intake paths signal new CAPTURED work and a single
+ * dispatcher thread starts a locked settlement run right away instead of waiting
+ * for the next Quartz tick. Signals coalesce into at most one pending run, so a
+ * burst of captures costs one extra run, not one run per transaction. The Quartz
+ * job stays as a safety sweep for anything a signal missed.
+ *
+ * When another run holds the lock the dispatcher retries with exponential
+ * backoff, up to lock-retry-max-attempts, then leaves the rows to the next
+ * signal or sweep. A node with no assigned partitions goes idle at once.
+ */
+@Service
+public class SettlementDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(SettlementDispatcher.class);
+    static final String TRIGGER_SOURCE = "CONTINUOUS";
+
+    private final SettlementExecutionService executionService;
+    private final SettlementMonitoringService monitoringService;
+    private final boolean enabled;
+    private final long lockRetryMillis;
+    private final int lockRetryMaxAttempts;
+    private final BlockingQueue<Boolean> pendingRun = new ArrayBlockingQueue<>(1);
+
+    private volatile boolean running;
+    // Only touched by the dispatcher thread.
+    private int lockRetryAttempt;
+    private Thread dispatcherThread;
+
+    public SettlementDispatcher(SettlementExecutionService executionService,
+                                SettlementMonitoringService monitoringService,
+                                @Value("${settlement.continuous.enabled:true}") boolean enabled,
+                                @Value("${settlement.continuous.lock-retry-millis:100}") long lockRetryMillis,
+                                @Value("${settlement.continuous.lock-retry-max-attempts:5}") int lockRetryMaxAttempts) {
+        if (lockRetryMillis < 0) {
+            throw new IllegalStateException("settlement.continuous.lock-retry-millis must not be negative.");
+        }
+        if (lockRetryMaxAttempts < 0) {
+            throw new IllegalStateException("settlement.continuous.lock-retry-max-attempts must not be negative.");
+        }
+        this.executionService = executionService;
+        this.monitoringService = monitoringService;
+        this.enabled = enabled;
+        this.lockRetryMillis = lockRetryMillis;
+        this.lockRetryMaxAttempts = lockRetryMaxAttempts;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            log.info("event=settlement_dispatcher_disabled");
+            return;
+        }
+
+        running = true;
+        dispatcherThread = new Thread(this::dispatchLoop, "settlement-dispatcher");
+        dispatcherThread.setDaemon(true);
+        dispatcherThread.start();
+        log.info(
+                "event=settlement_dispatcher_started lockRetryMillis={} lockRetryMaxAttempts={}",
+                lockRetryMillis,
+                lockRetryMaxAttempts
+        );
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (dispatcherThread != null) {
+            dispatcherThread.interrupt();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Called after new settleable work is committed. Never blocks the caller.
+     */
+    public void signalWork() {
+        if (!enabled) {
+            return;
+        }
+        boolean queued = pendingRun.offer(Boolean.TRUE);
+        monitoringService.recordDispatchSignal(!queued);
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                pendingRun.take();
+                dispatch();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Runs the pending run, if any, on the calling thread. For tests.
+     */
+    boolean dispatchPending() throws InterruptedException {
+        if (pendingRun.poll() == null) {
+            return false;
+        }
+        dispatch();
+        return true;
+    }
+
+    /**
+     * Delay before lock retry {@code attempt} (1-based): lockRetryMillis doubled
+     * per attempt.
+     */
+    long lockRetryDelayMillis(int attempt) {
+        return lockRetryMillis << Math.min(attempt - 1, 20);
+    }
+
+    private void dispatch() throws InterruptedException {
+        try {
+            SettlementExecutionService.SettlementRunResult result =
+                    executionService.runWithLock(TRIGGER_SOURCE);
+
+            if (result.outcome() == SettlementExecutionService.SettlementRunOutcome.NOTHING_ASSIGNED) {
+                // Another node owns every partition; its own dispatcher or the
+                // sweep settles the rows.
+                lockRetryAttempt = 0;
+                log.debug("event=continuous_settlement_idle reason=no_assigned_partitions");
+                return;
+            }
+
+            if (!result.lockAcquired()) {
+                // The run holding the lock may already be past the new rows;
+                // try again shortly rather than waiting for the sweep.
+                if (lockRetryAttempt >= lockRetryMaxAttempts) {
+                    log.info(
+                            "event=continuous_settlement_retry_exhausted attempts={} reason=lock_unavailable",
+                            lockRetryAttempt
+                    );
+                    lockRetryAttempt = 0;
+                    return;
+                }
+                lockRetryAttempt++;
+                Thread.sleep(lockRetryDelayMillis(lockRetryAttempt));
+                pendingRun.offer(Boolean.TRUE);
+                return;
+            }
+
+            lockRetryAttempt = 0;
+            monitoringService.recordDispatchRun();
+            log.info(
+                    "event=continuous_settlement_processed processedCount={}",
+                    result.processedCount()
+            );
+        } catch (RuntimeException e) {
+            lockRetryAttempt = 0;
+            log.error(
+                    "event=continuous_settlement_failed errorType={} message={}",
+                    e.getClass().getSimpleName(),
+                    e.getMessage(),
+                    e
+            );
+        }
+    }
+}
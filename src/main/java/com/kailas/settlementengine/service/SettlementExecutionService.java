@@ -4,23 +4,33 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.Map;
+
 @Service
 public class SettlementExecutionService {
 
     private static final Logger log = LoggerFactory.getLogger(SettlementExecutionService.class);
-    private static final String LOCK_KEY = "settlement-lock";
-    private static final long LOCK_TIMEOUT_SECONDS = 25;
 
     private final SettlementService settlementService;
-    private final RedisLockService redisLockService;
+    private final SettlementLockProvider lockProvider;
     private final SettlementMonitoringService monitoringService;
+    private final SettlementPartitionService partitionService;
+    private final SettlementMetrics metrics;
+    private final SettlementFlightRecorder flightRecorder;
 
     public SettlementExecutionService(SettlementService settlementService,
-                                      RedisLockService redisLockService,
-                                      SettlementMonitoringService monitoringService) {
+                                      SettlementLockProvider lockProvider,
+                                      SettlementMonitoringService monitoringService,
+                                      SettlementPartitionService partitionService,
+                                      SettlementMetrics metrics,
+                                      SettlementFlightRecorder flightRecorder) {
         this.settlementService = settlementService;
-        this.redisLockService = redisLockService;
+        this.lockProvider = lockProvider;
         this.monitoringService = monitoringService;
+        this.partitionService = partitionService;
+        this.metrics = metrics;
+        this.flightRecorder = flightRecorder;
     }
 
     public SettlementRunResult runWithLock(String triggerSource) {
@@ -29,31 +39,51 @@ public class SettlementExecutionService {
 
     public SettlementRunResult runWithLock(String triggerSource, long minLockHoldMillis) {
 
-        String lockId = redisLockService.acquireLock(LOCK_KEY, LOCK_TIMEOUT_SECONDS);
-
-        if (lockId == null) {
-            monitoringService.recordLockSkipped(triggerSource);
-            log.info("event=lock_skipped triggerSource={} reason=already_held", triggerSource);
-            return new SettlementRunResult(false, 0L);
+        List<SettlementPartition> partitions = partitionService.assignedPartitions();
+        if (partitions.isEmpty()) {
+            // More live nodes than partitions: this node idles until the
+            // assignment changes. No lock was contended, so nothing is skipped.
+            log.debug("event=settlement_run_skipped triggerSource={} reason=no_assigned_partitions", triggerSource);
+            return SettlementRunResult.nothingAssigned();
         }
-
         long startedAt = System.currentTimeMillis();
-        monitoringService.recordLockAcquired(lockId, triggerSource);
+        SettlementRunStats runStats = SettlementRunStats.EMPTY;
+        String runLockId = null;
+        long runId = SettlementMonitoringService.NO_RUN;
+        SettlementFlightRecorder.RunEvent runEvent = flightRecorder.beginRun(triggerSource);
 
         try {
-            long processedCount = settlementService.processSettlements(triggerSource);
-            long durationMillis = System.currentTimeMillis() - startedAt;
-            monitoringService.recordLastRun(processedCount, triggerSource, durationMillis);
-            log.info(
-                    "event=settlement_run_completed triggerSource={} processedCount={} durationMillis={}",
-                    triggerSource,
-                    processedCount,
-                    durationMillis
-            );
-            return new SettlementRunResult(true, processedCount);
+            for (SettlementPartition partition : partitions) {
+                long acquireStartedAt = System.nanoTime();
+                SettlementLockLease lease = lockProvider.acquireLock(partition.lockKey());
+                long lockAcquiredAt = System.nanoTime();
+                metrics.recordLockAcquire(lockAcquiredAt - acquireStartedAt, lease != null);
+                if (lease == null) {
+                    log.info(
+                            "event=partition_lock_skipped triggerSource={} partition={} reason=already_held",
+                            triggerSource,
+                            partition.index()
+                    );
+                    continue;
+                }
+
+                if (runLockId == null) {
+                    runLockId = lease.lockId();
+                    runId = monitoringService.recordLockAcquired(runLockId, triggerSource);
+                }
+
+                try {
+                    runStats = runStats.plus(settlementService.runSettlement(triggerSource, partition, lease, runId));
+                } finally {
+                    holdLockForVisibility(startedAt, minLockHoldMillis);
+                    lockProvider.releaseLock(lease);
+                    metrics.recordLockHold(System.nanoTime() - lockAcquiredAt);
+                }
+            }
         } catch (RuntimeException ex) {
             long durationMillis = System.currentTimeMillis() - startedAt;
-            monitoringService.recordRunFailed(triggerSource, durationMillis, ex);
+            monitoringService.recordRunFailed(runId, triggerSource, durationMillis, ex);
+            flightRecorder.endRun(runEvent, runLockId, runStats, ex);
             log.error(
                     "event=settlement_run_failed triggerSource={} durationMillis={} errorType={} message={}",
                     triggerSource,
@@ -63,10 +93,39 @@ public class SettlementExecutionService {
             );
             throw ex;
         } finally {
-            holdLockForVisibility(startedAt, minLockHoldMillis);
-            redisLockService.releaseLock(LOCK_KEY, lockId);
-            monitoringService.recordLockReleased(lockId, triggerSource);
+            if (runLockId != null) {
+                monitoringService.recordLockReleased(runLockId, triggerSource);
+            }
+        }
+
+        flightRecorder.endRun(runEvent, runLockId, runStats, null);
+        if (runLockId == null) {
+            monitoringService.recordLockSkipped(triggerSource);
+            log.info(
+                    "event=lock_skipped triggerSource={} reason=already_held assignedPartitions={}",
+                    triggerSource,
+                    partitions.size()
+            );
+            return SettlementRunResult.lockHeld();
         }
+
+        long processedCount = runStats.processedCount();
+        long durationMillis = System.currentTimeMillis() - startedAt;
+        monitoringService.recordClaims(runStats);
+        monitoringService.recordLastRun(runId, processedCount, triggerSource, durationMillis);
+        log.info(
+                "event=settlement_run_completed triggerSource={} processedCount={} durationMillis={}",
+                triggerSource,
+                processedCount,
+                durationMillis
+        );
+        return new SettlementRunResult(
+                SettlementRunOutcome.COMPLETED,
+                processedCount,
+                runStats.claimedCount(),
+                runStats.claimsPerSecond(),
+                runStats.processedByWorker()
+        );
     }
 
     private void holdLockForVisibility(long startedAt, long minLockHoldMillis) {
@@ -89,5 +148,34 @@ public class SettlementExecutionService {
         }
     }
 
-    public record SettlementRunResult(boolean lockAcquired, long processedCount) {}
+    public enum SettlementRunOutcome {
+        COMPLETED,
+        /** Every assigned partition was locked by another run. */
+        LOCK_HELD,
+        /** This node owns no partition right now (more live nodes than partitions). */
+        NOTHING_ASSIGNED
+    }
+
+    public record SettlementRunResult(SettlementRunOutcome outcome,
+                                      long processedCount,
+                                      long claimedCount,
+                                      double claimsPerSecond,
+                                      Map<String, Long> processedByWorker) {
+
+        public static SettlementRunResult completed(long processedCount) {
+            return new SettlementRunResult(SettlementRunOutcome.COMPLETED, processedCount, 0L, 0.0, Map.of());
+        }
+
+        public static SettlementRunResult lockHeld() {
+            return new SettlementRunResult(SettlementRunOutcome.LOCK_HELD, 0L, 0L, 0.0, Map.of());
+        }
+
+        public static SettlementRunResult nothingAssigned() {
+            return new SettlementRunResult(SettlementRunOutcome.NOTHING_ASSIGNED, 0L, 0L, 0.0, Map.of());
+        }
+
+        public boolean lockAcquired() {
+            return outcome == SettlementRunOutcome.COMPLETED;
+        }
+    }
 }
@@ -0,0 +1,88 @@
+package com.kailas.settlementengine.service;
+
+import com.kailas.settlementengine.entity.SettlementFence;
+import com.kailas.settlementengine.repository.SettlementFenceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * DB side of the lock fencing tokens. Claim transactions call check() first; a
+ * run whose lock expired and was taken over carries an older token than the new
+ * holder and is refused before it can flip rows to PROCESSING. Rows are keyed
+ * per backend, since Redis counters and the Postgres sequence are not comparable.
+ */
+@Service
+public class SettlementFenceService {
+
+    private static final Logger log = LoggerFactory.getLogger(SettlementFenceService.class);
+
+    private final SettlementFenceRepository fenceRepository;
+    private final SettlementLockProvider lockProvider;
+    private final TransactionTemplate createTemplate;
+
+    public SettlementFenceService(SettlementFenceRepository fenceRepository,
+                                  SettlementLockProvider lockProvider,
+                                  PlatformTransactionManager transactionManager) {
+        this.fenceRepository = fenceRepository;
+        this.lockProvider = lockProvider;
+        this.createTemplate = new TransactionTemplate(transactionManager);
+        this.createTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Must run inside the claim transaction, so the fence row stays locked
+     * until the claim commits.
+     */
+    public void check(SettlementLockLease lease) {
+        String fenceKey = lease.fenceKey();
+        if (advance(fenceKey, lease)) {
+            return;
+        }
+        Optional<SettlementFence> fence = fenceRepository.findById(fenceKey);
+        if (fence.isEmpty()) {
+            create(fenceKey);
+            if (advance(fenceKey, lease)) {
+                return;
+            }
+            fence = fenceRepository.findById(fenceKey);
+        }
+
+        long fenceToken = fence.map(SettlementFence::getFencingToken).orElse(SettlementLockLease.UNFENCED);
+        if (lease.backend() == lockProvider.backend()) {
+            // After a takeover the backend already issued a newer token, so this
+            // only changes anything when its counter was reset below the fence
+            // (a Redis flush or failover); the next acquisition then passes.
+            lockProvider.raiseFencingFloor(lease.key(), fenceToken);
+        }
+        throw new IllegalStateException(
+                "Stale fencing token " + lease.fencingToken() + " for " + lease.key()
+                        + " (fence is at " + fenceToken + "); the lock was taken over by a newer run."
+        );
+    }
+
+    private boolean advance(String fenceKey, SettlementLockLease lease) {
+        return fenceRepository.advance(fenceKey, lease.fencingToken(), LocalDateTime.now()) > 0;
+    }
+
+    /**
+     * First use of a key: insert the row at token 0 in its own transaction, then
+     * let advance() order the racers. When two nodes create it at once the loser
+     * gets a duplicate key, which must not abort its claim transaction (Postgres
+     * would refuse every later statement in it).
+     */
+    private void create(String fenceKey) {
+        try {
+            createTemplate.executeWithoutResult(status -> fenceRepository.create(fenceKey, LocalDateTime.now()));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("event=settlement_fence_create_raced fenceKey={}", fenceKey);
+        }
+    }
+}
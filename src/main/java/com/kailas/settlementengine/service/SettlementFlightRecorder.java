@@ -0,0 +1,275 @@
+package com.kailas.settlementengine.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * JDK Flight Recorder events for settlement runs, transaction settles, partition
+ * locks and reconciliation passes, so GC pauses and lock stalls in a recording
+ * can be lined up with the run they hit. Every begin* method returns null when
+ * settlement.jfr.enabled is off or no recording has the event type enabled; the
+ * matching end* method ignores null. Off therefore costs one branch per call.
+ */
+@Component
+public class SettlementFlightRecorder {
+
+    private final boolean enabled;
+
+    public SettlementFlightRecorder(@Value("${settlement.jfr.enabled:false}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * For tests and tools that run services outside the application context.
+     */
+    public static SettlementFlightRecorder disabled() {
+        return new SettlementFlightRecorder(false);
+    }
+
+    public RunEvent beginRun(String triggerSource) {
+        if (!enabled) {
+            return null;
+        }
+        RunEvent event = new RunEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.triggerSource = triggerSource;
+        event.begin();
+        return event;
+    }
+
+    public void endRun(RunEvent event, String lockId, SettlementRunStats runStats, Throwable error) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.lockId = lockId;
+            event.claimedCount = runStats.claimedCount();
+            event.processedCount = runStats.processedCount();
+            event.succeeded = error == null;
+            event.error = error == null ? null : error.getClass().getSimpleName();
+            event.commit();
+        }
+    }
+
+    public TransactionSettleEvent beginTransactionSettle(long transactionId, SettlementPersistenceMode mode) {
+        if (!enabled) {
+            return null;
+        }
+        TransactionSettleEvent event = new TransactionSettleEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.transactionId = transactionId;
+        event.persistenceMode = mode.name();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * outcome is the status the row moved to, or null if this node no longer
+     * owned the row.
+     */
+    public void endTransactionSettle(TransactionSettleEvent event, String outcome, int attempt) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.outcome = outcome;
+            event.attempt = attempt;
+            event.commit();
+        }
+    }
+
+    public PersistEvent beginPersist(SettlementPersistenceMode mode, int decisionCount) {
+        if (!enabled) {
+            return null;
+        }
+        PersistEvent event = new PersistEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.persistenceMode = mode.name();
+        event.decisionCount = decisionCount;
+        event.begin();
+        return event;
+    }
+
+    public void endPersist(PersistEvent event, int persistedCount) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.persistedCount = persistedCount;
+            event.commit();
+        }
+    }
+
+    public LockEvent beginLockAcquire(String key) {
+        return enabled ? beginLock(new LockAcquireEvent(), key) : null;
+    }
+
+    public LockEvent beginLockRelease(String key) {
+        return enabled ? beginLock(new LockReleaseEvent(), key) : null;
+    }
+
+    /**
+     * succeeded: the lock was taken (acquire) or deleted (release).
+     */
+    public void endLock(LockEvent event, String lockId, boolean succeeded) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.lockId = lockId;
+            event.succeeded = succeeded;
+            event.commit();
+        }
+    }
+
+    public ReconciliationPassEvent beginReconciliationPass() {
+        if (!enabled) {
+            return null;
+        }
+        ReconciliationPassEvent event = new ReconciliationPassEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    public void endReconciliationPass(ReconciliationPassEvent event, ReconciliationRunResult result) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.matchedCount = result.matchedCount();
+            event.missingSettledAtCount = result.missingSettledAtCount();
+            event.failedQueuedCount = result.failedQueuedCount();
+            event.watermarkLagMillis = result.watermarkLagMillis();
+            event.commit();
+        }
+    }
+
+    private LockEvent beginLock(LockEvent event, String key) {
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.key = key;
+        event.begin();
+        return event;
+    }
+
+    @Name("settlement.Run")
+    @Label("Settlement Run")
+    @Category({"Settlement"})
+    @StackTrace(false)
+    public static final class RunEvent extends Event {
+        @Label("Trigger Source")
+        String triggerSource;
+
+        @Label("Lock Id")
+        String lockId;
+
+        @Label("Claimed")
+        long claimedCount;
+
+        @Label("Processed")
+        long processedCount;
+
+        @Label("Succeeded")
+        boolean succeeded;
+
+        @Label("Error")
+        String error;
+    }
+
+    @Name("settlement.TransactionSettle")
+    @Label("Transaction Settle")
+    @Description("Applying one gateway decision to its row; in BATCHED mode the DB write is in settlement.Persist")
+    @Category({"Settlement"})
+    @StackTrace(false)
+    public static final class TransactionSettleEvent extends Event {
+        @Label("Transaction Id")
+        long transactionId;
+
+        @Label("Persistence Mode")
+        String persistenceMode;
+
+        @Label("Outcome")
+        String outcome;
+
+        @Label("Attempt")
+        int attempt;
+    }
+
+    @Name("settlement.Persist")
+    @Label("Settlement Persist")
+    @Description("One persist transaction: lock owned rows, write SettlementLogs and Transactions, commit")
+    @Category({"Settlement"})
+    @StackTrace(false)
+    public static final class PersistEvent extends Event {
+        @Label("Persistence Mode")
+        String persistenceMode;
+
+        @Label("Decisions")
+        int decisionCount;
+
+        @Label("Persisted")
+        int persistedCount;
+    }
+
+    @Category({"Settlement", "Lock"})
+    @StackTrace(false)
+    public abstract static class LockEvent extends Event {
+        @Label("Key")
+        String key;
+
+        @Label("Lock Id")
+        String lockId;
+
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+
+    @Name("settlement.LockAcquire")
+    @Label("Settlement Lock Acquire")
+    public static final class LockAcquireEvent extends LockEvent {
+    }
+
+    @Name("settlement.LockRelease")
+    @Label("Settlement Lock Release")
+    public static final class LockReleaseEvent extends LockEvent {
+    }
+
+    @Name("settlement.ReconciliationPass")
+    @Label("Reconciliation Pass")
+    @Category({"Settlement"})
+    @StackTrace(false)
+    public static final class ReconciliationPassEvent extends Event {
+        @Label("Matched")
+        long matchedCount;
+
+        @Label("Missing settledAt")
+        long missingSettledAtCount;
+
+        @Label("Failed Queued")
+        long failedQueuedCount;
+
+        @Label("Watermark Lag Millis")
+        long watermarkLagMillis;
+    }
+}
@@ -0,0 +1,21 @@
+package com.kailas.settlementengine.service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Bank/processor that decides whether a claimed transaction settles. Calls must
+ * not block the caller: the future completes with {@code true} when the gateway
+ * accepted the settlement and {@code false} when it declined it. Concurrency
+ * limits and timeouts are applied by {@link SettlementGatewayClient}.
+ * <p>
+ * A call that times out or fails may still have settled at the bank, so it is
+ * sent again later with the same idempotency key. Implementations must settle a
+ * key at most once and answer a repeat of an already settled key with
+ * {@code true}; a key that was declined may be attempted again.
+ */
+public interface SettlementGateway {
+
+    String name();
+
+    CompletableFuture<Boolean> settle(Long transactionId, String idempotencyKey);
+}
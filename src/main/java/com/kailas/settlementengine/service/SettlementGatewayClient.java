@@ -0,0 +1,160 @@
+package com.kailas.settlementengine.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Calls the configured {@link SettlementGateway} with a cap on in-flight requests
+ * and a per-call timeout. When the cap is reached the caller waits for a permit,
+ * which backs up the settlement pipeline instead of flooding the gateway. A
+ * timeout or gateway error leaves the outcome unknown: the transaction is sent
+ * again after backoff under the same idempotency key, without using up one of
+ * its attempts, so a settlement the bank already made is answered, not repeated.
+ */
+@Service
+public class SettlementGatewayClient {
+
+    private static final Logger log = LoggerFactory.getLogger(SettlementGatewayClient.class);
+
+    private final SettlementGateway gateway;
+    private final int maxInFlight;
+    private final long timeoutMillis;
+    private final Semaphore inFlightPermits;
+    private final SettlementMetrics metrics;
+
+    private final LongAdder callsTotal = new LongAdder();
+    private final LongAdder declinedTotal = new LongAdder();
+    private final LongAdder timeoutsTotal = new LongAdder();
+    private final LongAdder errorsTotal = new LongAdder();
+    private final LongAdder latencyNanosTotal = new LongAdder();
+
+    public SettlementGatewayClient(List<SettlementGateway> gateways,
+                                   @Value("${settlement.gateway.name:stub}") String gatewayName,
+                                   @Value("${settlement.gateway.max-in-flight:256}") int maxInFlight,
+                                   @Value("${settlement.gateway.timeout-millis:5000}") long timeoutMillis,
+                                   SettlementMetrics metrics) {
+        if (maxInFlight <= 0) {
+            throw new IllegalStateException("settlement.gateway.max-in-flight must be greater than zero.");
+        }
+        if (timeoutMillis <= 0) {
+            throw new IllegalStateException("settlement.gateway.timeout-millis must be greater than zero.");
+        }
+        this.gateway = gateways.stream()
+                .filter(candidate -> candidate.name().equalsIgnoreCase(gatewayName.trim()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException(
+                        "Invalid settlement.gateway.name: " + gatewayName
+                                + ". Available gateways: "
+                                + gateways.stream().map(SettlementGateway::name).toList()
+                ));
+        this.maxInFlight = maxInFlight;
+        this.timeoutMillis = timeoutMillis;
+        this.inFlightPermits = new Semaphore(maxInFlight);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sends one transaction to the gateway. Blocks only while the in-flight cap is
+     * reached; the returned future never completes exceptionally.
+     */
+    public CompletableFuture<SettlementDecision> settle(Long transactionId) {
+        try {
+            inFlightPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a settlement gateway slot.", e);
+        }
+
+        callsTotal.increment();
+        long startedAt = System.nanoTime();
+        CompletableFuture<Boolean> response;
+        try {
+            response = gateway.settle(transactionId, idempotencyKey(transactionId));
+        } catch (RuntimeException ex) {
+            response = CompletableFuture.failedFuture(ex);
+        }
+
+        return response
+                .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .handle((success, error) -> {
+                    inFlightPermits.release();
+                    long latencyNanos = System.nanoTime() - startedAt;
+                    latencyNanosTotal.add(latencyNanos);
+                    if (error == null) {
+                        boolean settled = Boolean.TRUE.equals(success);
+                        if (!settled) {
+                            declinedTotal.increment();
+                        }
+                        metrics.recordGatewayDecision(latencyNanos, settled ? "settled" : "declined");
+                        return new SettlementDecision(transactionId, settled);
+                    }
+                    metrics.recordGatewayDecision(latencyNanos, recordError(transactionId, error));
+                    return SettlementDecision.unknown(transactionId);
+                });
+    }
+
+    /**
+     * The same on every attempt for a transaction, so the gateway can tell a
+     * resend of an unanswered call from a new settlement.
+     */
+    static String idempotencyKey(Long transactionId) {
+        return "settlement-" + transactionId;
+    }
+
+    public Map<String, Object> describe() {
+        long calls = callsTotal.sum();
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("name", gateway.name());
+        view.put("inFlight", inFlight());
+        view.put("maxInFlight", maxInFlight);
+        view.put("timeoutMillis", timeoutMillis);
+        view.put("callsTotal", calls);
+        view.put("declinedTotal", declinedTotal.sum());
+        view.put("timeoutsTotal", timeoutsTotal.sum());
+        view.put("errorsTotal", errorsTotal.sum());
+        view.put("averageLatencyMillis", calls == 0 ? 0.0 : latencyNanosTotal.sum() / 1_000_000.0 / calls);
+        return view;
+    }
+
+    /**
+     * Counts and logs a failed call; returns the outcome tag for the latency timer.
+     */
+    private String recordError(Long transactionId, Throwable error) {
+        Throwable cause = error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof TimeoutException) {
+            timeoutsTotal.increment();
+            log.warn(
+                    "event=settlement_gateway_timeout gateway={} transactionId={} timeoutMillis={}",
+                    gateway.name(),
+                    transactionId,
+                    timeoutMillis
+            );
+            return "timeout";
+        }
+
+        errorsTotal.increment();
+        log.warn(
+                "event=settlement_gateway_error gateway={} transactionId={} errorType={} message={}",
+                gateway.name(),
+                transactionId,
+                cause.getClass().getSimpleName(),
+                cause.getMessage()
+        );
+        return "error";
+    }
+
+    int inFlight() {
+        return maxInFlight - inFlightPermits.availablePermits();
+    }
+}
@@ -0,0 +1,177 @@
+package com.kailas.settlementengine.service;
+
+import com.kailas.settlementengine.entity.TransactionStatus;
+import com.kailas.settlementengine.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Claim leases on PROCESSING rows. A claim records this node as owner and a lease
+ * expiry; the heartbeat extends the leases of rows a running settlement still
+ * holds in memory, and the reaper puts rows whose lease ran out back to
+ * CAPTURED. Rows a live run is settling are never touched. A row this node
+ * claimed but dropped (failed persist, aborted run, restart) is no longer
+ * renewed, so it is reaped like a dead node's row.
+ */
+@Service
+public class SettlementLeaseService {
+
+    private static final Logger log = LoggerFactory.getLogger(SettlementLeaseService.class);
+    private static final int RENEW_CHUNK_SIZE = 1_000;
+
+    private final TransactionRepository transactionRepository;
+    private final SettlementMonitoringService monitoringService;
+    private final TransactionStateMachine transactionStateMachine;
+    private final TransactionTemplate transactionTemplate;
+    private final String ownerId;
+    private final long leaseDurationSeconds;
+    private final int reaperBatchSize;
+    private final Set<InFlightClaims> openClaims = ConcurrentHashMap.newKeySet();
+
+    public SettlementLeaseService(TransactionRepository transactionRepository,
+                                  SettlementMonitoringService monitoringService,
+                                  SettlementNodeIdentity nodeIdentity,
+                                  TransactionStateMachine transactionStateMachine,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${settlement.lease.duration-seconds:60}") long leaseDurationSeconds,
+                                  @Value("${settlement.lease.reaper-batch-size:500}") int reaperBatchSize) {
+        if (leaseDurationSeconds <= 0) {
+            throw new IllegalStateException("settlement.lease.duration-seconds must be greater than zero.");
+        }
+        if (reaperBatchSize <= 0) {
+            throw new IllegalStateException("settlement.lease.reaper-batch-size must be greater than zero.");
+        }
+        this.transactionRepository = transactionRepository;
+        this.monitoringService = monitoringService;
+        this.transactionStateMachine = transactionStateMachine;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ownerId = nodeIdentity.getNodeId();
+        this.leaseDurationSeconds = leaseDurationSeconds;
+        this.reaperBatchSize = reaperBatchSize;
+    }
+
+    public String getOwnerId() {
+        return ownerId;
+    }
+
+    public long getLeaseDurationSeconds() {
+        return leaseDurationSeconds;
+    }
+
+    public LocalDateTime nextLeaseExpiry() {
+        return LocalDateTime.now().plusSeconds(leaseDurationSeconds);
+    }
+
+    /**
+     * Registers a run's in-flight id set. Close it when the run ends.
+     */
+    public InFlightClaims openClaims() {
+        InFlightClaims claims = new InFlightClaims();
+        openClaims.add(claims);
+        return claims;
+    }
+
+    /**
+     * Extends the leases of the rows open runs are still settling.
+     */
+    public int renewLeases() {
+        List<Long> inFlightIds = new ArrayList<>();
+        for (InFlightClaims claims : openClaims) {
+            inFlightIds.addAll(claims.ids);
+        }
+        if (inFlightIds.isEmpty()) {
+            return 0;
+        }
+
+        LocalDateTime leaseExpiresAt = nextLeaseExpiry();
+        int renewedCount = 0;
+        for (int from = 0; from < inFlightIds.size(); from += RENEW_CHUNK_SIZE) {
+            List<Long> chunk = inFlightIds.subList(from, Math.min(from + RENEW_CHUNK_SIZE, inFlightIds.size()));
+            Integer renewed = transactionTemplate.execute(
+                    status -> transactionRepository.renewLeases(ownerId, chunk, leaseExpiresAt)
+            );
+            renewedCount += renewed == null ? 0 : renewed;
+        }
+        if (renewedCount > 0) {
+            log.debug("event=settlement_leases_renewed ownerId={} renewedCount={}", ownerId, renewedCount);
+        }
+        return renewedCount;
+    }
+
+    /**
+     * Returns expired PROCESSING rows to CAPTURED, one short transaction per batch.
+     */
+    public long reapExpiredLeases() {
+        long reaped = 0;
+        while (true) {
+            Integer released = transactionTemplate.execute(status -> {
+                List<Long> expiredIds = transactionRepository.lockExpiredLeaseIds(
+                        LocalDateTime.now(),
+                        PageRequest.of(0, reaperBatchSize)
+                );
+                if (expiredIds.isEmpty()) {
+                    return 0;
+                }
+                int releasedCount = transactionRepository.releaseExpiredLeases(expiredIds);
+                transactionStateMachine.recordBulkTransition(
+                        TransactionStatus.PROCESSING, TransactionStatus.CAPTURED, releasedCount
+                );
+                return releasedCount;
+            });
+
+            int releasedCount = released == null ? 0 : released;
+            reaped += releasedCount;
+            if (releasedCount < reaperBatchSize) {
+                break;
+            }
+        }
+
+        if (reaped > 0) {
+            monitoringService.recordLeasesReaped(reaped);
+            log.info("event=settlement_leases_reaped reapedCount={}", reaped);
+        }
+        return reaped;
+    }
+
+    /**
+     * Ids one run has claimed and not yet persisted.
+     */
+    public final class InFlightClaims implements AutoCloseable {
+        private final Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        private InFlightClaims() {
+        }
+
+        public void add(Collection<Long> claimedIds) {
+            ids.addAll(claimedIds);
+        }
+
+        public void remove(Collection<Long> settledIds) {
+            ids.removeAll(settledIds);
+        }
+
+        public int size() {
+            return ids.size();
+        }
+
+        /**
+         * Stops renewing whatever is left; those rows expire and get reaped.
+         */
+        @Override
+        public void close() {
+            openClaims.remove(this);
+        }
+    }
+}
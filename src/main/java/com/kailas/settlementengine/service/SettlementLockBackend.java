@@ -0,0 +1,28 @@
+package com.kailas.settlementengine.service;
+
+import java.util.Locale;
+
+public enum SettlementLockBackend {
+    /** SET NX locks with a TTL renewed by a watchdog; needs Redis. */
+    REDIS,
+    /** Session-level pg_try_advisory_lock on a dedicated connection; no extra infrastructure. */
+    POSTGRES,
+    /** A map in this JVM; single-node deployments and tests only. */
+    IN_PROCESS;
+
+    public static SettlementLockBackend parse(String configuredBackend) {
+        if (configuredBackend == null || configuredBackend.isBlank()) {
+            return REDIS;
+        }
+
+        try {
+            return valueOf(configuredBackend.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException(
+                    "Invalid settlement.lock.backend: " + configuredBackend
+                            + ". Allowed values: REDIS, POSTGRES, IN_PROCESS",
+                    e
+            );
+        }
+    }
+}
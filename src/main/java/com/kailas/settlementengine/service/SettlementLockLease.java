@@ -0,0 +1,68 @@
+package com.kailas.settlementengine.service;
+
+import java.util.Locale;
+
+/**
+ * A held partition lock: the backend that issued it, the value identifying this
+ * acquisition and the fencing token issued with it. Tokens only grow per backend
+ * and key, so a DB write carrying an older token than one already seen comes
+ * from a holder whose lock expired. The backend marks the lease lost once it
+ * finds the lock gone or taken.
+ */
+public final class SettlementLockLease {
+
+    /**
+     * Token of leases whose lock cannot outlive its holder, so claims under
+     * them are not fenced.
+     */
+    public static final long UNFENCED = 0L;
+
+    private final SettlementLockBackend backend;
+    private final String key;
+    private final String lockId;
+    private final long fencingToken;
+    private volatile boolean lost;
+
+    public SettlementLockLease(SettlementLockBackend backend, String key, String lockId, long fencingToken) {
+        this.backend = backend;
+        this.key = key;
+        this.lockId = lockId;
+        this.fencingToken = fencingToken;
+    }
+
+    public SettlementLockBackend backend() {
+        return backend;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public String lockId() {
+        return lockId;
+    }
+
+    public long fencingToken() {
+        return fencingToken;
+    }
+
+    public boolean isFenced() {
+        return fencingToken != UNFENCED;
+    }
+
+    /**
+     * Fence row of this lock. Scoped by backend because each backend counts
+     * its tokens separately.
+     */
+    public String fenceKey() {
+        return backend.name().toLowerCase(Locale.ROOT) + ":" + key;
+    }
+
+    public boolean isLost() {
+        return lost;
+    }
+
+    void markLost() {
+        lost = true;
+    }
+}
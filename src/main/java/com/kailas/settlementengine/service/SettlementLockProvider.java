@@ -0,0 +1,36 @@
+package com.kailas.settlementengine.service;
+
+import java.util.List;
+
+/**
+ * Backend for the partition locks that keep two runs off the same partition.
+ * Selected by settlement.lock.backend; see {@link SettlementLockBackend}.
+ * Implementations issue a distinct lock id per acquisition and mark a lease
+ * lost when they find out it no longer holds the lock.
+ */
+public interface SettlementLockProvider {
+
+    SettlementLockBackend backend();
+
+    /**
+     * Takes the lock, or returns null if another run holds it.
+     */
+    SettlementLockLease acquireLock(String key);
+
+    /**
+     * Gives the lock up if the lease still holds it; a no-op otherwise.
+     */
+    void releaseLock(SettlementLockLease lease);
+
+    /**
+     * Holder of every key, in key order, for the stats view.
+     */
+    List<SettlementLockStatus> getLockStatuses(List<String> keys);
+
+    /**
+     * Makes every token issued for the key from now on greater than floor. Only
+     * backends whose counter can be lost apart from the database fence need it.
+     */
+    default void raiseFencingFloor(String key, long floor) {
+    }
+}
@@ -0,0 +1,10 @@
+package com.kailas.settlementengine.service;
+
+/**
+ * holder is null when the lock is free. ttlMillis is the time left before the
+ * lock expires, -1 for a held lock without expiry and -2 for a free one.
+ */
+public record SettlementLockStatus(String holder, long ttlMillis) {
+
+    public static final SettlementLockStatus FREE = new SettlementLockStatus(null, -2L);
+}
@@ -0,0 +1,142 @@
+package com.kailas.settlementengine.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Micrometer timers for the settlement path, exported on /actuator/prometheus.
+ * Every timer publishes a percentile histogram, so p99s (capture-to-settle for
+ * the settle SLO, gateway, persist, lock hold) are computed by Prometheus with
+ * histogram_quantile across nodes instead of being averaged per node.
+ */
+@Component
+public class SettlementMetrics {
+
+    private static final Duration MAX_EXPECTED = Duration.ofMinutes(10);
+    private static final String[] GATEWAY_OUTCOMES = {"settled", "declined", "timeout", "error"};
+
+    private final MeterRegistry registry;
+    private final Timer claimTimer;
+    private final Timer reconciliationPassTimer;
+    private final Timer lockHoldTimer;
+    private final Timer captureToSettleTimer;
+    private final Map<String, Timer> gatewayDecisionTimers;
+    private final Map<SettlementPersistenceMode, Timer> persistTimers;
+
+    public SettlementMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.claimTimer = timer("settlement.claim", "Claiming one batch of CAPTURED rows", Tags.empty());
+        this.reconciliationPassTimer = timer(
+                "settlement.reconciliation.pass", "One incremental reconciliation pass", Tags.empty()
+        );
+        this.lockHoldTimer = timer("settlement.lock.hold", "Time a partition lock was held", Tags.empty());
+        this.captureToSettleTimer = timer(
+                "settlement.capture.to.settle", "Time from capture to SETTLED", Tags.empty()
+        );
+        Map<String, Timer> gatewayTimers = new HashMap<>();
+        for (String outcome : GATEWAY_OUTCOMES) {
+            gatewayTimers.put(outcome, timer(
+                    "settlement.gateway.decision", "One settlement gateway call", Tags.of("outcome", outcome)
+            ));
+        }
+        this.gatewayDecisionTimers = Map.copyOf(gatewayTimers);
+        this.persistTimers = new EnumMap<>(SettlementPersistenceMode.class);
+        for (SettlementPersistenceMode mode : SettlementPersistenceMode.values()) {
+            persistTimers.put(mode, timer(
+                    "settlement.persist", "One settlement persist transaction", Tags.of("mode", mode.name())
+            ));
+        }
+    }
+
+    /**
+     * For tests and tools that run services outside the application context.
+     */
+    public static SettlementMetrics noop() {
+        return new SettlementMetrics(new SimpleMeterRegistry());
+    }
+
+    public void recordClaim(long durationNanos) {
+        claimTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * One gateway call; outcome is settled, declined, timeout or error.
+     */
+    public void recordGatewayDecision(long durationNanos, String outcome) {
+        Timer gatewayTimer = gatewayDecisionTimers.get(outcome);
+        if (gatewayTimer == null) {
+            throw new IllegalArgumentException("Unknown gateway outcome: " + outcome);
+        }
+        gatewayTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * One persist transaction: lock owned rows, insert SettlementLogs, update
+     * Transactions, commit. The inserts and updates flush together at commit.
+     */
+    public void recordPersist(long durationNanos, SettlementPersistenceMode mode) {
+        persistTimers.get(mode).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordCaptureToSettle(long latencyMillis) {
+        captureToSettleTimer.record(Math.max(latencyMillis, 0L), TimeUnit.MILLISECONDS);
+    }
+
+    public void recordReconciliationPass(long durationNanos) {
+        reconciliationPassTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordLockAcquire(long durationNanos, boolean acquired) {
+        timer("settlement.lock.acquire", "One partition lock attempt",
+                Tags.of("result", acquired ? "acquired" : "held"))
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordLockHold(long durationNanos) {
+        lockHoldTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRun(long durationMillis, String source, boolean succeeded) {
+        timer("settlement.run", "One locked settlement run",
+                Tags.of("source", source, "outcome", succeeded ? "success" : "failure"))
+                .record(Math.max(durationMillis, 0L), TimeUnit.MILLISECONDS);
+    }
+
+    public <T> void gauge(String name, String description, Tags tags, T state, ToDoubleFunction<T> value) {
+        Gauge.builder(name, state, value)
+                .description(description)
+                .tags(tags)
+                .strongReference(true)
+                .register(registry);
+    }
+
+    public <T> void counter(String name, String description, Tags tags, T state, ToDoubleFunction<T> value) {
+        FunctionCounter.builder(name, state, value)
+                .description(description)
+                .tags(tags)
+                .register(registry);
+    }
+
+    // Registration is idempotent per name and tags. Timers recorded per transaction
+    // or per chunk are cached per tag value above; the rarer ones register on use.
+    private Timer timer(String name, String description, Tags tags) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(registry);
+    }
+}
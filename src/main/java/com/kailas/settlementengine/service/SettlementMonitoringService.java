@@ -3,118 +3,214 @@ package com.kailas.settlementengine.service;
 import com.kailas.settlementengine.entity.ReconciliationStatus;
 import com.kailas.settlementengine.entity.TransactionStatus;
 import com.kailas.settlementengine.repository.TransactionRepository;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class SettlementMonitoringService {
 
-    private final TransactionRepository transactionRepository;
-    private final RedisLockService redisLockService;
+    private static final Logger log = LoggerFactory.getLogger(SettlementMonitoringService.class);
+
+    private static final int CAPTURE_TO_SETTLE_SAMPLE_SIZE = 1024;
+
+    /** Run id for work done outside a locked run; its claims are not tracked. */
+    public static final long NO_RUN = 0L;
 
-    private LocalDateTime lastRunTime;
-    private long lastProcessedCount;
-    private String lastRunSource;
+    private final TransactionRepository transactionRepository;
+    private final SettlementPartitionService partitionService;
+    private final SettlementPipeline pipeline;
+    private final SettlementGatewayClient gatewayClient;
+    private final TransactionStatusCounters statusCounters;
+    private final SettlementMetrics metrics;
+    private final SnapshotCache<Map<String, Object>> snapshotCache;
+    private final Object statusCounterCorrectionLock = new Object();
 
-    private LocalDateTime lastLockAcquiredAt;
-    private LocalDateTime lastLockReleasedAt;
-    private LocalDateTime lastLockSkippedAt;
-    private String lastLockHolder;
-    private String lastLockSource;
-    private String lastSkippedLockSource;
-    private Long lastRunDurationMillis;
-    private String lastRunError;
+    // Lock, last-run and active-run state, replaced as a whole on every change so
+    // getStats() never sees half of an update. Each active run has its own slot,
+    // keyed by run id, because the sweep, the dispatcher and a manual trigger can
+    // be in flight on this node at the same time.
+    private final AtomicReference<RunState> runState = new AtomicReference<>(RunState.EMPTY);
+    private final AtomicLong runIds = new AtomicLong();
+    private final SettlementRunHistory runHistory;
 
     private final AtomicLong runCountTotal = new AtomicLong();
     private final AtomicLong runSuccessTotal = new AtomicLong();
     private final AtomicLong runFailureTotal = new AtomicLong();
     private final AtomicLong lockSkippedTotal = new AtomicLong();
     private final AtomicLong processedTransactionsTotal = new AtomicLong();
+    private final AtomicLong claimedTransactionsTotal = new AtomicLong();
     private final AtomicLong settledTransactionsTotal = new AtomicLong();
     private final AtomicLong retriedTransactionsTotal = new AtomicLong();
     private final AtomicLong terminalFailedTransactionsTotal = new AtomicLong();
     private final AtomicLong cumulativeRunDurationMillis = new AtomicLong();
+    private final AtomicLong dispatchSignalsTotal = new AtomicLong();
+    private final AtomicLong dispatchSignalsCoalescedTotal = new AtomicLong();
+    private final AtomicLong dispatchRunsTotal = new AtomicLong();
+    private final AtomicLong leasesReapedTotal = new AtomicLong();
 
-    private static final String LOCK_KEY = "settlement-lock";
+    // Most recent capture-to-settle latencies, for the P50 in the stats view.
+    private final AtomicLongArray captureToSettleSamples = new AtomicLongArray(CAPTURE_TO_SETTLE_SAMPLE_SIZE);
+    private final AtomicLong captureToSettleSampleTotal = new AtomicLong();
 
     public SettlementMonitoringService(TransactionRepository transactionRepository,
-                                       RedisLockService redisLockService) {
+                                       SettlementPartitionService partitionService,
+                                       SettlementPipeline pipeline,
+                                       SettlementGatewayClient gatewayClient,
+                                       TransactionStatusCounters statusCounters,
+                                       SettlementMetrics metrics,
+                                       @Value("${settlement.stats.cache-ttl-millis:1000}") long cacheTtlMillis,
+                                       @Value("${settlement.runs.history-size:100}") int runHistorySize) {
         this.transactionRepository = transactionRepository;
-        this.redisLockService = redisLockService;
+        this.partitionService = partitionService;
+        this.pipeline = pipeline;
+        this.gatewayClient = gatewayClient;
+        this.statusCounters = statusCounters;
+        this.metrics = metrics;
+        this.snapshotCache = new SnapshotCache<>(this::loadSnapshot, cacheTtlMillis);
+        this.runHistory = new SettlementRunHistory(runHistorySize);
+        registerMeters();
     }
 
     public Map<String, Object> getStats() {
 
-        Map<String, Object> stats = new HashMap<>();
-
-        long total = transactionRepository.count();
+        // Redis partition state comes from the shared snapshot; row counts come
+        // from the live status counters, so no query runs here once they are seeded.
+        Map<String, Object> stats = new HashMap<>(snapshotCache.get());
+        stats.put("statsSnapshotAgeMillis", snapshotCache.ageMillis());
 
-        long captured = transactionRepository.countByStatus(TransactionStatus.CAPTURED);
-        long processing = transactionRepository.countByStatus(TransactionStatus.PROCESSING);
-        long settled = transactionRepository.countByStatus(TransactionStatus.SETTLED);
-        long failed = transactionRepository.countByStatus(TransactionStatus.FAILED);
-        long exceptionQueued = transactionRepository.countByReconciliationStatus(
-                ReconciliationStatus.EXCEPTION_QUEUED
-        );
-
-        Double avgRetry = transactionRepository.findAverageRetryCount();
-        if (avgRetry == null) avgRetry = 0.0;
-
-        stats.put("totalTransactions", total);
-        stats.put("captured", captured);
-        stats.put("processing", processing);
-        stats.put("settled", settled);
-        stats.put("failed", failed);
-        stats.put("exceptionQueued", exceptionQueued);
-        stats.put("averageRetryCount", avgRetry);
-
-        // ✅ Lock status
-        stats.put("lockHeld", redisLockService.isLockHeld(LOCK_KEY));
-        stats.put("lockHolder", redisLockService.getCurrentLockHolder(LOCK_KEY));
+        ensureStatusCountersCorrected();
+        stats.put("totalTransactions", statusCounters.total());
+        stats.put("captured", statusCounters.count(TransactionStatus.CAPTURED));
+        stats.put("processing", statusCounters.count(TransactionStatus.PROCESSING));
+        stats.put("settled", statusCounters.count(TransactionStatus.SETTLED));
+        stats.put("failed", statusCounters.count(TransactionStatus.FAILED));
+        stats.put("exceptionQueued", statusCounters.count(ReconciliationStatus.EXCEPTION_QUEUED));
+        stats.put("averageRetryCount", statusCounters.getAverageRetryCount());
+        stats.put("statusCounterDrift", statusCounters.getLastDrift());
+        stats.put("statusCountersCorrectedAt", statusCounters.getLastCorrectedAt());
 
         // ✅ Last run info
-        stats.put("lastRunTime", lastRunTime);
-        stats.put("lastProcessedCount", lastProcessedCount);
-        stats.put("lastRunSource", lastRunSource);
-        stats.put("lastLockAcquiredAt", lastLockAcquiredAt);
-        stats.put("lastLockReleasedAt", lastLockReleasedAt);
-        stats.put("lastLockSkippedAt", lastLockSkippedAt);
-        stats.put("lastLockHolder", lastLockHolder);
-        stats.put("lastLockSource", lastLockSource);
-        stats.put("lastSkippedLockSource", lastSkippedLockSource);
-        stats.put("lastRunDurationMillis", lastRunDurationMillis);
-        stats.put("lastRunError", lastRunError);
+        RunState state = runState.get();
+        LockState lock = state.lock();
+        LastRun lastRun = state.lastRun();
+        SettlementRunStats lastClaims = state.lastClaims();
+        stats.put("lastRunTime", lastRun.time());
+        stats.put("lastProcessedCount", lastRun.processedCount());
+        stats.put("lastRunSource", lastRun.source());
+        stats.put("lastLockAcquiredAt", lock.acquiredAt());
+        stats.put("lastLockReleasedAt", lock.releasedAt());
+        stats.put("lastLockSkippedAt", lock.skippedAt());
+        stats.put("lastLockHolder", lock.holder());
+        stats.put("lastLockSource", lock.source());
+        stats.put("lastSkippedLockSource", lock.skippedSource());
+        stats.put("lastRunDurationMillis", lastRun.durationMillis());
+        stats.put("lastRunError", lastRun.error());
+        stats.put("lastClaimedCount", lastClaims.claimedCount());
+        stats.put("lastClaimDurationMillis", lastClaims.claimDurationMillis());
+        stats.put("lastClaimsPerSecond", lastClaims.claimsPerSecond());
+        stats.put("lastRunProcessedByWorker", lastClaims.processedByWorker());
+        stats.put("settlementResumeAfterIdByPartition", lastClaims.resumeAfterIdByPartition());
+        stats.put("pipelineStages", pipeline.describeStages());
+        stats.put("gateway", gatewayClient.describe());
         stats.put("runCountTotal", runCountTotal.get());
         stats.put("runSuccessTotal", runSuccessTotal.get());
         stats.put("runFailureTotal", runFailureTotal.get());
         stats.put("lockSkippedTotal", lockSkippedTotal.get());
         stats.put("processedTransactionsTotal", processedTransactionsTotal.get());
+        stats.put("claimedTransactionsTotal", claimedTransactionsTotal.get());
         stats.put("settledTransactionsTotal", settledTransactionsTotal.get());
         stats.put("retriedTransactionsTotal", retriedTransactionsTotal.get());
         stats.put("terminalFailedTransactionsTotal", terminalFailedTransactionsTotal.get());
         stats.put("averageRunDurationMillis", calculateAverageRunDurationMillis());
+        stats.put("dispatchSignalsTotal", dispatchSignalsTotal.get());
+        stats.put("dispatchSignalsCoalescedTotal", dispatchSignalsCoalescedTotal.get());
+        stats.put("dispatchRunsTotal", dispatchRunsTotal.get());
+        stats.put("captureToSettleP50Millis", captureToSettleMedianMillis());
+        stats.put("leasesReapedTotal", leasesReapedTotal.get());
+        stats.put("activeRun", describeActiveRun(state));
 
         return stats;
     }
 
-    public synchronized void recordLastRun(long processedCount) {
+    /**
+     * Counts every row once (one GROUP BY) and resets the live status counters to
+     * it. The drift found is kept for the stats view.
+     */
+    public long correctStatusCounters() {
+        synchronized (statusCounterCorrectionLock) {
+            long drift = statusCounters.correct(transactionRepository.aggregateByStatus());
+            if (drift > 0) {
+                log.info("event=status_counters_corrected drift={}", drift);
+            }
+            return drift;
+        }
+    }
+
+    private void ensureStatusCountersCorrected() {
+        if (statusCounters.isCorrected()) {
+            return;
+        }
+        synchronized (statusCounterCorrectionLock) {
+            if (!statusCounters.isCorrected()) {
+                correctStatusCounters();
+            }
+        }
+    }
+
+    /**
+     * The Redis partition view. Dashboards poll getStats() every few seconds per
+     * open tab, so this runs at most once per cache TTL no matter how many
+     * pollers there are.
+     */
+    private Map<String, Object> loadSnapshot() {
+        Map<String, Object> snapshot = new HashMap<>();
+        // ✅ Lock status (any partition lock held counts as the engine running)
+        List<Map<String, Object>> partitions = partitionService.describePartitions();
+        String lockHolder = partitions.stream()
+                .map(partition -> (String) partition.get("lockHolder"))
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(null);
+        snapshot.put("lockHeld", lockHolder != null);
+        snapshot.put("lockHolder", lockHolder);
+        snapshot.put("partitions", partitions);
+        snapshot.put("settlementNodes", partitionService.listLiveNodes());
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    public void recordLastRun(long processedCount) {
         recordLastRun(processedCount, "UNKNOWN");
     }
 
-    public synchronized void recordLastRun(long processedCount, String source) {
+    public void recordLastRun(long processedCount, String source) {
         recordLastRun(processedCount, source, 0L);
     }
 
-    public synchronized void recordLastRun(long processedCount, String source, long durationMillis) {
-        this.lastRunTime = LocalDateTime.now();
-        this.lastProcessedCount = processedCount;
-        this.lastRunSource = source;
-        this.lastRunDurationMillis = durationMillis;
-        this.lastRunError = null;
+    public void recordLastRun(long processedCount, String source, long durationMillis) {
+        recordLastRun(NO_RUN, processedCount, source, durationMillis);
+    }
+
+    public void recordLastRun(long runId, long processedCount, String source, long durationMillis) {
+        metrics.recordRun(durationMillis, source, true);
+        LastRun lastRun = new LastRun(LocalDateTime.now(), processedCount, source, durationMillis, null);
+        ActiveRun finishedRun = finishRun(runId, lastRun);
+        recordHistory(finishedRun, lastRun);
 
         runCountTotal.incrementAndGet();
         runSuccessTotal.incrementAndGet();
@@ -122,46 +218,308 @@ public class SettlementMonitoringService {
         cumulativeRunDurationMillis.addAndGet(Math.max(durationMillis, 0L));
     }
 
-    public synchronized void recordRunFailed(String source, long durationMillis, Throwable error) {
-        this.lastRunTime = LocalDateTime.now();
-        this.lastProcessedCount = 0L;
-        this.lastRunSource = source;
-        this.lastRunDurationMillis = durationMillis;
-        this.lastRunError = error == null ? null : error.getClass().getSimpleName();
+    public void recordRunFailed(long runId, String source, long durationMillis, Throwable error) {
+        metrics.recordRun(durationMillis, source, false);
+        LastRun lastRun = new LastRun(
+                LocalDateTime.now(),
+                0L,
+                source,
+                durationMillis,
+                error == null ? null : error.getClass().getSimpleName()
+        );
+        ActiveRun finishedRun = finishRun(runId, lastRun);
+        recordHistory(finishedRun, lastRun);
 
         runCountTotal.incrementAndGet();
         runFailureTotal.incrementAndGet();
         cumulativeRunDurationMillis.addAndGet(Math.max(durationMillis, 0L));
     }
 
-    public synchronized void recordLockAcquired(String lockHolder, String source) {
-        this.lastLockAcquiredAt = LocalDateTime.now();
-        this.lastLockHolder = lockHolder;
-        this.lastLockSource = source;
+    // The record* methods below swap runState with plain CAS loops rather than
+    // updateAndGet. A claimed batch only swaps its own run's slot, so the per-batch
+    // cost is the one new ActiveRun; the whole RunState is only rebuilt when a run
+    // starts or ends, or the lock state changes.
+
+    /**
+     * Starts tracking a run that took its first lock and returns its id, which
+     * the run passes to {@link #recordBatchClaimed} and to the call that ends it.
+     */
+    public long recordLockAcquired(String lockHolder, String source) {
+        LocalDateTime now = LocalDateTime.now();
+        long runId = runIds.incrementAndGet();
+        AtomicReference<ActiveRun> slot = new AtomicReference<>(new ActiveRun(
+                runId,
+                source,
+                now,
+                0L,
+                settledTransactionsTotal.get(),
+                retriedTransactionsTotal.get(),
+                terminalFailedTransactionsTotal.get(),
+                pipeline.claimBusyNanos(),
+                pipeline.decideBusyNanos(),
+                pipeline.persistBusyNanos()
+        ));
+
+        RunState current;
+        do {
+            current = runState.get();
+        } while (!runState.compareAndSet(current, new RunState(
+                current.lock().acquired(now, lockHolder, source),
+                current.lastRun(),
+                current.lastClaims(),
+                withRun(current.activeRuns(), slot)
+        )));
+        return runId;
+    }
+
+    public void recordLockReleased(String lockHolder, String source) {
+        LocalDateTime now = LocalDateTime.now();
+        RunState current;
+        do {
+            current = runState.get();
+        } while (!runState.compareAndSet(current, new RunState(
+                current.lock().released(now, lockHolder, source),
+                current.lastRun(),
+                current.lastClaims(),
+                current.activeRuns()
+        )));
+    }
+
+    public void recordBatchClaimed(long runId, long claimedCount) {
+        AtomicReference<ActiveRun> slot = findRun(runState.get().activeRuns(), runId);
+        if (slot == null) {
+            return;
+        }
+        ActiveRun current;
+        do {
+            current = slot.get();
+        } while (!slot.compareAndSet(current, current.plusClaimed(claimedCount)));
+    }
+
+    /**
+     * Progress of the oldest run in flight on this node, counted since it took
+     * its first lock, or null when no run is active. Outcome counts include
+     * concurrent runs on other partitions of this node.
+     */
+    public Map<String, Object> describeActiveRun() {
+        return describeActiveRun(runState.get());
+    }
+
+    private Map<String, Object> describeActiveRun(RunState state) {
+        if (state.activeRuns().isEmpty()) {
+            return null;
+        }
+        ActiveRun activeRun = state.activeRuns().get(0).get();
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("runId", activeRun.runId());
+        run.put("source", activeRun.source());
+        run.put("lockHolder", state.lock().holder());
+        run.put("startedAt", activeRun.startedAt());
+        run.put("claimed", activeRun.claimed());
+        run.put("settled", settledTransactionsTotal.get() - activeRun.settledBaseline());
+        run.put("retried", retriedTransactionsTotal.get() - activeRun.retriedBaseline());
+        run.put("failed", terminalFailedTransactionsTotal.get() - activeRun.failedBaseline());
+        run.put("activeRuns", state.activeRuns().size());
+        return run;
     }
 
-    public synchronized void recordLockReleased(String lockHolder, String source) {
-        this.lastLockReleasedAt = LocalDateTime.now();
-        this.lastLockHolder = lockHolder;
-        this.lastLockSource = source;
+    /**
+     * The last finished runs on this node, newest first.
+     */
+    public List<SettlementRunRecord> recentRuns(int limit) {
+        return runHistory.recent(limit);
     }
 
-    public synchronized void recordLockSkipped(String source) {
-        this.lastLockSkippedAt = LocalDateTime.now();
-        this.lastSkippedLockSource = source;
+    public void recordLockSkipped(String source) {
+        LocalDateTime now = LocalDateTime.now();
+        RunState current;
+        do {
+            current = runState.get();
+        } while (!runState.compareAndSet(current, new RunState(
+                current.lock().skipped(now, source),
+                current.lastRun(),
+                current.lastClaims(),
+                current.activeRuns()
+        )));
         lockSkippedTotal.incrementAndGet();
     }
 
+    public void recordClaims(SettlementRunStats runStats) {
+        RunState current;
+        do {
+            current = runState.get();
+        } while (!runState.compareAndSet(current, new RunState(
+                current.lock(),
+                current.lastRun(),
+                runStats,
+                current.activeRuns()
+        )));
+
+        claimedTransactionsTotal.addAndGet(runStats.claimedCount());
+    }
+
+    // Outcomes are recorded inside the persist transaction; like the status
+    // counters they only count once it commits.
     public void recordTransactionSettled() {
-        settledTransactionsTotal.incrementAndGet();
+        TransactionStatusCounters.afterCommit(settledTransactionsTotal::incrementAndGet);
     }
 
     public void recordTransactionRetried() {
-        retriedTransactionsTotal.incrementAndGet();
+        TransactionStatusCounters.afterCommit(retriedTransactionsTotal::incrementAndGet);
     }
 
     public void recordTransactionTerminalFailure() {
-        terminalFailedTransactionsTotal.incrementAndGet();
+        TransactionStatusCounters.afterCommit(terminalFailedTransactionsTotal::incrementAndGet);
+    }
+
+    public void recordDispatchSignal(boolean coalesced) {
+        dispatchSignalsTotal.incrementAndGet();
+        if (coalesced) {
+            dispatchSignalsCoalescedTotal.incrementAndGet();
+        }
+    }
+
+    public void recordDispatchRun() {
+        dispatchRunsTotal.incrementAndGet();
+    }
+
+    public void recordLeasesReaped(long reapedCount) {
+        leasesReapedTotal.addAndGet(reapedCount);
+    }
+
+    public void recordCaptureToSettle(long latencyMillis) {
+        TransactionStatusCounters.afterCommit(() -> {
+            metrics.recordCaptureToSettle(latencyMillis);
+            long sample = captureToSettleSampleTotal.getAndIncrement();
+            captureToSettleSamples.set((int) (sample % CAPTURE_TO_SETTLE_SAMPLE_SIZE), Math.max(latencyMillis, 0L));
+        });
+    }
+
+    /**
+     * Exports the counters above and the queue depths as Prometheus meters; the
+     * getStats() map keeps serving the same values to the dashboard.
+     */
+    private void registerMeters() {
+        metrics.counter("settlement.runs", "Settlement runs", Tags.of("outcome", "success"),
+                runSuccessTotal, AtomicLong::get);
+        metrics.counter("settlement.runs", "Settlement runs", Tags.of("outcome", "failure"),
+                runFailureTotal, AtomicLong::get);
+        metrics.counter("settlement.lock.skipped", "Runs skipped because every partition lock was held",
+                Tags.empty(), lockSkippedTotal, AtomicLong::get);
+        metrics.counter("settlement.transactions.claimed", "Transactions claimed", Tags.empty(),
+                claimedTransactionsTotal, AtomicLong::get);
+        metrics.counter("settlement.transactions.outcome", "Settlement attempts by outcome",
+                Tags.of("outcome", "settled"), settledTransactionsTotal, AtomicLong::get);
+        metrics.counter("settlement.transactions.outcome", "Settlement attempts by outcome",
+                Tags.of("outcome", "retried"), retriedTransactionsTotal, AtomicLong::get);
+        metrics.counter("settlement.transactions.outcome", "Settlement attempts by outcome",
+                Tags.of("outcome", "failed"), terminalFailedTransactionsTotal, AtomicLong::get);
+        metrics.counter("settlement.dispatch.signals", "Work signals sent to the dispatcher",
+                Tags.empty(), dispatchSignalsTotal, AtomicLong::get);
+        metrics.counter("settlement.dispatch.signals.coalesced", "Work signals merged into a pending run",
+                Tags.empty(), dispatchSignalsCoalescedTotal, AtomicLong::get);
+        metrics.counter("settlement.leases.reaped", "Expired PROCESSING leases returned to CAPTURED",
+                Tags.empty(), leasesReapedTotal, AtomicLong::get);
+
+        metrics.gauge("settlement.pipeline.queue.depth", "Chunks waiting for a pipeline stage",
+                Tags.of("stage", "decide"), pipeline, SettlementPipeline::claimedQueueDepth);
+        metrics.gauge("settlement.pipeline.queue.depth", "Chunks waiting for a pipeline stage",
+                Tags.of("stage", "persist"), pipeline, SettlementPipeline::decidedQueueDepth);
+        metrics.gauge("settlement.gateway.in.flight", "Gateway calls awaiting an answer",
+                Tags.empty(), gatewayClient, SettlementGatewayClient::inFlight);
+        for (TransactionStatus status : TransactionStatus.values()) {
+            metrics.gauge("settlement.transactions", "Transactions by status (live counters)",
+                    Tags.of("status", status.name()), statusCounters, counters -> counters.count(status));
+        }
+        metrics.gauge("settlement.reconciliation.exceptions", "Rows in the reconciliation exception queue",
+                Tags.empty(), statusCounters, counters -> counters.count(ReconciliationStatus.EXCEPTION_QUEUED));
+        metrics.gauge("settlement.status.counter.drift", "Drift found by the last status counter recount",
+                Tags.empty(), statusCounters, TransactionStatusCounters::getLastDrift);
+    }
+
+    private Long captureToSettleMedianMillis() {
+        int sampleCount = (int) Math.min(captureToSettleSampleTotal.get(), CAPTURE_TO_SETTLE_SAMPLE_SIZE);
+        if (sampleCount == 0) {
+            return null;
+        }
+        long[] samples = new long[sampleCount];
+        for (int i = 0; i < sampleCount; i++) {
+            samples[i] = captureToSettleSamples.get(i);
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+
+    /**
+     * Publishes the last run and drops the run's slot in one swap. Returns the
+     * run as it stood, or null if it failed before taking a lock.
+     */
+    private ActiveRun finishRun(long runId, LastRun lastRun) {
+        RunState current;
+        AtomicReference<ActiveRun> slot;
+        do {
+            current = runState.get();
+            slot = findRun(current.activeRuns(), runId);
+        } while (!runState.compareAndSet(current, new RunState(
+                current.lock(),
+                lastRun,
+                current.lastClaims(),
+                slot == null ? current.activeRuns() : withoutRun(current.activeRuns(), slot)
+        )));
+        return slot == null ? null : slot.get();
+    }
+
+    private static AtomicReference<ActiveRun> findRun(List<AtomicReference<ActiveRun>> runs, long runId) {
+        for (int i = 0; i < runs.size(); i++) {
+            AtomicReference<ActiveRun> slot = runs.get(i);
+            if (slot.get().runId() == runId) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    private static List<AtomicReference<ActiveRun>> withRun(List<AtomicReference<ActiveRun>> runs,
+                                                           AtomicReference<ActiveRun> slot) {
+        List<AtomicReference<ActiveRun>> updated = new ArrayList<>(runs.size() + 1);
+        updated.addAll(runs);
+        updated.add(slot);
+        return Collections.unmodifiableList(updated);
+    }
+
+    private static List<AtomicReference<ActiveRun>> withoutRun(List<AtomicReference<ActiveRun>> runs,
+                                                              AtomicReference<ActiveRun> slot) {
+        List<AtomicReference<ActiveRun>> updated = new ArrayList<>(runs);
+        updated.remove(slot);
+        return Collections.unmodifiableList(updated);
+    }
+
+    private void recordHistory(ActiveRun run, LastRun lastRun) {
+        long durationMillis = Math.max(lastRun.durationMillis(), 0L);
+        LocalDateTime startedAt = run == null
+                ? lastRun.time().minusNanos(durationMillis * 1_000_000L)
+                : run.startedAt();
+        runHistory.publish(new SettlementRunRecord(
+                runHistory.nextSequence(),
+                lastRun.source(),
+                startedAt,
+                lastRun.time(),
+                durationMillis,
+                lastRun.error() == null,
+                lastRun.error(),
+                run == null ? 0L : run.claimed(),
+                lastRun.processedCount(),
+                run == null ? 0L : settledTransactionsTotal.get() - run.settledBaseline(),
+                run == null ? 0L : retriedTransactionsTotal.get() - run.retriedBaseline(),
+                run == null ? 0L : terminalFailedTransactionsTotal.get() - run.failedBaseline(),
+                run == null ? 0L : nanosToMillis(pipeline.claimBusyNanos() - run.claimBusyNanosBaseline()),
+                run == null ? 0L : nanosToMillis(pipeline.decideBusyNanos() - run.decideBusyNanosBaseline()),
+                run == null ? 0L : nanosToMillis(pipeline.persistBusyNanos() - run.persistBusyNanosBaseline())
+        ));
+    }
+
+    private static long nanosToMillis(long nanos) {
+        return nanos / 1_000_000L;
     }
 
     private double calculateAverageRunDurationMillis() {
@@ -171,4 +529,55 @@ public class SettlementMonitoringService {
         }
         return (double) cumulativeRunDurationMillis.get() / runs;
     }
+
+    private record RunState(LockState lock,
+                            LastRun lastRun,
+                            SettlementRunStats lastClaims,
+                            List<AtomicReference<ActiveRun>> activeRuns) {
+        private static final RunState EMPTY =
+                new RunState(LockState.EMPTY, LastRun.EMPTY, SettlementRunStats.EMPTY, List.of());
+    }
+
+    private record LockState(LocalDateTime acquiredAt,
+                             LocalDateTime releasedAt,
+                             LocalDateTime skippedAt,
+                             String holder,
+                             String source,
+                             String skippedSource) {
+        private static final LockState EMPTY = new LockState(null, null, null, null, null, null);
+
+        private LockState acquired(LocalDateTime at, String lockHolder, String lockSource) {
+            return new LockState(at, releasedAt, skippedAt, lockHolder, lockSource, skippedSource);
+        }
+
+        private LockState released(LocalDateTime at, String lockHolder, String lockSource) {
+            return new LockState(acquiredAt, at, skippedAt, lockHolder, lockSource, skippedSource);
+        }
+
+        private LockState skipped(LocalDateTime at, String lockSource) {
+            return new LockState(acquiredAt, releasedAt, at, holder, source, lockSource);
+        }
+    }
+
+    private record LastRun(LocalDateTime time, long processedCount, String source, Long durationMillis, String error) {
+        private static final LastRun EMPTY = new LastRun(null, 0L, null, null, null);
+    }
+
+    private record ActiveRun(long runId,
+                             String source,
+                             LocalDateTime startedAt,
+                             long claimed,
+                             long settledBaseline,
+                             long retriedBaseline,
+                             long failedBaseline,
+                             long claimBusyNanosBaseline,
+                             long decideBusyNanosBaseline,
+                             long persistBusyNanosBaseline) {
+
+        private ActiveRun plusClaimed(long claimedCount) {
+            return new ActiveRun(runId, source, startedAt, claimed + claimedCount, settledBaseline,
+                    retriedBaseline, failedBaseline, claimBusyNanosBaseline, decideBusyNanosBaseline,
+                    persistBusyNanosBaseline);
+        }
+    }
 }
@@ -0,0 +1,37 @@
+package com.kailas.settlementengine.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.UUID;
+
+/**
+ * Stable identity of this engine instance for the lifetime of the JVM. Used as
+ * lock holder and partition owner so operators can tell nodes apart.
+ */
+@Component
+public class SettlementNodeIdentity {
+
+    private final String nodeId;
+
+    public SettlementNodeIdentity(@Value("${settlement.node.id:}") String configuredNodeId) {
+        this.nodeId = configuredNodeId == null || configuredNodeId.isBlank()
+                ? defaultNodeId()
+                : configuredNodeId.trim();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private static String defaultNodeId() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        try {
+            return InetAddress.getLocalHost().getHostName() + "-" + suffix;
+        } catch (UnknownHostException e) {
+            return "node-" + suffix;
+        }
+    }
+}
@@ -7,33 +7,60 @@ import org.springframework.stereotype.Service;
 import java.util.Locale;
 import java.util.Random;
 
+/**
+ * Outcome profile of the stub settlement gateway: RANDOM fails with the configured
+ * failure rate, ALWAYS_SUCCESS / ALWAYS_FAIL are fixed.
+ */
 @Service
 public class SettlementOutcomeDecider {
 
+    private static final double DEFAULT_FAILURE_RATE = 0.5;
+
     private final SettlementOutcomeMode mode;
     private final Random random;
+    private final double failureRate;
 
     @Autowired
     public SettlementOutcomeDecider(
             @Value("${settlement.outcome.mode:RANDOM}") String configuredMode,
-            @Value("${settlement.outcome.random-seed:}") String configuredSeed
+            @Value("${settlement.outcome.random-seed:}") String configuredSeed,
+            @Value("${settlement.outcome.failure-rate:0.5}") double failureRate
     ) {
-        this(parseMode(configuredMode), parseSeed(configuredSeed));
+        this(parseMode(configuredMode), parseSeed(configuredSeed), failureRate);
+    }
+
+    public SettlementOutcomeDecider(String configuredMode, String configuredSeed) {
+        this(configuredMode, configuredSeed, DEFAULT_FAILURE_RATE);
     }
 
     SettlementOutcomeDecider(SettlementOutcomeMode mode, Long randomSeed) {
+        this(mode, randomSeed, DEFAULT_FAILURE_RATE);
+    }
+
+    SettlementOutcomeDecider(SettlementOutcomeMode mode, Long randomSeed, double failureRate) {
+        if (failureRate < 0.0 || failureRate > 1.0) {
+            throw new IllegalStateException(
+                    "Invalid settlement.outcome.failure-rate: " + failureRate
+                            + ". Expected a value between 0.0 and 1.0."
+            );
+        }
         this.mode = mode;
         this.random = randomSeed == null ? new Random() : new Random(randomSeed);
+        this.failureRate = failureRate;
     }
 
     public boolean shouldSucceed() {
         return switch (mode) {
             case ALWAYS_SUCCESS -> true;
             case ALWAYS_FAIL -> false;
-            case RANDOM -> random.nextBoolean();
+            case RANDOM -> random.nextDouble() >= failureRate;
         };
     }
 
+    public double getFailureRate() {
+        return failureRate;
+    }
+
     public SettlementOutcomeMode getMode() {
         return mode;
     }
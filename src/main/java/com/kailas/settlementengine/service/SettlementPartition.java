@@ -0,0 +1,16 @@
+package com.kailas.settlementengine.service;
+
+/**
+ * One slice of the settlement backlog: transactions whose merchant id maps to
+ * {@code index} modulo {@code count}. Each partition is settled under its own lock.
+ */
+public record SettlementPartition(int index, int count, String lockKey) {
+
+    public static SettlementPartition wholeBacklog() {
+        return new SettlementPartition(0, 1, SettlementPartitionService.LOCK_KEY);
+    }
+
+    public boolean isWholeBacklog() {
+        return count == 1;
+    }
+}
@@ -0,0 +1,154 @@
+package com.kailas.settlementengine.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits the backlog into merchant partitions and spreads them over live nodes.
+ * Nodes announce themselves in a Redis sorted set scored by heartbeat time; every
+ * node derives the same round-robin assignment from the sorted member list, so a
+ * node joining or expiring moves partitions without any coordinator. The partition
+ * locks still guard against two nodes settling one partition during a handover.
+ * Membership lives in Redis whatever the lock backend; with a single partition
+ * Redis is never touched.
+ */
+@Service
+public class SettlementPartitionService {
+
+    private static final Logger log = LoggerFactory.getLogger(SettlementPartitionService.class);
+    static final String LOCK_KEY = "settlement-lock";
+    private static final String NODES_KEY = "settlement-nodes";
+
+    private final StringRedisTemplate redisTemplate;
+    private final SettlementLockProvider lockProvider;
+    private final String nodeId;
+    private final int partitionCount;
+    private final long nodeTtlMillis;
+
+    public SettlementPartitionService(StringRedisTemplate redisTemplate,
+                                      SettlementLockProvider lockProvider,
+                                      SettlementNodeIdentity nodeIdentity,
+                                      @Value("${settlement.partitions.count:1}") int partitionCount,
+                                      @Value("${settlement.partitions.node-ttl-seconds:90}") long nodeTtlSeconds) {
+        if (partitionCount <= 0) {
+            throw new IllegalStateException("settlement.partitions.count must be greater than zero.");
+        }
+        this.redisTemplate = redisTemplate;
+        this.lockProvider = lockProvider;
+        this.nodeId = nodeIdentity.getNodeId();
+        this.partitionCount = partitionCount;
+        this.nodeTtlMillis = TimeUnit.SECONDS.toMillis(nodeTtlSeconds);
+    }
+
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    public SettlementPartition partition(int index) {
+        if (partitionCount == 1) {
+            return SettlementPartition.wholeBacklog();
+        }
+        return new SettlementPartition(index, partitionCount, LOCK_KEY + ":partition-" + index);
+    }
+
+    /**
+     * Refreshes this node's heartbeat and returns the partitions it currently owns.
+     */
+    public List<SettlementPartition> assignedPartitions() {
+        if (partitionCount == 1) {
+            return List.of(partition(0));
+        }
+
+        List<String> liveNodes = heartbeatAndListLiveNodes();
+        List<SettlementPartition> partitions = new ArrayList<>();
+        for (int index : assign(liveNodes, nodeId, partitionCount)) {
+            partitions.add(partition(index));
+        }
+        return partitions;
+    }
+
+    /**
+     * Partition -> assigned node, current lock holder and its remaining TTL, for
+     * the stats endpoint. The TTL is null when free or when the lock backend's
+     * locks do not expire.
+     */
+    public List<Map<String, Object>> describePartitions() {
+        List<String> liveNodes = listLiveNodes();
+
+        List<String> lockKeys = new ArrayList<>(partitionCount);
+        for (int index = 0; index < partitionCount; index++) {
+            lockKeys.add(partition(index).lockKey());
+        }
+        List<SettlementLockStatus> locks = lockProvider.getLockStatuses(lockKeys);
+
+        List<Map<String, Object>> partitions = new ArrayList<>(partitionCount);
+        for (int index = 0; index < partitionCount; index++) {
+            Map<String, Object> view = new LinkedHashMap<>();
+            view.put("partition", index);
+            view.put("assignedNode", liveNodes.isEmpty() ? null : liveNodes.get(index % liveNodes.size()));
+            view.put("lockHolder", locks.get(index).holder());
+            view.put("lockTtlMillis", locks.get(index).ttlMillis() < 0 ? null : locks.get(index).ttlMillis());
+            partitions.add(view);
+        }
+        return partitions;
+    }
+
+    public List<String> listLiveNodes() {
+        if (partitionCount == 1) {
+            return List.of(nodeId);
+        }
+        long cutoff = System.currentTimeMillis() - nodeTtlMillis;
+        Set<String> members = redisTemplate.opsForZSet()
+                .rangeByScore(NODES_KEY, cutoff, Double.POSITIVE_INFINITY);
+        return members == null ? List.of() : members.stream().sorted().toList();
+    }
+
+    @PreDestroy
+    public void leave() {
+        if (partitionCount == 1) {
+            return;
+        }
+        try {
+            redisTemplate.opsForZSet().remove(NODES_KEY, nodeId);
+            log.info("event=settlement_node_left nodeId={}", nodeId);
+        } catch (RuntimeException ex) {
+            log.warn("event=settlement_node_leave_failed nodeId={} message={}", nodeId, ex.getMessage());
+        }
+    }
+
+    /**
+     * Round-robin over the sorted live node list. Every node computes the same
+     * result from the same membership, so assignments are disjoint and complete.
+     */
+    static List<Integer> assign(List<String> liveNodes, String nodeId, int partitionCount) {
+        List<String> sortedNodes = liveNodes.stream().sorted().toList();
+        int nodeIndex = sortedNodes.indexOf(nodeId);
+        if (nodeIndex < 0) {
+            return List.of();
+        }
+
+        List<Integer> owned = new ArrayList<>();
+        for (int index = nodeIndex; index < partitionCount; index += sortedNodes.size()) {
+            owned.add(index);
+        }
+        return owned;
+    }
+
+    private List<String> heartbeatAndListLiveNodes() {
+        long now = System.currentTimeMillis();
+        redisTemplate.opsForZSet().add(NODES_KEY, nodeId, now);
+        redisTemplate.opsForZSet().removeRangeByScore(NODES_KEY, 0, now - nodeTtlMillis);
+        return listLiveNodes();
+    }
+}
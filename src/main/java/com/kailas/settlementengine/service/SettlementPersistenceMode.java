@@ -0,0 +1,24 @@
+package com.kailas.settlementengine.service;
+
+import java.util.Locale;
+
+public enum SettlementPersistenceMode {
+    BATCHED,
+    PER_TRANSACTION;
+
+    static SettlementPersistenceMode parse(String configuredMode) {
+        if (configuredMode == null || configuredMode.isBlank()) {
+            return BATCHED;
+        }
+
+        try {
+            return valueOf(configuredMode.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException(
+                    "Invalid settlement.persistence.mode: " + configuredMode
+                            + ". Allowed values: BATCHED, PER_TRANSACTION",
+                    e
+            );
+        }
+    }
+}
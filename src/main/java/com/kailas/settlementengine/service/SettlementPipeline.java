@@ -0,0 +1,259 @@
+package com.kailas.settlementengine.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Staged settlement: the claimer (caller thread) feeds claimed id chunks into a
+ * bounded queue, a decider thread sends them to the gateway and queues the pending
+ * decisions, and the worker pool persists each chunk once its decisions are in.
+ * Gateway calls of several queued chunks therefore overlap. Writing the
+ * SettlementLog and updating the Transaction stay in one stage so both land in the
+ * same DB transaction. Full queues block the stage in front of them, so a stalled
+ * DB write holds the claimer back instead of letting PROCESSING rows pile up in memory.
+ */
+@Component
+public class SettlementPipeline {
+
+    private static final long OFFER_WAIT_MILLIS = 100;
+
+    private final SettlementWorkerPool workerPool;
+    private final int queueCapacity;
+    private final ExecutorService deciderExecutor;
+    private final Set<Run> activeRuns = ConcurrentHashMap.newKeySet();
+
+    private final StageMetrics claimStage = new StageMetrics("claim");
+    private final StageMetrics decideStage = new StageMetrics("decide");
+    private final StageMetrics persistStage = new StageMetrics("persist");
+
+    public SettlementPipeline(SettlementWorkerPool workerPool,
+                              @Value("${settlement.pipeline.queue-capacity:8}") int queueCapacity) {
+        if (queueCapacity <= 0) {
+            throw new IllegalStateException("settlement.pipeline.queue-capacity must be greater than zero.");
+        }
+        this.workerPool = workerPool;
+        this.queueCapacity = queueCapacity;
+
+        AtomicInteger threadIndex = new AtomicInteger(1);
+        this.deciderExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "settlement-decider-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Run start(Function<List<Long>, CompletableFuture<List<SettlementDecision>>> decider,
+                     ToLongFunction<List<SettlementDecision>> persister) {
+        Run run = new Run(decider, persister);
+        activeRuns.add(run);
+        return run;
+    }
+
+    public void recordClaim(long durationNanos) {
+        claimStage.record(durationNanos);
+    }
+
+    /**
+     * Queue depth (summed over active runs) and service time per stage.
+     */
+    public List<Map<String, Object>> describeStages() {
+        List<Map<String, Object>> stages = new ArrayList<>(3);
+        stages.add(claimStage.describe(null, queueCapacity));
+        stages.add(decideStage.describe(claimedQueueDepth(), queueCapacity));
+        stages.add(persistStage.describe(decidedQueueDepth(), queueCapacity));
+        return stages;
+    }
+
+    /**
+     * Claimed chunks waiting for the decide stage, over all active runs.
+     */
+    public int claimedQueueDepth() {
+        int depth = 0;
+        for (Run run : activeRuns) {
+            depth += run.claimedQueue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * Decided chunks waiting for the persist stage, over all active runs.
+     */
+    public int decidedQueueDepth() {
+        int depth = 0;
+        for (Run run : activeRuns) {
+            depth += run.decidedQueue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * Total service time per stage since startup; callers diff two readings to
+     * get the time spent over a run.
+     */
+    public long claimBusyNanos() {
+        return claimStage.busyNanos.sum();
+    }
+
+    public long decideBusyNanos() {
+        return decideStage.busyNanos.sum();
+    }
+
+    public long persistBusyNanos() {
+        return persistStage.busyNanos.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        deciderExecutor.shutdownNow();
+    }
+
+    public final class Run {
+        private final BlockingQueue<List<Long>> claimedQueue = new ArrayBlockingQueue<>(queueCapacity);
+        private final BlockingQueue<CompletableFuture<List<SettlementDecision>>> decidedQueue =
+                new ArrayBlockingQueue<>(queueCapacity);
+        private final SettlementWorkerPool.Drain<CompletableFuture<List<SettlementDecision>>> persistDrain;
+        private final Future<?> deciderFuture;
+        private volatile boolean claimingDone;
+
+        private Run(Function<List<Long>, CompletableFuture<List<SettlementDecision>>> decider,
+                    ToLongFunction<List<SettlementDecision>> persister) {
+            this.persistDrain = workerPool.startDraining(decidedQueue, pendingDecisions -> {
+                List<SettlementDecision> decisions = pendingDecisions.join();
+                if (decisions.isEmpty()) {
+                    return 0L;
+                }
+                long startedAt = System.nanoTime();
+                long persisted = persister.applyAsLong(decisions);
+                persistStage.record(System.nanoTime() - startedAt);
+                return persisted;
+            });
+            this.deciderFuture = deciderExecutor.submit(() -> decideLoop(decider));
+        }
+
+        /**
+         * Hands a claimed chunk to the decide stage, waiting while the stage is
+         * backed up. Fails fast if a downstream stage has already failed.
+         */
+        public void submit(List<Long> claimedIds) {
+            offer(claimedQueue, claimedIds, this::downstreamFailed);
+        }
+
+        /**
+         * Signals that claiming is over and waits until every stage has drained.
+         * Returns transactions persisted per worker.
+         */
+        public Map<String, Long> finish() {
+            claimingDone = true;
+            try {
+                deciderFuture.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the decide stage.", e);
+            } catch (ExecutionException e) {
+                persistDrain.close();
+                persistDrain.await();
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IllegalStateException("Settlement decide stage failed.", cause);
+            } finally {
+                activeRuns.remove(this);
+            }
+            return persistDrain.await();
+        }
+
+        private boolean downstreamFailed() {
+            return persistDrain.isFailed() || deciderFuture.isDone();
+        }
+
+        private void decideLoop(Function<List<Long>, CompletableFuture<List<SettlementDecision>>> decider) {
+            try {
+                while (true) {
+                    List<Long> claimedIds = claimedQueue.poll(OFFER_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                    if (claimedIds == null) {
+                        if (claimingDone && claimedQueue.isEmpty()) {
+                            return;
+                        }
+                        continue;
+                    }
+
+                    // Service time is submit-to-last-decision, i.e. gateway latency
+                    // for the chunk, not just the time spent on this thread.
+                    long startedAt = System.nanoTime();
+                    CompletableFuture<List<SettlementDecision>> decisions = decider.apply(claimedIds)
+                            .whenComplete((ignored, error) -> decideStage.record(System.nanoTime() - startedAt));
+                    offer(decidedQueue, decisions, persistDrain::isFailed);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Settlement decide stage interrupted.", e);
+            } finally {
+                persistDrain.close();
+            }
+        }
+    }
+
+    private static <T> void offer(BlockingQueue<T> queue, T item, BooleanSupplier aborted) {
+        try {
+            while (!queue.offer(item, OFFER_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (aborted.getAsBoolean()) {
+                    throw new IllegalStateException("Settlement pipeline stage failed; stopping upstream stage.");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while handing work to the next settlement stage.", e);
+        }
+    }
+
+    private static final class StageMetrics {
+        private final String name;
+        private final LongAdder chunks = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+        private volatile long lastServiceNanos;
+
+        private StageMetrics(String name) {
+            this.name = name;
+        }
+
+        private void record(long durationNanos) {
+            chunks.increment();
+            busyNanos.add(durationNanos);
+            lastServiceNanos = durationNanos;
+        }
+
+        private Map<String, Object> describe(Integer queueDepth, int queueCapacity) {
+            long count = chunks.sum();
+            Map<String, Object> view = new LinkedHashMap<>();
+            view.put("stage", name);
+            view.put("queueDepth", queueDepth);
+            view.put("queueCapacity", queueDepth == null ? null : queueCapacity);
+            view.put("chunksTotal", count);
+            view.put("averageServiceMillis", count == 0 ? 0.0 : busyNanos.sum() / 1_000_000.0 / count);
+            view.put("lastServiceMillis", lastServiceNanos / 1_000_000.0);
+            return view;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.kailas.settlementengine.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size ring of the last finished runs. Writers take a sequence number and
+ * publish into its slot without locking; readers walk back from the newest
+ * sequence and skip slots that were overwritten or not yet published.
+ */
+public class SettlementRunHistory {
+
+    private final AtomicReferenceArray<SettlementRunRecord> slots;
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    public SettlementRunHistory(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalStateException("settlement.runs.history-size must be greater than zero.");
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+
+    /**
+     * Reserves the sequence number for the next record.
+     */
+    public long nextSequence() {
+        return nextSequence.getAndIncrement();
+    }
+
+    public void publish(SettlementRunRecord record) {
+        slots.set(slotOf(record.sequence()), record);
+    }
+
+    /**
+     * Up to limit records, newest first.
+     */
+    public List<SettlementRunRecord> recent(int limit) {
+        long newest = nextSequence.get() - 1;
+        long oldest = Math.max(0L, newest - Math.min(limit, slots.length()) + 1);
+        List<SettlementRunRecord> records = new ArrayList<>();
+        for (long sequence = newest; sequence >= oldest; sequence--) {
+            SettlementRunRecord record = slots.get(slotOf(sequence));
+            if (record != null && record.sequence() == sequence) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    private int slotOf(long sequence) {
+        return (int) (sequence % slots.length());
+    }
+}
@@ -0,0 +1,27 @@
+package com.kailas.settlementengine.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * One finished settlement run on this node. Stage times are the busy time each
+ * pipeline stage spent while the run was active, so they include concurrent runs
+ * on other partitions of this node.
+ */
+public record SettlementRunRecord(
+        long sequence,
+        String source,
+        LocalDateTime startedAt,
+        LocalDateTime finishedAt,
+        long durationMillis,
+        boolean succeeded,
+        String error,
+        long claimedCount,
+        long processedCount,
+        long settledCount,
+        long retriedCount,
+        long failedCount,
+        long claimMillis,
+        long decideMillis,
+        long persistMillis
+) {
+}
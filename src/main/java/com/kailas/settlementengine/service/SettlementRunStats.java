@@ -0,0 +1,53 @@
+package com.kailas.settlementengine.service;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+public record SettlementRunStats(
+        long processedCount,
+        long claimedCount,
+        long claimDurationMillis,
+        Map<String, Long> processedByWorker,
+        Map<Integer, Long> resumeAfterIdByPartition
+) {
+    public static final SettlementRunStats EMPTY =
+            new SettlementRunStats(0L, 0L, 0L, Map.of(), Map.of());
+
+    public SettlementRunStats {
+        processedByWorker = sortedCopy(processedByWorker);
+        resumeAfterIdByPartition = sortedCopy(resumeAfterIdByPartition);
+    }
+
+    public double claimsPerSecond() {
+        if (claimedCount <= 0) {
+            return 0.0;
+        }
+        return claimedCount * 1000.0 / Math.max(claimDurationMillis, 1L);
+    }
+
+    /**
+     * Combines the stats of two partition runs of the same settlement run.
+     */
+    public SettlementRunStats plus(SettlementRunStats other) {
+        Map<String, Long> workers = new TreeMap<>(processedByWorker);
+        other.processedByWorker.forEach((worker, count) -> workers.merge(worker, count, Long::sum));
+
+        Map<Integer, Long> cursors = new TreeMap<>(resumeAfterIdByPartition);
+        cursors.putAll(other.resumeAfterIdByPartition);
+
+        return new SettlementRunStats(
+                processedCount + other.processedCount,
+                claimedCount + other.claimedCount,
+                claimDurationMillis + other.claimDurationMillis,
+                workers,
+                cursors
+        );
+    }
+
+    private static <K, V> Map<K, V> sortedCopy(Map<K, V> source) {
+        return source == null
+                ? Map.of()
+                : Collections.unmodifiableMap(new TreeMap<>(source));
+    }
+}
@@ -6,17 +6,24 @@ import com.kailas.settlementengine.entity.Transaction;
 import com.kailas.settlementengine.entity.TransactionStatus;
 import com.kailas.settlementengine.repository.SettlementLogRepository;
 import com.kailas.settlementengine.repository.TransactionRepository;
-import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.PlatformTransactionManager;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class SettlementService {
@@ -25,59 +32,71 @@ public class SettlementService {
 
     private final TransactionRepository transactionRepository;
     private final SettlementLogRepository settlementLogRepository;
-    private final SettlementOutcomeDecider outcomeDecider;
+    private final SettlementGatewayClient gatewayClient;
     private final ReconciliationService reconciliationService;
     private final SettlementMonitoringService monitoringService;
     private final TransactionStateMachine transactionStateMachine;
     private final TransactionTemplate transactionTemplate;
+    private final SettlementPipeline pipeline;
+    private final SettlementLeaseService leaseService;
+    private final SettlementFenceService fenceService;
+    private final RetryBackoffPolicy retryBackoffPolicy;
+    private final SettlementMetrics metrics;
+    private final SettlementFlightRecorder flightRecorder;
     private final long manualProcessingVisibilityHoldMillis;
+    private final int claimBatchSize;
+    private final long maxTransactionsPerRun;
+    private final Map<Integer, Long> resumeAfterIdByPartition = new ConcurrentHashMap<>();
+    private final SettlementPersistenceMode persistenceMode;
+    private final int persistenceBatchSize;
 
     public SettlementService(TransactionRepository transactionRepository,
                              SettlementLogRepository settlementLogRepository,
-                             SettlementOutcomeDecider outcomeDecider,
+                             SettlementGatewayClient gatewayClient,
                              ReconciliationService reconciliationService,
                              SettlementMonitoringService monitoringService,
                              TransactionStateMachine transactionStateMachine,
                              PlatformTransactionManager transactionManager,
+                             SettlementPipeline pipeline,
+                             SettlementLeaseService leaseService,
+                             SettlementFenceService fenceService,
+                             RetryBackoffPolicy retryBackoffPolicy,
+                             SettlementMetrics metrics,
+                             SettlementFlightRecorder flightRecorder,
                              @Value("${settlement.processing.visibility-hold-millis.manual:2500}")
-                             long manualProcessingVisibilityHoldMillis) {
+                             long manualProcessingVisibilityHoldMillis,
+                             @Value("${settlement.claim.batch-size:200}")
+                             int claimBatchSize,
+                             @Value("${settlement.run.max-transactions:0}")
+                             long maxTransactionsPerRun,
+                             @Value("${settlement.persistence.mode:BATCHED}")
+                             String persistenceMode,
+                             @Value("${settlement.persistence.batch-size:50}")
+                             int persistenceBatchSize) {
+        if (claimBatchSize <= 0) {
+            throw new IllegalStateException("settlement.claim.batch-size must be greater than zero.");
+        }
+        if (persistenceBatchSize <= 0) {
+            throw new IllegalStateException("settlement.persistence.batch-size must be greater than zero.");
+        }
         this.transactionRepository = transactionRepository;
         this.settlementLogRepository = settlementLogRepository;
-        this.outcomeDecider = outcomeDecider;
+        this.gatewayClient = gatewayClient;
         this.reconciliationService = reconciliationService;
         this.monitoringService = monitoringService;
         this.transactionStateMachine = transactionStateMachine;
         this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.pipeline = pipeline;
+        this.leaseService = leaseService;
+        this.fenceService = fenceService;
+        this.retryBackoffPolicy = retryBackoffPolicy;
+        this.metrics = metrics;
+        this.flightRecorder = flightRecorder;
         this.manualProcessingVisibilityHoldMillis = manualProcessingVisibilityHoldMillis;
-    }
-
-    /**
-     * Recovery logic:
-     * If the application crashes while a transaction is in PROCESSING,
-     * we revert it back to CAPTURED so it can be retried.
-     */
-    @PostConstruct
-    @Transactional
-    public void recoverStuckTransactions() {
-
-        List<Transaction> processingTransactions =
-                transactionRepository.findByStatus(TransactionStatus.PROCESSING);
-
-        for (Transaction transaction : processingTransactions) {
-            transactionStateMachine.transition(
-                    transaction,
-                    TransactionStatus.CAPTURED,
-                    "startup-recovery"
-            );
-            transactionRepository.save(transaction);
-        }
-
-        if (!processingTransactions.isEmpty()) {
-            log.info(
-                    "event=settlement_recovery recoveredProcessingCount={}",
-                    processingTransactions.size()
-            );
-        }
+        this.claimBatchSize = claimBatchSize;
+        this.maxTransactionsPerRun = maxTransactionsPerRun;
+        this.persistenceMode = SettlementPersistenceMode.parse(persistenceMode);
+        this.persistenceBatchSize = persistenceBatchSize;
     }
 
     /**
@@ -89,81 +108,373 @@ public class SettlementService {
     }
 
     public long processSettlements(String triggerSource) {
+        return runSettlement(triggerSource, SettlementPartition.wholeBacklog(), null, SettlementMonitoringService.NO_RUN)
+                .processedCount();
+    }
+
+    /**
+     * Settles one partition. With a lock lease, every claim is fenced by its
+     * token and claiming stops once the watchdog reports the lock lost; rows
+     * already claimed are still settled, since they are owned by this node's lease.
+     * Claims are counted against {@code runId} in the active-run view.
+     */
+    public SettlementRunStats runSettlement(String triggerSource,
+                                            SettlementPartition partition,
+                                            SettlementLockLease lockLease,
+                                            long runId) {
 
         log.info(
-                "event=settlement_run_started triggerSource={} thread={}",
+                "event=settlement_run_started triggerSource={} partition={}/{} thread={}",
                 triggerSource,
+                partition.index(),
+                partition.count(),
                 Thread.currentThread().getName()
         );
 
-        List<Transaction> transactions =
-                transactionRepository.findByStatus(TransactionStatus.CAPTURED);
-        List<Long> capturedIds = transactions.stream()
-                .map(Transaction::getId)
-                .toList();
+        long startAfterId = resumeAfterIdByPartition.getOrDefault(partition.index(), 0L);
+        long lastSeenId = startAfterId;
+        long candidateCount = 0;
+        long claimedCount = 0;
+        long claimDurationNanos = 0;
+        boolean budgetExhausted = false;
+
+        // Only ids this run still holds get their lease renewed. Whatever it
+        // leaves unsettled (a failed persist, an aborted hand-off) stops being
+        // renewed once the run ends, so the reaper returns it to CAPTURED.
+        SettlementLeaseService.InFlightClaims inFlightClaims = leaseService.openClaims();
+        Map<String, Long> processedByWorker;
+        try {
+            // Claiming runs on this thread and only waits when the decide/persist
+            // queues are full, so a slow DB write throttles the claimer.
+            SettlementPipeline.Run run = pipeline.start(
+                    this::decideOutcomes,
+                    decisions -> {
+                        try {
+                            return persistDecisions(decisions, persistenceMode);
+                        } finally {
+                            inFlightClaims.remove(decisions.stream().map(SettlementDecision::transactionId).toList());
+                        }
+                    }
+            );
+            try {
+                while (true) {
+                    if (lockLease != null && lockLease.isLost()) {
+                        log.warn(
+                                "event=settlement_claiming_stopped triggerSource={} partition={} lockId={} reason=lock_lost",
+                                triggerSource,
+                                partition.index(),
+                                lockLease.lockId()
+                        );
+                        break;
+                    }
+                    List<Long> page = loadCandidatePage(partition, lastSeenId);
+                    if (page.isEmpty()) {
+                        break;
+                    }
+                    candidateCount += page.size();
+                    lastSeenId = page.get(page.size() - 1);
+
+                    long claimStartedAt = System.nanoTime();
+                    List<Long> claimedIds = claimBatch(page, lockLease);
+                    long claimNanos = System.nanoTime() - claimStartedAt;
+                    claimDurationNanos += claimNanos;
+                    pipeline.recordClaim(claimNanos);
+                    metrics.recordClaim(claimNanos);
+
+                    if (!claimedIds.isEmpty()) {
+                        inFlightClaims.add(claimedIds);
+                        claimedCount += claimedIds.size();
+                        monitoringService.recordBatchClaimed(runId, claimedIds.size());
+
+                        holdProcessingForVisibility(triggerSource);
+
+                        for (List<Long> chunk : chunk(claimedIds)) {
+                            run.submit(chunk);
+                        }
+                    }
+
+                    if (page.size() < claimBatchSize) {
+                        break;
+                    }
+                    if (maxTransactionsPerRun > 0 && claimedCount >= maxTransactionsPerRun) {
+                        budgetExhausted = true;
+                        break;
+                    }
+                }
+            } catch (RuntimeException ex) {
+                // Let the stages finish what was already claimed; a stage failure is
+                // the root cause when the claimer stopped because a queue was stuck.
+                try {
+                    run.finish();
+                } catch (RuntimeException stageFailure) {
+                    stageFailure.addSuppressed(ex);
+                    throw stageFailure;
+                }
+                throw ex;
+            }
+            processedByWorker = run.finish();
+        } finally {
+            inFlightClaims.close();
+        }
+        long processedCount = processedByWorker.values().stream().mapToLong(Long::longValue).sum();
+
+        // Stop partway only when the run budget ran out; the next tick resumes
+        // after the last key. A full sweep starts the next run from the beginning.
+        long nextResumeAfterId = budgetExhausted ? lastSeenId : 0L;
+        resumeAfterIdByPartition.put(partition.index(), nextResumeAfterId);
 
         log.info(
-                "event=settlement_candidates_loaded triggerSource={} capturedCount={}",
+                "event=settlement_candidates_scanned triggerSource={} partition={} startAfterId={} candidateCount={} resumeAfterId={}",
                 triggerSource,
-                capturedIds.size()
+                partition.index(),
+                startAfterId,
+                candidateCount,
+                nextResumeAfterId
         );
 
-        long processedCount = 0;
+        // Nothing reached SETTLED/FAILED in this run, so there is nothing new to reconcile.
+        if (processedCount > 0) {
+            reconciliationService.reconcilePendingTransactions();
+        }
+
+        SettlementRunStats stats = new SettlementRunStats(
+                processedCount,
+                claimedCount,
+                TimeUnit.NANOSECONDS.toMillis(claimDurationNanos),
+                processedByWorker,
+                Map.of(partition.index(), nextResumeAfterId)
+        );
+        log.info(
+                "event=settlement_claims_completed triggerSource={} partition={} claimedCount={} claimDurationMillis={} claimsPerSecond={}",
+                triggerSource,
+                partition.index(),
+                stats.claimedCount(),
+                stats.claimDurationMillis(),
+                String.format(Locale.ROOT, "%.1f", stats.claimsPerSecond())
+        );
+        return stats;
+    }
 
-        for (Long transactionId : capturedIds) {
-            Integer updatedRows = transactionTemplate.execute(status ->
-                    transactionRepository.claimTransaction(transactionId)
+    private List<Long> loadCandidatePage(SettlementPartition partition, long afterId) {
+        if (partition.isWholeBacklog()) {
+            return transactionRepository.findDueIdsByStatusAfter(
+                    TransactionStatus.CAPTURED,
+                    afterId,
+                    LocalDateTime.now(),
+                    PageRequest.of(0, claimBatchSize)
             );
+        }
+        return transactionRepository.findDueIdsByStatusAfterInPartition(
+                TransactionStatus.CAPTURED,
+                afterId,
+                LocalDateTime.now(),
+                partition.count(),
+                partition.index(),
+                PageRequest.of(0, claimBatchSize)
+        );
+    }
+
+    /**
+     * Claims up to one batch of CAPTURED transactions in a single short
+     * transaction: the claimable rows are locked with SKIP LOCKED and flipped
+     * to PROCESSING under this node's lease with one UPDATE. Rows locked or
+     * already claimed by another node are left out of the returned ids. A
+     * stale fencing token fails the claim before any row is touched.
+     */
+    private List<Long> claimBatch(List<Long> candidateIds, SettlementLockLease lockLease) {
+        List<Long> claimedIds = transactionTemplate.execute(status -> {
+            if (lockLease != null && lockLease.isFenced()) {
+                fenceService.check(lockLease);
+            }
+            List<Long> lockedIds = transactionRepository.lockClaimableIds(
+                    candidateIds,
+                    LocalDateTime.now()
+            );
+            if (lockedIds.isEmpty()) {
+                return List.<Long>of();
+            }
+            int claimed = transactionRepository.claimTransactions(
+                    lockedIds,
+                    leaseService.getOwnerId(),
+                    leaseService.nextLeaseExpiry()
+            );
+            transactionStateMachine.recordBulkTransition(TransactionStatus.CAPTURED, TransactionStatus.PROCESSING, claimed);
+            return lockedIds;
+        });
+        return claimedIds == null ? List.of() : claimedIds;
+    }
 
-            if (updatedRows == null || updatedRows == 0) {
-                // Already claimed by another instance
-                continue;
+    private List<List<Long>> chunk(List<Long> claimedIds) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < claimedIds.size(); from += persistenceBatchSize) {
+            chunks.add(claimedIds.subList(from, Math.min(from + persistenceBatchSize, claimedIds.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * Sends every id of the chunk to the gateway without waiting for answers;
+     * the future completes once all decisions for the chunk are in.
+     */
+    private CompletableFuture<List<SettlementDecision>> decideOutcomes(List<Long> claimedIds) {
+        List<CompletableFuture<SettlementDecision>> pending = new ArrayList<>(claimedIds.size());
+        for (Long transactionId : claimedIds) {
+            pending.add(gatewayClient.settle(transactionId));
+        }
+        return CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> pending.stream().map(CompletableFuture::join).toList());
+    }
+
+    /**
+     * Writes the SettlementLog and updates the Transaction for each decision.
+     * Both writes for a transaction always share one DB transaction. Once that
+     * commits, rows that reached SETTLED/FAILED are handed to reconciliation.
+     * The persist stage of every run; package-private so the persistence
+     * benchmark measures this exact path.
+     */
+    long persistDecisions(List<SettlementDecision> decisions, SettlementPersistenceMode mode) {
+        if (mode == SettlementPersistenceMode.PER_TRANSACTION) {
+            long settled = 0;
+            for (SettlementDecision decision : decisions) {
+                SettlementFlightRecorder.PersistEvent persistEvent = flightRecorder.beginPersist(mode, 1);
+                long startedAt = System.nanoTime();
+                List<Transaction> persisted = transactionTemplate.execute(status -> settleClaimedTransaction(decision));
+                metrics.recordPersist(System.nanoTime() - startedAt, mode);
+                flightRecorder.endPersist(persistEvent, persisted == null ? 0 : persisted.size());
+                settled += enqueueTerminal(persisted);
             }
+            return settled;
+        }
 
-            holdProcessingForVisibility(triggerSource);
+        SettlementFlightRecorder.PersistEvent persistEvent = flightRecorder.beginPersist(mode, decisions.size());
+        long startedAt = System.nanoTime();
+        List<Transaction> persisted = transactionTemplate.execute(status -> settleClaimedChunk(decisions));
+        metrics.recordPersist(System.nanoTime() - startedAt, mode);
+        flightRecorder.endPersist(persistEvent, persisted == null ? 0 : persisted.size());
+        return enqueueTerminal(persisted);
+    }
 
-            Boolean processed = transactionTemplate.execute(status ->
-                    settleClaimedTransaction(transactionId)
-            );
-            if (Boolean.TRUE.equals(processed)) {
-                processedCount++;
+    private long enqueueTerminal(List<Transaction> persisted) {
+        if (persisted == null || persisted.isEmpty()) {
+            return 0L;
+        }
+        List<Long> terminalIds = new ArrayList<>(persisted.size());
+        for (Transaction transaction : persisted) {
+            if (transaction.getStatus() == TransactionStatus.SETTLED
+                    || transaction.getStatus() == TransactionStatus.FAILED) {
+                terminalIds.add(transaction.getId());
             }
         }
+        if (!terminalIds.isEmpty()) {
+            reconciliationService.enqueue(terminalIds);
+        }
+        return persisted.size();
+    }
 
-        transactionTemplate.execute(status -> {
-            reconciliationService.reconcilePendingTransactions();
-            return null;
-        });
+    private List<Transaction> settleClaimedTransaction(SettlementDecision decision) {
+        SettlementFlightRecorder.TransactionSettleEvent settleEvent = flightRecorder.beginTransactionSettle(
+                decision.transactionId(),
+                SettlementPersistenceMode.PER_TRANSACTION
+        );
+        List<Transaction> owned = transactionRepository.lockOwnedProcessing(
+                List.of(decision.transactionId()),
+                leaseService.getOwnerId()
+        );
+        if (owned.isEmpty()) {
+            flightRecorder.endTransactionSettle(settleEvent, null, 0);
+            return List.of();
+        }
+        Transaction transaction = owned.get(0);
 
-        return processedCount;
+        SettlementLog settlementLog = applySettlementOutcome(transaction, decision);
+
+        settlementLogRepository.save(settlementLog);
+        transactionRepository.save(transaction);
+        flightRecorder.endTransactionSettle(
+                settleEvent,
+                transaction.getStatus().name(),
+                settlementLog.getAttemptNumber()
+        );
+        return owned;
     }
 
-    private boolean settleClaimedTransaction(Long transactionId) {
-        Transaction transaction = transactionRepository.findByIdAndStatus(
-                        transactionId,
-                        TransactionStatus.PROCESSING
-                )
-                .orElse(null);
+    private List<Transaction> settleClaimedChunk(List<SettlementDecision> decisions) {
+        Map<Long, SettlementDecision> decisionById = new HashMap<>();
+        for (SettlementDecision decision : decisions) {
+            decisionById.put(decision.transactionId(), decision);
+        }
+
+        List<Transaction> transactions = transactionRepository.lockOwnedProcessing(
+                decisionById.keySet(),
+                leaseService.getOwnerId()
+        );
+        if (transactions.isEmpty()) {
+            return List.of();
+        }
 
-        if (transaction == null) {
-            return false;
+        List<SettlementLog> settlementLogs = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            SettlementFlightRecorder.TransactionSettleEvent settleEvent = flightRecorder.beginTransactionSettle(
+                    transaction.getId(),
+                    SettlementPersistenceMode.BATCHED
+            );
+            SettlementLog settlementLog = applySettlementOutcome(transaction, decisionById.get(transaction.getId()));
+            settlementLogs.add(settlementLog);
+            flightRecorder.endTransactionSettle(
+                    settleEvent,
+                    transaction.getStatus().name(),
+                    settlementLog.getAttemptNumber()
+            );
         }
 
-        boolean success = outcomeDecider.shouldSucceed();
+        settlementLogRepository.saveAll(settlementLogs);
+        transactionRepository.saveAll(transactions);
+        return transactions;
+    }
+
+    private SettlementLog applySettlementOutcome(Transaction transaction, SettlementDecision decision) {
+        transaction.setClaimOwner(null);
+        transaction.setLeaseExpiresAt(null);
 
         SettlementLog settlementLog = new SettlementLog();
         settlementLog.setAttemptNumber(transaction.getRetryCount() + 1);
         settlementLog.setTimestamp(LocalDateTime.now());
         settlementLog.setTransaction(transaction);
 
-        if (success) {
+        if (decision.outcomeUnknown()) {
+            // The bank may have settled it: resend under the same idempotency key
+            // after backoff, without spending one of the transaction's attempts.
+            settlementLog.setResult("UNKNOWN");
+            settlementLog.setMessage("Settlement gateway did not answer; resending");
+
+            log.info(
+                    "event=transaction_outcome_unknown transactionId={} attempt={}",
+                    transaction.getId(),
+                    settlementLog.getAttemptNumber()
+            );
+
+            transactionStateMachine.transition(
+                    transaction,
+                    TransactionStatus.CAPTURED,
+                    "gateway-outcome-unknown"
+            );
+            transaction.setNextAttemptAt(LocalDateTime.now().plus(
+                    retryBackoffPolicy.delayAfter(transaction.getRetryCount(), transaction.getMerchant())
+            ));
+            monitoringService.recordTransactionRetried();
+        } else if (decision.success()) {
             transactionStateMachine.transition(
                     transaction,
                     TransactionStatus.SETTLED,
                     "settlement-success"
             );
             transaction.setSettledAt(LocalDateTime.now());
-            transaction.setReconciliationStatus(ReconciliationStatus.PENDING);
+            if (transaction.getCreatedAt() != null) {
+                monitoringService.recordCaptureToSettle(
+                        Duration.between(transaction.getCreatedAt(), transaction.getSettledAt()).toMillis()
+                );
+            }
+            transactionStateMachine.changeReconciliationStatus(transaction, ReconciliationStatus.PENDING);
             transaction.setExceptionReason(null);
             transaction.setReconciliationUpdatedAt(LocalDateTime.now());
 
@@ -197,17 +508,18 @@ public class SettlementService {
                         TransactionStatus.CAPTURED,
                         "retry-remaining"
                 );
+                transaction.setNextAttemptAt(LocalDateTime.now().plus(
+                        retryBackoffPolicy.delayAfter(transaction.getRetryCount(), transaction.getMerchant())
+                ));
                 monitoringService.recordTransactionRetried();
             }
 
-            transaction.setReconciliationStatus(ReconciliationStatus.PENDING);
+            transactionStateMachine.changeReconciliationStatus(transaction, ReconciliationStatus.PENDING);
             transaction.setExceptionReason(null);
             transaction.setReconciliationUpdatedAt(LocalDateTime.now());
         }
 
-        settlementLogRepository.save(settlementLog);
-        transactionRepository.save(transaction);
-        return true;
+        return settlementLog;
     }
 
     private void holdProcessingForVisibility(String triggerSource) {
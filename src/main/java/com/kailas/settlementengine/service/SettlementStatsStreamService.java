@@ -0,0 +1,181 @@
+package com.kailas.settlementengine.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Pushes dashboard stats over Server-Sent Events. One thread builds the stats
+ * once per tick and sends every subscriber only the keys that changed, so the
+ * cost per tick does not grow with the number of open dashboards. Events:
+ * {@code snapshot} (full stats, once per subscriber), {@code stats} (changed
+ * keys), {@code run} (progress of the run in flight, or {@code {"active":false}}
+ * when it ends). Nothing is computed while nobody is subscribed.
+ */
+@Service
+public class SettlementStatsStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(SettlementStatsStreamService.class);
+    static final String ACTIVE_RUN_KEY = "activeRun";
+    private static final long HEARTBEAT_MILLIS = 15_000;
+    private static final Map<String, Object> NO_ACTIVE_RUN = Map.of("active", false);
+
+    private final Supplier<Map<String, Object>> statsSupplier;
+    private final long intervalMillis;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    private Map<String, Object> lastStats;
+    private Map<String, Object> lastRun;
+    private long lastSentAt;
+    private ScheduledExecutorService ticker;
+
+    @Autowired
+    public SettlementStatsStreamService(SettlementMonitoringService monitoringService,
+                                        @Value("${settlement.stream.interval-millis:250}") long intervalMillis) {
+        this(monitoringService::getStats, intervalMillis);
+    }
+
+    SettlementStatsStreamService(Supplier<Map<String, Object>> statsSupplier, long intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalStateException("settlement.stream.interval-millis must be greater than zero.");
+        }
+        this.statsSupplier = statsSupplier;
+        this.intervalMillis = intervalMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "settlement-stats-stream");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::tickSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+    }
+
+    /**
+     * Registers a dashboard; it gets the full stats on the next tick.
+     */
+    public SseEmitter subscribe() {
+        // No server-side timeout: the stream lives as long as the page. Dead
+        // clients are dropped when a send or heartbeat fails.
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    private void tickSafely() {
+        try {
+            tick();
+        } catch (RuntimeException e) {
+            log.warn(
+                    "event=stats_stream_tick_failed errorType={} message={}",
+                    e.getClass().getSimpleName(),
+                    e.getMessage()
+            );
+        }
+    }
+
+    /**
+     * Only ever called from the ticker thread (or a test), so the last-sent
+     * state needs no locking.
+     */
+    void tick() {
+        if (subscribers.isEmpty()) {
+            lastStats = null;
+            lastRun = null;
+            return;
+        }
+
+        Map<String, Object> stats = new HashMap<>(statsSupplier.get());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> activeRun = (Map<String, Object>) stats.remove(ACTIVE_RUN_KEY);
+        Map<String, Object> run = activeRun == null ? NO_ACTIVE_RUN : activeRun;
+
+        Map<String, Object> changed = lastStats == null ? stats : changedEntries(lastStats, stats);
+        boolean runChanged = !run.equals(lastRun);
+        boolean heartbeatDue = System.currentTimeMillis() - lastSentAt >= HEARTBEAT_MILLIS;
+
+        for (Subscriber subscriber : subscribers) {
+            try {
+                if (!subscriber.primed) {
+                    subscriber.emitter.send(SseEmitter.event().name("snapshot").data(stats));
+                    subscriber.emitter.send(SseEmitter.event().name("run").data(run));
+                    subscriber.primed = true;
+                    continue;
+                }
+                if (!changed.isEmpty()) {
+                    subscriber.emitter.send(SseEmitter.event().name("stats").data(changed));
+                }
+                if (runChanged) {
+                    subscriber.emitter.send(SseEmitter.event().name("run").data(run));
+                }
+                if (changed.isEmpty() && !runChanged && heartbeatDue) {
+                    subscriber.emitter.send(SseEmitter.event().comment("keepalive"));
+                }
+            } catch (IOException | IllegalStateException e) {
+                subscribers.remove(subscriber);
+                subscriber.emitter.completeWithError(e);
+            }
+        }
+
+        if (!changed.isEmpty() || runChanged || heartbeatDue) {
+            lastSentAt = System.currentTimeMillis();
+        }
+        lastStats = stats;
+        lastRun = run;
+    }
+
+    static Map<String, Object> changedEntries(Map<String, Object> previous, Map<String, Object> current) {
+        Map<String, Object> changed = new HashMap<>();
+        for (Map.Entry<String, Object> entry : current.entrySet()) {
+            if (!previous.containsKey(entry.getKey())
+                    || !Objects.equals(previous.get(entry.getKey()), entry.getValue())) {
+                changed.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return changed;
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private volatile boolean primed;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.kailas.settlementengine.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
+
+/**
+ * Fixed pool of settlement workers that drain claimed transaction ids in parallel.
+ * The pool is capped by the JDBC connection pool so workers never queue on
+ * connections: one connection is always left for the claimer/reconciliation.
+ */
+@Component
+public class SettlementWorkerPool {
+
+    private static final Logger log = LoggerFactory.getLogger(SettlementWorkerPool.class);
+
+    private final int workerCount;
+    private final ExecutorService executor;
+
+    @Autowired
+    public SettlementWorkerPool(@Value("${settlement.workers.count:4}") int configuredWorkers,
+                                DataSource dataSource) {
+        this(resolveWorkerCount(configuredWorkers, dataSource));
+    }
+
+    SettlementWorkerPool(int workerCount) {
+        if (workerCount <= 0) {
+            throw new IllegalStateException("settlement.workers.count must be greater than zero.");
+        }
+        this.workerCount = workerCount;
+
+        AtomicInteger threadIndex = new AtomicInteger(1);
+        this.executor = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "settlement-worker-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        log.info("event=settlement_worker_pool_started workerCount={}", workerCount);
+    }
+
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    /**
+     * Settles every work item (a transaction id or a chunk of ids) on the pool and
+     * blocks until all workers have drained the shared queue. Returns how many
+     * transactions each worker processed, keyed by worker thread name.
+     */
+    public <T> Map<String, Long> settleAll(Collection<T> workItems, ToLongFunction<T> settler) {
+        if (workItems.isEmpty()) {
+            return Map.of();
+        }
+
+        Drain<T> drain = startDraining(
+                new LinkedBlockingQueue<>(workItems),
+                Math.min(workerCount, workItems.size()),
+                settler
+        );
+        drain.close();
+        return drain.await();
+    }
+
+    /**
+     * Starts workers that keep taking items from {@code queue} until the returned
+     * drain is closed and the queue is empty. Producers can keep adding items
+     * while the workers run; a bounded queue makes them wait for the workers.
+     */
+    public <T> Drain<T> startDraining(BlockingQueue<T> queue, ToLongFunction<T> settler) {
+        return startDraining(queue, workerCount, settler);
+    }
+
+    private <T> Drain<T> startDraining(BlockingQueue<T> queue, int activeWorkers, ToLongFunction<T> settler) {
+        Drain<T> drain = new Drain<>(queue);
+        for (int i = 0; i < activeWorkers; i++) {
+            drain.futures.add(executor.submit(() -> drain.run(settler)));
+        }
+        return drain;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static int resolveWorkerCount(int configuredWorkers, DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource hikari && hikari.getMaximumPoolSize() > 1) {
+            int connectionBound = hikari.getMaximumPoolSize() - 1;
+            if (configuredWorkers > connectionBound) {
+                log.warn(
+                        "event=settlement_worker_pool_capped configuredWorkers={} maxPoolSize={} workerCount={}",
+                        configuredWorkers,
+                        hikari.getMaximumPoolSize(),
+                        connectionBound
+                );
+                return connectionBound;
+            }
+        }
+        return configuredWorkers;
+    }
+
+    private record WorkerResult(String workerName, long processedCount) {}
+
+    public static final class Drain<T> {
+        private static final long POLL_MILLIS = 50;
+
+        private final BlockingQueue<T> queue;
+        private final List<Future<WorkerResult>> futures = new ArrayList<>();
+        private volatile boolean closed;
+        private volatile boolean failed;
+
+        private Drain(BlockingQueue<T> queue) {
+            this.queue = queue;
+        }
+
+        /**
+         * No more items will be added; workers exit once the queue is empty.
+         */
+        public void close() {
+            closed = true;
+        }
+
+        public boolean isFailed() {
+            return failed;
+        }
+
+        /**
+         * Waits for every worker to exit. Returns processed counts per worker, or
+         * rethrows the first worker failure after all workers have stopped.
+         */
+        public Map<String, Long> await() {
+            Map<String, Long> processedByWorker = new LinkedHashMap<>();
+            RuntimeException firstFailure = null;
+
+            for (Future<WorkerResult> future : futures) {
+                try {
+                    WorkerResult result = future.get();
+                    processedByWorker.merge(result.workerName(), result.processedCount(), Long::sum);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for settlement workers.", e);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (firstFailure == null) {
+                        firstFailure = cause instanceof RuntimeException runtimeException
+                                ? runtimeException
+                                : new IllegalStateException("Settlement worker failed.", cause);
+                    }
+                }
+            }
+
+            if (firstFailure != null) {
+                throw firstFailure;
+            }
+            return processedByWorker;
+        }
+
+        private WorkerResult run(ToLongFunction<T> settler) throws InterruptedException {
+            long processed = 0;
+            try {
+                while (true) {
+                    T workItem = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (workItem == null) {
+                        if (closed && queue.isEmpty()) {
+                            break;
+                        }
+                        continue;
+                    }
+                    processed += settler.applyAsLong(workItem);
+                }
+            } catch (RuntimeException ex) {
+                failed = true;
+                throw ex;
+            }
+            return new WorkerResult(Thread.currentThread().getName(), processed);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.kailas.settlementengine.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Holds the last loaded value for a TTL and refreshes it with at most one load
+ * in flight. Callers arriving during a refresh get the previous value if there
+ * is one, or wait for the shared load otherwise, so N concurrent readers cost
+ * one load instead of N.
+ */
+final class SnapshotCache<T> {
+
+    private record Snapshot<T>(T value, long loadedAtNanos) {}
+
+    private final Supplier<T> loader;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicReference<CompletableFuture<Snapshot<T>>> inFlight = new AtomicReference<>();
+    private volatile Snapshot<T> current;
+
+    SnapshotCache(Supplier<T> loader, long ttlMillis) {
+        this(loader, ttlMillis, System::nanoTime);
+    }
+
+    SnapshotCache(Supplier<T> loader, long ttlMillis, LongSupplier nanoClock) {
+        if (ttlMillis < 0) {
+            throw new IllegalStateException("Snapshot TTL must not be negative.");
+        }
+        this.loader = loader;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.nanoClock = nanoClock;
+    }
+
+    T get() {
+        Snapshot<T> snapshot = current;
+        if (isFresh(snapshot)) {
+            return snapshot.value();
+        }
+
+        CompletableFuture<Snapshot<T>> refresh = new CompletableFuture<>();
+        CompletableFuture<Snapshot<T>> running = inFlight.compareAndExchange(null, refresh);
+        if (running != null) {
+            return snapshot != null ? snapshot.value() : await(running).value();
+        }
+
+        try {
+            Snapshot<T> latest = current;
+            if (!isFresh(latest)) {
+                latest = new Snapshot<>(loader.get(), nanoClock.getAsLong());
+                current = latest;
+            }
+            refresh.complete(latest);
+            return latest.value();
+        } catch (RuntimeException e) {
+            refresh.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.set(null);
+        }
+    }
+
+    /**
+     * Age of the value get() would return, or -1 before the first load.
+     */
+    long ageMillis() {
+        Snapshot<T> snapshot = current;
+        return snapshot == null ? -1L : (nanoClock.getAsLong() - snapshot.loadedAtNanos()) / 1_000_000L;
+    }
+
+    private boolean isFresh(Snapshot<T> snapshot) {
+        return snapshot != null && nanoClock.getAsLong() - snapshot.loadedAtNanos() < ttlNanos;
+    }
+
+    private static <T> Snapshot<T> await(CompletableFuture<Snapshot<T>> refresh) {
+        try {
+            return refresh.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+}
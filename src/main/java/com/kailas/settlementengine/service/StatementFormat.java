@@ -0,0 +1,80 @@
+package com.kailas.settlementengine.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Bank statement layouts.
+ * <ul>
+ *   <li>CSV: {@code reference,amount,valueDate} with an ISO date; an optional
+ *   header line starting with {@code reference} is skipped.</li>
+ *   <li>FIXED_WIDTH: reference in columns 1-20, amount in 21-38 and the value
+ *   date as {@code yyyyMMdd} in 39-46, fields space padded.</li>
+ * </ul>
+ */
+public enum StatementFormat {
+    CSV {
+        @Override
+        StatementLine parse(String line, long lineNumber) {
+            String[] fields = line.split(",", -1);
+            if (fields.length < 3) {
+                throw malformed(lineNumber, "expected reference,amount,valueDate");
+            }
+            String reference = fields[0].trim();
+            if (lineNumber == 1 && reference.equalsIgnoreCase("reference")) {
+                return null;
+            }
+            return toLine(reference, fields[1].trim(), fields[2].trim(), DateTimeFormatter.ISO_LOCAL_DATE, lineNumber);
+        }
+    },
+    FIXED_WIDTH {
+        @Override
+        StatementLine parse(String line, long lineNumber) {
+            if (line.length() < DATE_END) {
+                throw malformed(lineNumber, "expected at least " + DATE_END + " characters");
+            }
+            return toLine(
+                    line.substring(0, REFERENCE_END).trim(),
+                    line.substring(REFERENCE_END, AMOUNT_END).trim(),
+                    line.substring(AMOUNT_END, DATE_END).trim(),
+                    DateTimeFormatter.BASIC_ISO_DATE,
+                    lineNumber
+            );
+        }
+    };
+
+    private static final int REFERENCE_END = 20;
+    private static final int AMOUNT_END = 38;
+    private static final int DATE_END = 46;
+
+    /**
+     * Parses one line without its terminator; returns null for a header line.
+     */
+    abstract StatementLine parse(String line, long lineNumber);
+
+    private static StatementLine toLine(String reference,
+                                        String amount,
+                                        String valueDate,
+                                        DateTimeFormatter dateFormat,
+                                        long lineNumber) {
+        if (reference.isEmpty()) {
+            throw malformed(lineNumber, "missing reference");
+        }
+        try {
+            return new StatementLine(
+                    reference,
+                    new BigDecimal(amount),
+                    LocalDate.parse(valueDate, dateFormat),
+                    lineNumber
+            );
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw malformed(lineNumber, e.getMessage());
+        }
+    }
+
+    private static IllegalArgumentException malformed(long lineNumber, String detail) {
+        return new IllegalArgumentException("Malformed statement line " + lineNumber + ": " + detail);
+    }
+}
@@ -0,0 +1,15 @@
+package com.kailas.settlementengine.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One settlement line from a bank statement. The reference is the id the engine
+ * sent to the bank, i.e. the Transaction id.
+ */
+public record StatementLine(
+        String reference,
+        BigDecimal amount,
+        LocalDate valueDate,
+        long lineNumber
+) {}
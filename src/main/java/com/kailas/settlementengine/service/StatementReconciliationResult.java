@@ -0,0 +1,24 @@
+package com.kailas.settlementengine.service;
+
+/**
+ * Outcome of matching one bank statement against settled transactions.
+ * Mismatched and missing rows were moved to the exception queue; unexpected
+ * lines (no Transaction behind them) were stored as unmatched statement lines;
+ * in-flight lines name transactions still CAPTURED or PROCESSING, which were
+ * left untouched.
+ */
+public record StatementReconciliationResult(
+        String statementName,
+        long statementLines,
+        int partitions,
+        long matchedCount,
+        long mismatchedCount,
+        long missingCount,
+        long unexpectedCount,
+        long inFlightCount,
+        long durationMillis
+) {
+    public long exceptionQueuedCount() {
+        return mismatchedCount + missingCount;
+    }
+}
@@ -0,0 +1,8 @@
+package com.kailas.settlementengine.service;
+
+public enum StubLatencyDistribution {
+    NONE,
+    FIXED,
+    UNIFORM,
+    EXPONENTIAL
+}
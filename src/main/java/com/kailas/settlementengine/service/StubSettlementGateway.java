@@ -0,0 +1,124 @@
+package com.kailas.settlementengine.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local gateway for dev/test. Outcomes come from the settlement.outcome.* profile
+ * (RANDOM with a failure rate, ALWAYS_SUCCESS, ALWAYS_FAIL); latency is simulated
+ * by completing the future on a timer, so no thread is held while a call is
+ * "in flight". Keys it settled late are remembered, so a resend after a client
+ * timeout is answered as settled instead of being decided again.
+ */
+@Component
+public class StubSettlementGateway implements SettlementGateway {
+
+    static final String NAME = "stub";
+
+    private final SettlementOutcomeDecider outcomeDecider;
+    private final StubLatencyDistribution latencyDistribution;
+    private final long latencyMillis;
+    private final long maxLatencyMillis;
+    private final ScheduledExecutorService timer;
+    private final Set<String> settledLateKeys = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public StubSettlementGateway(SettlementOutcomeDecider outcomeDecider,
+                                 @Value("${settlement.gateway.stub.latency-distribution:NONE}")
+                                 String latencyDistribution,
+                                 @Value("${settlement.gateway.stub.latency-millis:0}") long latencyMillis,
+                                 @Value("${settlement.gateway.stub.max-latency-millis:0}") long maxLatencyMillis) {
+        this(outcomeDecider, parseDistribution(latencyDistribution), latencyMillis, maxLatencyMillis);
+    }
+
+    StubSettlementGateway(SettlementOutcomeDecider outcomeDecider,
+                          StubLatencyDistribution latencyDistribution,
+                          long latencyMillis,
+                          long maxLatencyMillis) {
+        if (latencyMillis < 0 || maxLatencyMillis < 0) {
+            throw new IllegalStateException("settlement.gateway.stub latency settings must not be negative.");
+        }
+        this.outcomeDecider = outcomeDecider;
+        this.latencyDistribution = latencyDistribution;
+        this.latencyMillis = latencyMillis;
+        this.maxLatencyMillis = Math.max(maxLatencyMillis, latencyMillis);
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "settlement-gateway-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> settle(Long transactionId, String idempotencyKey) {
+        if (settledLateKeys.contains(idempotencyKey)) {
+            return CompletableFuture.completedFuture(true);
+        }
+        boolean success = outcomeDecider.shouldSucceed();
+        long delayMillis = sampleLatencyMillis();
+        if (delayMillis <= 0) {
+            return CompletableFuture.completedFuture(success);
+        }
+
+        // Only a delayed answer can outlast the client's timeout, so only those keys are kept.
+        if (success) {
+            settledLateKeys.add(idempotencyKey);
+        }
+        CompletableFuture<Boolean> response = new CompletableFuture<>();
+        timer.schedule(() -> response.complete(success), delayMillis, TimeUnit.MILLISECONDS);
+        return response;
+    }
+
+    long sampleLatencyMillis() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (latencyDistribution) {
+            case NONE -> 0L;
+            case FIXED -> latencyMillis;
+            case UNIFORM -> latencyMillis >= maxLatencyMillis
+                    ? latencyMillis
+                    : random.nextLong(latencyMillis, maxLatencyMillis + 1);
+            // Mean latencyMillis, long tail clipped at max-latency-millis when set.
+            case EXPONENTIAL -> {
+                long sample = Math.round(-latencyMillis * Math.log(1.0 - random.nextDouble()));
+                yield maxLatencyMillis > latencyMillis ? Math.min(sample, maxLatencyMillis) : sample;
+            }
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private static StubLatencyDistribution parseDistribution(String configured) {
+        if (configured == null || configured.isBlank()) {
+            return StubLatencyDistribution.NONE;
+        }
+
+        try {
+            return StubLatencyDistribution.valueOf(configured.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException(
+                    "Invalid settlement.gateway.stub.latency-distribution: " + configured
+                            + ". Allowed values: NONE, FIXED, UNIFORM, EXPONENTIAL",
+                    e
+            );
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.kailas.settlementengine.service;
 
+import com.kailas.settlementengine.entity.ReconciliationStatus;
 import com.kailas.settlementengine.entity.Transaction;
 import com.kailas.settlementengine.entity.TransactionStatus;
 import org.springframework.stereotype.Component;
@@ -38,6 +39,12 @@ public class TransactionStateMachine {
         );
     }
 
+    private final TransactionStatusCounters statusCounters;
+
+    public TransactionStateMachine(TransactionStatusCounters statusCounters) {
+        this.statusCounters = statusCounters;
+    }
+
     public void transition(Transaction transaction, TransactionStatus target, String reason) {
         if (transaction == null) {
             throw new IllegalStateException("Cannot transition a null transaction.");
@@ -61,6 +68,29 @@ public class TransactionStateMachine {
         }
 
         transaction.setStatus(target);
+        statusCounters.statusChanged(current, target, 1);
+    }
+
+    public void changeReconciliationStatus(Transaction transaction, ReconciliationStatus target) {
+        ReconciliationStatus current = transaction.getReconciliationStatus();
+        transaction.setReconciliationStatus(target);
+        statusCounters.reconciliationStatusChanged(current, target, 1);
+    }
+
+    /**
+     * Publishes the rows a bulk UPDATE moved; the UPDATE's WHERE clause is what
+     * keeps those moves within the allowed transitions.
+     */
+    public void recordBulkTransition(TransactionStatus from, TransactionStatus to, long updatedCount) {
+        statusCounters.statusChanged(from, to, updatedCount);
+    }
+
+    public void recordBulkReconciliationChange(ReconciliationStatus from, ReconciliationStatus to, long updatedCount) {
+        statusCounters.reconciliationStatusChanged(from, to, updatedCount);
+    }
+
+    public void recordCreated(Transaction transaction) {
+        statusCounters.created(transaction.getStatus(), transaction.getReconciliationStatus());
     }
 
     public boolean isTransitionAllowed(TransactionStatus from, TransactionStatus to) {
@@ -0,0 +1,180 @@
+package com.kailas.settlementengine.service;
+
+import com.kailas.settlementengine.entity.ReconciliationStatus;
+import com.kailas.settlementengine.entity.TransactionStatus;
+import com.kailas.settlementengine.repository.TransactionStatusAggregate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Row counts per status and reconciliation status, kept current from the deltas
+ * of each change instead of counting the table. A delta made inside a
+ * transaction is applied after it commits, so rolled back work never shows up.
+ * Counts are per node: changes made by other nodes, and write paths that cannot
+ * tell where rows came from, only show up at the next correction against the
+ * DB. The drift found by the last correction says how far off the deltas were.
+ */
+@Component
+public class TransactionStatusCounters {
+
+    private final Map<TransactionStatus, LongAdder> byStatus = new EnumMap<>(TransactionStatus.class);
+    private final Map<ReconciliationStatus, LongAdder> byReconciliationStatus =
+            new EnumMap<>(ReconciliationStatus.class);
+    private final LongAdder withoutReconciliationStatus = new LongAdder();
+
+    private volatile boolean corrected;
+    private volatile LocalDateTime lastCorrectedAt;
+    private volatile long lastDrift;
+    private volatile double averageRetryCount;
+
+    public TransactionStatusCounters() {
+        for (TransactionStatus status : TransactionStatus.values()) {
+            byStatus.put(status, new LongAdder());
+        }
+        for (ReconciliationStatus status : ReconciliationStatus.values()) {
+            byReconciliationStatus.put(status, new LongAdder());
+        }
+    }
+
+    public void statusChanged(TransactionStatus from, TransactionStatus to, long count) {
+        if (from == to || count <= 0) {
+            return;
+        }
+        afterCommit(() -> {
+            adder(from).add(-count);
+            adder(to).add(count);
+        });
+    }
+
+    public void reconciliationStatusChanged(ReconciliationStatus from, ReconciliationStatus to, long count) {
+        if (from == to || count <= 0) {
+            return;
+        }
+        afterCommit(() -> {
+            adder(from).add(-count);
+            adder(to).add(count);
+        });
+    }
+
+    public void created(TransactionStatus status, ReconciliationStatus reconciliationStatus) {
+        afterCommit(() -> {
+            adder(status).increment();
+            adder(reconciliationStatus).increment();
+        });
+    }
+
+    /**
+     * Replaces the counts with the DB's and returns the drift: the summed absolute
+     * difference over every status and reconciliation status. Deltas committed
+     * while the aggregate query ran may be counted twice until the next correction.
+     */
+    public long correct(List<TransactionStatusAggregate> aggregates) {
+        Map<TransactionStatus, Long> statusCounts = new EnumMap<>(TransactionStatus.class);
+        Map<ReconciliationStatus, Long> reconciliationCounts = new EnumMap<>(ReconciliationStatus.class);
+        long withoutReconciliation = 0;
+        long total = 0;
+        long retrySum = 0;
+        for (TransactionStatusAggregate aggregate : aggregates) {
+            long count = aggregate.transactionCount() == null ? 0L : aggregate.transactionCount();
+            total += count;
+            retrySum += aggregate.retryCountSum() == null ? 0L : aggregate.retryCountSum();
+            if (aggregate.status() != null) {
+                statusCounts.merge(aggregate.status(), count, Long::sum);
+            }
+            if (aggregate.reconciliationStatus() == null) {
+                withoutReconciliation += count;
+            } else {
+                reconciliationCounts.merge(aggregate.reconciliationStatus(), count, Long::sum);
+            }
+        }
+
+        long drift = 0;
+        for (TransactionStatus status : TransactionStatus.values()) {
+            drift += reset(byStatus.get(status), statusCounts.getOrDefault(status, 0L));
+        }
+        for (ReconciliationStatus status : ReconciliationStatus.values()) {
+            drift += reset(byReconciliationStatus.get(status), reconciliationCounts.getOrDefault(status, 0L));
+        }
+        drift += reset(withoutReconciliationStatus, withoutReconciliation);
+
+        averageRetryCount = total == 0 ? 0.0 : (double) retrySum / total;
+        lastDrift = drift;
+        lastCorrectedAt = LocalDateTime.now();
+        corrected = true;
+        return drift;
+    }
+
+    public boolean isCorrected() {
+        return corrected;
+    }
+
+    public long count(TransactionStatus status) {
+        return byStatus.get(status).sum();
+    }
+
+    public long count(ReconciliationStatus status) {
+        return byReconciliationStatus.get(status).sum();
+    }
+
+    public long total() {
+        long total = 0;
+        for (LongAdder adder : byStatus.values()) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    /**
+     * Not tracked by deltas; as of the last correction.
+     */
+    public double getAverageRetryCount() {
+        return averageRetryCount;
+    }
+
+    public long getLastDrift() {
+        return lastDrift;
+    }
+
+    public LocalDateTime getLastCorrectedAt() {
+        return lastCorrectedAt;
+    }
+
+    private LongAdder adder(TransactionStatus status) {
+        return byStatus.get(status);
+    }
+
+    private LongAdder adder(ReconciliationStatus status) {
+        return status == null ? withoutReconciliationStatus : byReconciliationStatus.get(status);
+    }
+
+    private static long reset(LongAdder adder, long actual) {
+        long difference = actual - adder.sum();
+        adder.add(difference);
+        return Math.abs(difference);
+    }
+
+    /**
+     * Runs the delta once the surrounding transaction commits, or now when there
+     * is none. Other per-node counters fed from inside settlement transactions
+     * go through here too.
+     */
+    static void afterCommit(Runnable delta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            delta.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                delta.run();
+            }
+        });
+    }
+}
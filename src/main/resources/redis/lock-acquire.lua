@@ -0,0 +1,9 @@
+-- KEYS[1] lock key, KEYS[2] fencing counter; ARGV[1] node id, ARGV[2] TTL in millis.
+-- Takes the lock as "<node id>#<token>" and returns the token, or 0 if the lock is held.
+-- A token is only drawn when the lock is actually taken.
+if redis.call('EXISTS', KEYS[1]) == 1 then
+    return 0
+end
+local token = redis.call('INCR', KEYS[2])
+redis.call('SET', KEYS[1], ARGV[1] .. '#' .. token, 'PX', ARGV[2])
+return token
@@ -0,0 +1,6 @@
+-- KEYS[1] lock key; ARGV[1] lock id, ARGV[2] TTL in millis.
+-- Resets the TTL only while ARGV[1] still holds the lock; returns 1 if extended, else 0.
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+end
+return 0
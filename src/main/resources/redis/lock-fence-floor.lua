@@ -0,0 +1,9 @@
+-- KEYS[1] fencing counter; ARGV[1] floor.
+-- Raises the counter to the floor when a flush or failover left it behind the
+-- database fence; never lowers it. Returns 1 if the counter was raised.
+local current = tonumber(redis.call('GET', KEYS[1]) or '0')
+if current < tonumber(ARGV[1]) then
+    redis.call('SET', KEYS[1], ARGV[1])
+    return 1
+end
+return 0
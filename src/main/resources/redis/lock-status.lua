@@ -0,0 +1,5 @@
+-- KEYS[1]: lock key.
+-- Returns the holder and remaining TTL in millis; a free lock reports '' and -2.
+-- One key per call: partition locks sit in different hash slots, so a read
+-- spanning several would fail with CROSSSLOT on Redis Cluster.
+return { redis.call('GET', KEYS[1]) or '', redis.call('PTTL', KEYS[1]) }
@@ -4,6 +4,9 @@ let lastObservedLockAcquiredAt = null;
 let lockRecentlyActiveUntil = 0;
 let currentUser = null;
 let currentRoles = [];
+let statsStream = null;
+let statsStreamLive = false;
+let latestStats = null;
 
 const GLOBAL_REFRESH_INTERVAL_MS = 10000;
 const DASHBOARD_STATS_INTERVAL_MS = 100;
@@ -14,10 +17,18 @@ const tablePageState = {
     customers: 1,
     merchants: 1,
     transactions: 1,
-    exceptions: 1,
     logs: 1
 };
 
+// The exception queue is paged on the server by cursor; cursors[i] opens page i.
+const exceptionPageState = {
+    cursors: [null],
+    index: 0,
+    nextCursor: null,
+    total: null,
+    totalCapped: false
+};
+
 const tableDataCache = {
     customers: [],
     merchants: [],
@@ -170,11 +181,47 @@ function startDashboardStatsRefresh() {
 }
 
 function syncDashboardStatsRefresh() {
-    if (isDashboardVisible()) {
+    // The stats stream pushes changes on its own; polling is only the fallback.
+    if (isDashboardVisible() && !statsStreamLive) {
         startDashboardStatsRefresh();
     } else {
         stopDashboardStatsRefresh();
     }
+    if (isDashboardVisible() && statsStreamLive && latestStats) {
+        renderStats(latestStats);
+    }
+}
+
+function openStatsStream() {
+    if (typeof EventSource === "undefined") return;
+
+    statsStream = new EventSource("/api/settlements/stream");
+
+    statsStream.addEventListener("snapshot", event => {
+        latestStats = JSON.parse(event.data);
+        statsStreamLive = true;
+        syncDashboardStatsRefresh();
+    });
+
+    statsStream.addEventListener("stats", event => {
+        if (!latestStats) return;
+        Object.assign(latestStats, JSON.parse(event.data));
+        if (isDashboardVisible()) renderStats(latestStats);
+    });
+
+    statsStream.addEventListener("run", event => {
+        if (!latestStats) return;
+        const run = JSON.parse(event.data);
+        latestStats.activeRun = run.active === false ? null : run;
+        if (isDashboardVisible()) updateAdvancedStats(latestStats);
+    });
+
+    statsStream.onerror = () => {
+        // EventSource reconnects by itself and the server sends a fresh
+        // snapshot; poll in the meantime.
+        statsStreamLive = false;
+        syncDashboardStatsRefresh();
+    };
 }
 
 function parseServerDateTime(value) {
@@ -250,7 +297,9 @@ function applyRoleAccess() {
 }
 
 async function refreshData() {
-    await loadStats();
+    if (!statsStreamLive) {
+        await loadStats();
+    }
     await loadTransactions();
     await loadExceptionQueue();
     await loadLogs();
@@ -272,8 +321,11 @@ async function loadStats() {
     });
     if (!res.ok) return;
 
-    const s = await res.json();
+    latestStats = await res.json();
+    renderStats(latestStats);
+}
 
+function renderStats(s) {
     renderMetricCard(totalCard, "Total", Number(s.totalTransactions || 0).toLocaleString(), "total");
     renderMetricCard(capturedCard, "Captured", Number(s.captured || 0).toLocaleString(), "captured");
     renderMetricCard(processingCard, "Processing", Number(s.processing || 0).toLocaleString(), "processing");
@@ -371,6 +423,18 @@ function updateAdvancedStats(stats) {
             </div>`;
     }
 
+    // Run in flight (pushed by the stats stream)
+    if (stats.activeRun) {
+        const run = stats.activeRun;
+        html += `
+            <div class="activity-item warn">
+                <strong>Run In Progress: ${run.source || "UNKNOWN"}</strong>
+                <small>Claimed: ${run.claimed || 0} | Settled: ${run.settled || 0} | Retried: ${run.retried || 0} | Failed: ${run.failed || 0}</small>
+                <br>
+                <small>Holder: ${run.lockHolder || "Unknown"} | Started: ${run.startedAt || "-"}</small>
+            </div>`;
+    }
+
     // Last run info
     if (stats.lastRunTime) {
         html += `
@@ -620,7 +684,11 @@ async function runReconciliation() {
     }
 
     const data = await res.json();
-    alert(`Reconciliation completed. Updated ${data.updatedTransactions || 0} transaction(s).`);
+    alert(
+      `Reconciliation completed. Updated ${data.updatedTransactions || 0} transaction(s): `
+        + `${data.matched || 0} matched, `
+        + `${(data.missingSettledAt || 0) + (data.failedQueued || 0)} queued as exceptions.`
+    );
     await refreshData();
 }
 
@@ -661,22 +729,96 @@ async function resolveException(transactionId) {
     await refreshData();
 }
 
+function exceptionFilterParams() {
+    const params = new URLSearchParams();
+    const fields = {
+        reason: "exceptionReasonFilter",
+        merchantId: "exceptionMerchantFilter",
+        minAmount: "exceptionMinAmountFilter",
+        maxAmount: "exceptionMaxAmountFilter",
+        minAgeMinutes: "exceptionMinAgeFilter"
+    };
+    Object.entries(fields).forEach(([param, id]) => {
+        const el = document.getElementById(id);
+        const value = el ? el.value.trim() : "";
+        if (value) params.set(param, value);
+    });
+    return params;
+}
+
 async function loadExceptionQueue() {
-    const res = await fetch("/api/reconciliation/exceptions");
+    const params = exceptionFilterParams();
+    params.set("limit", TABLE_PAGE_SIZE);
+    const cursor = exceptionPageState.cursors[exceptionPageState.index];
+    if (cursor) params.set("cursor", cursor);
+
+    const res = await fetch(`/api/reconciliation/exceptions/page?${params}`);
     if (!res.ok) {
         console.error("Failed to load exception queue:", await readErrorMessage(res));
         return;
     }
 
-    tableDataCache.exceptions = await res.json();
+    const page = await res.json();
+    tableDataCache.exceptions = page.items || [];
+    exceptionPageState.nextCursor = page.nextCursor;
+    if (page.total !== null && page.total !== undefined) {
+        exceptionPageState.total = page.total;
+        exceptionPageState.totalCapped = page.totalCapped === true;
+    }
     renderExceptionsTable();
 }
 
+function applyExceptionFilters() {
+    exceptionPageState.cursors = [null];
+    exceptionPageState.index = 0;
+    exceptionPageState.total = null;
+    loadExceptionQueue();
+}
+
+function changeExceptionPage(step) {
+    if (step > 0) {
+        if (!exceptionPageState.nextCursor) return;
+        exceptionPageState.cursors[exceptionPageState.index + 1] = exceptionPageState.nextCursor;
+        exceptionPageState.index += 1;
+    } else if (exceptionPageState.index > 0) {
+        exceptionPageState.index -= 1;
+    }
+    loadExceptionQueue();
+}
+
+function renderExceptionPagination() {
+    const container = document.getElementById("exceptionsPagination");
+    if (!container) return;
+
+    const items = tableDataCache.exceptions;
+    if (items.length === 0 && exceptionPageState.index === 0) {
+        container.innerHTML = "";
+        return;
+    }
+
+    const startDisplay = exceptionPageState.index * TABLE_PAGE_SIZE + 1;
+    const endDisplay = startDisplay + items.length - 1;
+    const total = exceptionPageState.total === null
+        ? ""
+        : ` of ${Number(exceptionPageState.total).toLocaleString()}${exceptionPageState.totalCapped ? "+" : ""}`;
+    const prevDisabled = exceptionPageState.index === 0 ? "disabled" : "";
+    const nextDisabled = exceptionPageState.nextCursor ? "" : "disabled";
+
+    container.innerHTML = `
+        <div class="pagination-inner">
+            <button class="page-btn" ${prevDisabled} onclick="changeExceptionPage(-1)">Previous</button>
+            <span class="page-meta">Page ${exceptionPageState.index + 1}</span>
+            <span class="page-count">${startDisplay}-${endDisplay}${total}</span>
+            <button class="page-btn" ${nextDisabled} onclick="changeExceptionPage(1)">Next</button>
+        </div>
+    `;
+}
+
 function renderExceptionsTable() {
     const table = document.getElementById("exceptionsTable");
     if (!table) return;
 
-    const pageInfo = getPaginatedSlice("exceptions", tableDataCache.exceptions);
+    const items = tableDataCache.exceptions;
     const isAdmin = isAdminUser();
 
     let html = `<tr>
@@ -684,14 +826,14 @@ function renderExceptionsTable() {
         <th>Retry</th><th>Reason</th><th>Updated</th>${isAdmin ? "<th>Actions</th>" : ""}
     </tr>`;
 
-    if (pageInfo.items.length === 0) {
+    if (items.length === 0) {
         html += `<tr><td colspan="${isAdmin ? 7 : 6}">No exceptions in queue.</td></tr>`;
         table.innerHTML = html;
-        renderPagination("exceptionsPagination", "exceptions", pageInfo);
+        renderExceptionPagination();
         return;
     }
 
-    pageInfo.items.forEach(item => {
+    items.forEach(item => {
         const reason = item.exceptionReason || "-";
         html += `<tr>
             <td>${item.transactionId}</td>
@@ -713,7 +855,7 @@ function renderExceptionsTable() {
     });
 
     table.innerHTML = html;
-    renderPagination("exceptionsPagination", "exceptions", pageInfo);
+    renderExceptionPagination();
 }
 
 /* ================= LOGS ================= */
@@ -761,8 +903,9 @@ async function triggerSettlement() {
 
     if (!confirm("Trigger settlement now?")) return;
 
-    // Fast polling while trigger is in flight lets the UI show lock acquire/release.
-    const lockPollInterval = setInterval(loadStats, 300);
+    // Without the stats stream, fast polling while the trigger is in flight
+    // lets the UI show lock acquire/release.
+    const lockPollInterval = statsStreamLive ? null : setInterval(loadStats, 300);
     let res;
     try {
         res = await fetch("/settlement/trigger", { method: "POST" });
@@ -775,7 +918,9 @@ async function triggerSettlement() {
         return;
     }
 
-    await loadStats();
+    if (!statsStreamLive) {
+        await loadStats();
+    }
     refreshData();
 }
 
@@ -796,6 +941,7 @@ async function initializeApp() {
         applyRoleAccess();
         await refreshData();
         startAutoRefresh();
+        openStatsStream();
         syncDashboardStatsRefresh();
     } catch (error) {
         console.error("App initialization failed:", error);
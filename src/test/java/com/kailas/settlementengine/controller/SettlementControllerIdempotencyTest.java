@@ -45,13 +45,13 @@ class SettlementControllerIdempotencyTest {
         private final AtomicInteger callCount = new AtomicInteger(0);
 
         private StubExecutionService() {
-            super(null, null, null);
+            super(null, null, null, null, null, null);
         }
 
         @Override
         public SettlementRunResult runWithLock(String triggerSource, long minLockHoldMillis) {
             callCount.incrementAndGet();
-            return new SettlementRunResult(true, 1);
+            return SettlementRunResult.completed(1);
         }
     }
 }
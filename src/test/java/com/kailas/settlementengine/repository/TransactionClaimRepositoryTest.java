@@ -0,0 +1,174 @@
+package com.kailas.settlementengine.repository;
+
+import com.kailas.settlementengine.entity.Transaction;
+import com.kailas.settlementengine.entity.TransactionStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The candidate scan and claim queries behind SettlementService, against a real
+ * database: keyset pages neither skip nor repeat ids while rows change status
+ * under the scan, and a second claimer skips rows another claim transaction has
+ * locked instead of waiting for or double-claiming them.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class TransactionClaimRepositoryTest {
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        transactionRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void keysetScanShouldNeitherSkipNorRepeatIdsWhileRowsChangeStatus() {
+        List<Long> ids = seedCaptured(12);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        // Claimed by another node before the scan reaches them.
+        Set<Long> claimedElsewhere = Set.of(ids.get(6), ids.get(9));
+
+        List<Long> scanned = new ArrayList<>();
+        Long addedDuringScan = null;
+        long afterId = 0;
+        while (true) {
+            List<Long> page = transactionRepository.findDueIdsByStatusAfter(
+                    TransactionStatus.CAPTURED,
+                    afterId,
+                    LocalDateTime.now(),
+                    PageRequest.of(0, 4)
+            );
+            if (page.isEmpty()) {
+                break;
+            }
+            scanned.addAll(page);
+            afterId = page.get(page.size() - 1);
+
+            // This run claims what it read, so earlier pages shrink under the scan.
+            transactionTemplate.executeWithoutResult(status -> transactionRepository.claimTransactions(
+                    page, "node-a", LocalDateTime.now().plusMinutes(1)
+            ));
+            if (addedDuringScan == null) {
+                transactionTemplate.executeWithoutResult(status -> transactionRepository.claimTransactions(
+                        claimedElsewhere, "node-b", LocalDateTime.now().plusMinutes(1)
+                ));
+                addedDuringScan = seedCaptured(1).get(0);
+            }
+        }
+
+        List<Long> expected = new ArrayList<>(ids);
+        expected.removeAll(claimedElsewhere);
+        expected.add(addedDuringScan);
+        assertEquals(expected, scanned);
+        assertEquals(scanned.size(), new HashSet<>(scanned).size());
+    }
+
+    @Test
+    void secondClaimerShouldSkipRowsLockedByTheFirst() throws Exception {
+        List<Long> ids = seedCaptured(10);
+        List<Long> firstHalf = ids.subList(0, 5);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        CountDownLatch firstClaimLocked = new CountDownLatch(1);
+        CountDownLatch firstClaimMayCommit = new CountDownLatch(1);
+        ExecutorService firstClaimer = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<Long>> firstClaim = firstClaimer.submit(() -> transactionTemplate.execute(status -> {
+                List<Long> locked = transactionRepository.lockClaimableIds(firstHalf, LocalDateTime.now());
+                transactionRepository.claimTransactions(locked, "node-a", LocalDateTime.now().plusMinutes(1));
+                firstClaimLocked.countDown();
+                await(firstClaimMayCommit);
+                return locked;
+            }));
+            assertTrue(firstClaimLocked.await(10, TimeUnit.SECONDS));
+
+            List<Long> secondClaim = transactionTemplate.execute(status -> {
+                List<Long> locked = transactionRepository.lockClaimableIds(ids, LocalDateTime.now());
+                transactionRepository.claimTransactions(locked, "node-b", LocalDateTime.now().plusMinutes(1));
+                return locked;
+            });
+            firstClaimMayCommit.countDown();
+
+            assertEquals(firstHalf, firstClaim.get(10, TimeUnit.SECONDS));
+            assertEquals(ids.subList(5, 10), secondClaim);
+        } finally {
+            firstClaimMayCommit.countDown();
+            firstClaimer.shutdownNow();
+        }
+
+        for (Transaction transaction : transactionRepository.findAllById(ids)) {
+            assertEquals(TransactionStatus.PROCESSING, transaction.getStatus());
+            String expectedOwner = firstHalf.contains(transaction.getId()) ? "node-a" : "node-b";
+            assertEquals(expectedOwner, transaction.getClaimOwner());
+        }
+    }
+
+    @Test
+    void claimedRowsShouldNotBeClaimableAgain() {
+        List<Long> ids = seedCaptured(4);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        transactionTemplate.executeWithoutResult(status -> transactionRepository.claimTransactions(
+                ids.subList(0, 2), "node-a", LocalDateTime.now().plusMinutes(1)
+        ));
+        List<Long> lockedAfterClaim = transactionTemplate.execute(
+                status -> transactionRepository.lockClaimableIds(ids, LocalDateTime.now())
+        );
+        Integer reclaimed = transactionTemplate.execute(status -> transactionRepository.claimTransactions(
+                ids.subList(0, 2), "node-b", LocalDateTime.now().plusMinutes(1)
+        ));
+
+        assertEquals(ids.subList(2, 4), lockedAfterClaim);
+        assertEquals(0, reclaimed);
+    }
+
+    private List<Long> seedCaptured(int count) {
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setAmount(BigDecimal.valueOf(100));
+            transaction.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+            transactions.add(transaction);
+        }
+        return transactionRepository.saveAll(transactions).stream()
+                .map(Transaction::getId)
+                .sorted()
+                .toList();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Timed out waiting for the second claimer.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.kailas.settlementengine.repository;
+
+import com.kailas.settlementengine.entity.Merchant;
+import com.kailas.settlementengine.entity.Transaction;
+import com.kailas.settlementengine.entity.TransactionStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The partition filter of the candidate scan against a real database: every
+ * due row, including rows without a merchant, is owned by exactly one
+ * partition, and all rows of a merchant land in the same one.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class TransactionPartitionRepositoryTest {
+
+    private static final int PARTITION_COUNT = 3;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private MerchantRepository merchantRepository;
+
+    @AfterEach
+    void tearDown() {
+        transactionRepository.deleteAllInBatch();
+        merchantRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void everyRowShouldLandInExactlyOnePartition() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Merchant merchant = merchant("Merchant-" + i);
+            ids.addAll(seedCaptured(merchant, 3));
+        }
+        List<Long> withoutMerchant = seedCaptured(null, 2);
+        ids.addAll(withoutMerchant);
+
+        Map<Long, Integer> owner = new HashMap<>();
+        for (int index = 0; index < PARTITION_COUNT; index++) {
+            for (Long id : scanPartition(index)) {
+                Integer previous = owner.put(id, index);
+                assertNull(previous, "transaction " + id + " is in partitions " + previous + " and " + index);
+            }
+        }
+
+        assertEquals(ids.size(), owner.size());
+        assertTrue(owner.keySet().containsAll(ids));
+        // No merchant is treated as merchant id 0.
+        for (Long id : withoutMerchant) {
+            assertEquals(0, owner.get(id));
+        }
+        for (Transaction transaction : transactionRepository.findAllById(ids)) {
+            if (transaction.getMerchant() != null) {
+                assertEquals(
+                        (int) (transaction.getMerchant().getId() % PARTITION_COUNT),
+                        owner.get(transaction.getId())
+                );
+            }
+        }
+    }
+
+    private List<Long> scanPartition(int partitionIndex) {
+        List<Long> scanned = new ArrayList<>();
+        long afterId = 0;
+        while (true) {
+            List<Long> page = transactionRepository.findDueIdsByStatusAfterInPartition(
+                    TransactionStatus.CAPTURED,
+                    afterId,
+                    LocalDateTime.now(),
+                    PARTITION_COUNT,
+                    partitionIndex,
+                    PageRequest.of(0, 4)
+            );
+            if (page.isEmpty()) {
+                return scanned;
+            }
+            scanned.addAll(page);
+            afterId = page.get(page.size() - 1);
+        }
+    }
+
+    private Merchant merchant(String name) {
+        Merchant merchant = new Merchant();
+        merchant.setName(name);
+        merchant.setBankAccount(name + "-001");
+        merchant.setSettlementCycle("T+1");
+        return merchantRepository.save(merchant);
+    }
+
+    private List<Long> seedCaptured(Merchant merchant, int count) {
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setAmount(BigDecimal.valueOf(100));
+            transaction.setMerchant(merchant);
+            transaction.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+            transactions.add(transaction);
+        }
+        return transactionRepository.saveAll(transactions).stream()
+                .map(Transaction::getId)
+                .toList();
+    }
+}
@@ -0,0 +1,389 @@
+package com.kailas.settlementengine.service;
+
+import com.kailas.settlementengine.entity.ReconciliationStatus;
+import com.kailas.settlementengine.entity.Transaction;
+import com.kailas.settlementengine.entity.TransactionStatus;
+import com.kailas.settlementengine.entity.UnmatchedStatementLine;
+import com.kailas.settlementengine.repository.ExceptionStateView;
+import com.kailas.settlementengine.repository.SettledTransactionView;
+import com.kailas.settlementengine.repository.TransactionRepository;
+import com.kailas.settlementengine.repository.UnmatchedStatementLineRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BankStatementReconciliationServiceTest {
+
+    private static final LocalDate VALUE_DATE = LocalDate.of(2026, 3, 1);
+
+    @TempDir
+    Path inboxDir;
+
+    @TempDir
+    Path spillDir;
+
+    @Test
+    void statementLinesShouldBeJoinedToSettledTransactions() throws IOException {
+        InMemoryStatementStore store = new InMemoryStatementStore();
+        long matched = store.settled("100.00", VALUE_DATE);
+        long wrongAmount = store.settled("200.00", VALUE_DATE);
+        long wrongDate = store.settled("300.00", VALUE_DATE);
+        long missing = store.settled("400.00", VALUE_DATE);
+        long failed = store.add(TransactionStatus.FAILED, "500.00", null);
+        writeStatement("statement.csv",
+                "reference,amount,valueDate",
+                matched + ",100,2026-03-01",
+                wrongAmount + ",250.00,2026-03-01",
+                wrongDate + ",300.00,2026-03-02",
+                failed + ",500.00,2026-03-01",
+                "99999,70.00,2026-03-01",
+                "BANK-FEE,1.50,2026-03-01");
+
+        StatementReconciliationResult result = newService(store, 2)
+                .reconcileStatement("statement.csv", StatementFormat.CSV);
+
+        assertEquals(6, result.statementLines());
+        assertEquals(1, result.matchedCount());
+        assertEquals(3, result.mismatchedCount());
+        assertEquals(1, result.missingCount());
+        assertEquals(2, result.unexpectedCount());
+        assertEquals(0, result.inFlightCount());
+
+        assertOutcome(store, matched, ReconciliationStatus.MATCHED, null);
+        assertOutcome(store, wrongAmount, ReconciliationStatus.EXCEPTION_QUEUED,
+                BankStatementReconciliationService.MISMATCH_REASON);
+        assertOutcome(store, wrongDate, ReconciliationStatus.EXCEPTION_QUEUED,
+                BankStatementReconciliationService.MISMATCH_REASON);
+        assertOutcome(store, missing, ReconciliationStatus.EXCEPTION_QUEUED,
+                BankStatementReconciliationService.MISSING_REASON);
+        assertOutcome(store, failed, ReconciliationStatus.EXCEPTION_QUEUED,
+                BankStatementReconciliationService.NOT_SETTLED_IN_WINDOW_REASON);
+
+        assertEquals(List.of("99999", "BANK-FEE"), store.unmatchedReferences());
+        assertTrue(store.unmatched.stream().allMatch(line -> line.getStatementName().equals("statement.csv")));
+    }
+
+    @Test
+    void linesForInFlightTransactionsShouldBeLeftForALaterPass() throws IOException {
+        InMemoryStatementStore store = new InMemoryStatementStore();
+        long captured = store.add(TransactionStatus.CAPTURED, "100.00", null);
+        long processing = store.add(TransactionStatus.PROCESSING, "200.00", null);
+        writeStatement("in-flight.csv",
+                captured + ",100.00,2026-03-01",
+                processing + ",200.00,2026-03-01");
+
+        StatementReconciliationResult result = newService(store, 10)
+                .reconcileStatement("in-flight.csv", StatementFormat.CSV);
+
+        assertEquals(2, result.inFlightCount());
+        assertEquals(0, result.exceptionQueuedCount());
+        assertOutcome(store, captured, ReconciliationStatus.PENDING, null);
+        assertOutcome(store, processing, ReconciliationStatus.PENDING, null);
+    }
+
+    @Test
+    void malformedLineShouldRejectTheStatementBeforeAnythingIsWritten() throws IOException {
+        InMemoryStatementStore store = new InMemoryStatementStore();
+        long settled = store.settled("100.00", VALUE_DATE);
+        writeStatement("malformed.csv",
+                settled + ",100.00,2026-03-01",
+                "BANK-FEE,1.50,2026-03-01",
+                "BANK-FEE,1.50,2026-03-01",
+                "BANK-FEE,1.50,2026-03-01",
+                "42,not-an-amount,2026-03-01");
+
+        BankStatementReconciliationService service = newService(store, 1);
+
+        assertThrows(
+                IllegalStateException.class,
+                () -> service.reconcileStatement("malformed.csv", StatementFormat.CSV)
+        );
+        assertTrue(store.unmatched.isEmpty());
+        assertOutcome(store, settled, ReconciliationStatus.PENDING, null);
+    }
+
+    @Test
+    void outcomesShouldMoveTheReconciliationCountersByTheRowsTheyChanged() throws IOException {
+        InMemoryStatementStore store = new InMemoryStatementStore();
+        long matched = store.settled("100.00", VALUE_DATE);
+        long alreadyMatched = store.settled("200.00", VALUE_DATE);
+        store.data.get(alreadyMatched).setReconciliationStatus(ReconciliationStatus.MATCHED);
+        long missing = store.settled("300.00", VALUE_DATE);
+        writeStatement("counters.csv",
+                matched + ",100.00,2026-03-01",
+                alreadyMatched + ",200.00,2026-03-01");
+        TransactionStatusCounters counters = new TransactionStatusCounters();
+
+        newService(store, 10, counters).reconcileStatement("counters.csv", StatementFormat.CSV);
+
+        assertOutcome(store, missing, ReconciliationStatus.EXCEPTION_QUEUED,
+                BankStatementReconciliationService.MISSING_REASON);
+        assertEquals(-2, counters.count(ReconciliationStatus.PENDING));
+        assertEquals(1, counters.count(ReconciliationStatus.MATCHED));
+        assertEquals(1, counters.count(ReconciliationStatus.EXCEPTION_QUEUED));
+    }
+
+    @Test
+    void duplicateReferenceShouldMatchOnceAndRecordTheRepeatAsUnmatched() throws IOException {
+        InMemoryStatementStore store = new InMemoryStatementStore();
+        long settled = store.settled("100.00", VALUE_DATE);
+        writeStatement("duplicates.csv",
+                settled + ",100.00,2026-03-01",
+                settled + ",100.00,2026-03-01");
+
+        StatementReconciliationResult result = newService(store, 10)
+                .reconcileStatement("duplicates.csv", StatementFormat.CSV);
+
+        assertEquals(2, result.statementLines());
+        assertEquals(1, result.matchedCount());
+        assertEquals(0, result.exceptionQueuedCount());
+        assertEquals(1, result.unexpectedCount());
+        assertOutcome(store, settled, ReconciliationStatus.MATCHED, null);
+
+        UnmatchedStatementLine repeat = store.unmatched.get(0);
+        assertEquals(Long.toString(settled), repeat.getReference());
+        assertEquals(2, repeat.getLineNumber());
+    }
+
+    @Test
+    void resolvedTransactionsShouldNotBeReopenedByAStatement() throws IOException {
+        InMemoryStatementStore store = new InMemoryStatementStore();
+        long resolved = store.settled("100.00", VALUE_DATE);
+        store.data.get(resolved).setReconciliationStatus(ReconciliationStatus.RESOLVED);
+        writeStatement("resolved.csv", resolved + ",999.00,2026-03-01");
+
+        StatementReconciliationResult result = newService(store, 10)
+                .reconcileStatement("resolved.csv", StatementFormat.CSV);
+
+        assertEquals(0, result.mismatchedCount());
+        assertEquals(ReconciliationStatus.RESOLVED, store.data.get(resolved).getReconciliationStatus());
+    }
+
+    @Test
+    void statementOutsideTheInboxShouldBeRejected() {
+        BankStatementReconciliationService service = newService(new InMemoryStatementStore(), 10);
+
+        IllegalStateException ex = assertThrows(
+                IllegalStateException.class,
+                () -> service.reconcileStatement("../outside.csv", StatementFormat.CSV)
+        );
+
+        assertTrue(ex.getMessage().contains("inside the statement inbox"));
+    }
+
+    private void writeStatement(String name, String... lines) throws IOException {
+        Files.writeString(inboxDir.resolve(name), String.join("\n", lines) + "\n");
+    }
+
+    private static void assertOutcome(InMemoryStatementStore store,
+                                      long transactionId,
+                                      ReconciliationStatus status,
+                                      String reason) {
+        Transaction transaction = store.data.get(transactionId);
+        assertEquals(status, transaction.getReconciliationStatus(), "transaction " + transactionId);
+        assertEquals(reason, transaction.getExceptionReason(), "transaction " + transactionId);
+    }
+
+    private BankStatementReconciliationService newService(InMemoryStatementStore store, int chunkSize) {
+        return newService(store, chunkSize, new TransactionStatusCounters());
+    }
+
+    private BankStatementReconciliationService newService(InMemoryStatementStore store,
+                                                          int chunkSize,
+                                                          TransactionStatusCounters counters) {
+        PlatformTransactionManager transactionManager = new PlatformTransactionManager() {
+            @Override
+            public org.springframework.transaction.TransactionStatus getTransaction(
+                    TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(org.springframework.transaction.TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(org.springframework.transaction.TransactionStatus status) {
+            }
+        };
+        TransactionRepository repository = store.asRepository();
+        return new BankStatementReconciliationService(
+                repository,
+                store.asUnmatchedLineRepository(),
+                new TransactionStateMachine(counters),
+                transactionManager,
+                inboxDir.toString(),
+                spillDir.toString(),
+                64,
+                chunkSize
+        );
+    }
+
+    private static final class InMemoryStatementStore {
+        private final Map<Long, Transaction> data = new TreeMap<>();
+        private final List<UnmatchedStatementLine> unmatched = new ArrayList<>();
+        private final Field idField;
+        private long sequence = 1;
+
+        private InMemoryStatementStore() {
+            try {
+                idField = Transaction.class.getDeclaredField("id");
+                idField.setAccessible(true);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Unable to access Transaction.id", e);
+            }
+        }
+
+        private long settled(String amount, LocalDate settledOn) {
+            return add(TransactionStatus.SETTLED, amount, settledOn.atTime(12, 0));
+        }
+
+        private long add(TransactionStatus status, String amount, LocalDateTime settledAt) {
+            Transaction transaction = new Transaction();
+            transaction.setAmount(new BigDecimal(amount));
+            transaction.setStatus(status);
+            transaction.setSettledAt(settledAt);
+            transaction.setReconciliationStatus(ReconciliationStatus.PENDING);
+            long id = sequence++;
+            try {
+                idField.set(transaction, id);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+            data.put(id, transaction);
+            return id;
+        }
+
+        private List<String> unmatchedReferences() {
+            return unmatched.stream().map(UnmatchedStatementLine::getReference).sorted().toList();
+        }
+
+        private int applyOutcome(Object[] args, ReconciliationStatus target, String reason) {
+            @SuppressWarnings("unchecked")
+            Collection<Long> ids = (Collection<Long>) args[0];
+            LocalDateTime now = (LocalDateTime) args[args.length - 1];
+            int updated = 0;
+            for (Long id : ids) {
+                Transaction transaction = data.get(id);
+                if (transaction != null && transaction.getReconciliationStatus() != ReconciliationStatus.RESOLVED) {
+                    transaction.setReconciliationStatus(target);
+                    transaction.setExceptionReason(reason);
+                    transaction.setReconciliationUpdatedAt(now);
+                    updated++;
+                }
+            }
+            return updated;
+        }
+
+        private TransactionRepository asRepository() {
+            InvocationHandler handler = (proxy, method, args) -> {
+                String name = method.getName();
+
+                if (name.equals("findSettledBetween")) {
+                    LocalDateTime from = (LocalDateTime) args[0];
+                    LocalDateTime to = (LocalDateTime) args[1];
+                    long afterId = (Long) args[2];
+                    Pageable pageable = (Pageable) args[3];
+                    return data.values().stream()
+                            .filter(t -> t.getStatus() == TransactionStatus.SETTLED)
+                            .filter(t -> !t.getSettledAt().isBefore(from) && t.getSettledAt().isBefore(to))
+                            .filter(t -> t.getId() > afterId)
+                            .limit(pageable.getPageSize())
+                            .map(t -> new SettledTransactionView(t.getId(), t.getAmount(), t.getSettledAt()))
+                            .toList();
+                }
+
+                if (name.equals("findExistingIds")) {
+                    @SuppressWarnings("unchecked")
+                    Collection<Long> ids = (Collection<Long>) args[0];
+                    return ids.stream().filter(data::containsKey).toList();
+                }
+
+                if (name.equals("lockExceptionStates")) {
+                    @SuppressWarnings("unchecked")
+                    Collection<Long> ids = (Collection<Long>) args[0];
+                    return ids.stream()
+                            .map(data::get)
+                            .filter(Objects::nonNull)
+                            .map(t -> new ExceptionStateView(t.getId(), t.getStatus(), t.getReconciliationStatus()))
+                            .toList();
+                }
+
+                if (name.equals("markStatementMatched")) {
+                    return applyOutcome(args, ReconciliationStatus.MATCHED, null);
+                }
+
+                if (name.equals("queueStatementExceptions")) {
+                    return applyOutcome(args, ReconciliationStatus.EXCEPTION_QUEUED, (String) args[1]);
+                }
+
+                if (name.equals("toString")) {
+                    return "InMemoryStatementTransactionRepositoryProxy";
+                }
+                if (name.equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                }
+                if (name.equals("equals")) {
+                    return proxy == args[0];
+                }
+
+                throw new UnsupportedOperationException("Method not supported in test stub: " + name);
+            };
+
+            return (TransactionRepository) Proxy.newProxyInstance(
+                    TransactionRepository.class.getClassLoader(),
+                    new Class[]{TransactionRepository.class},
+                    handler
+            );
+        }
+
+        private UnmatchedStatementLineRepository asUnmatchedLineRepository() {
+            InvocationHandler handler = (proxy, method, args) -> {
+                String name = method.getName();
+
+                if (name.equals("saveAll")) {
+                    @SuppressWarnings("unchecked")
+                    Iterable<UnmatchedStatementLine> lines = (Iterable<UnmatchedStatementLine>) args[0];
+                    List<UnmatchedStatementLine> saved = new ArrayList<>();
+                    lines.forEach(saved::add);
+                    unmatched.addAll(saved);
+                    return saved;
+                }
+
+                if (name.equals("toString")) {
+                    return "InMemoryUnmatchedLineRepositoryProxy";
+                }
+                if (name.equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                }
+                if (name.equals("equals")) {
+                    return proxy == args[0];
+                }
+
+                throw new UnsupportedOperationException("Method not supported in test stub: " + name);
+            };
+
+            return (UnmatchedStatementLineRepository) Proxy.newProxyInstance(
+                    UnmatchedStatementLineRepository.class.getClassLoader(),
+                    new Class[]{UnmatchedStatementLineRepository.class},
+                    handler
+            );
+        }
+    }
+}
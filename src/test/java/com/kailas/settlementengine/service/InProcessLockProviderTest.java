@@ -0,0 +1,49 @@
+package com.kailas.settlementengine.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InProcessLockProviderTest {
+
+    private static final String KEY = "settlement-lock";
+
+    private final InProcessLockProvider provider =
+            new InProcessLockProvider(new SettlementNodeIdentity("node-a"), SettlementFlightRecorder.disabled());
+
+    @Test
+    void secondAcquireShouldWaitForRelease() {
+        SettlementLockLease first = provider.acquireLock(KEY);
+        assertNull(provider.acquireLock(KEY));
+
+        provider.releaseLock(first);
+        SettlementLockLease second = provider.acquireLock(KEY);
+
+        assertNotNull(second);
+        assertNotEquals(first.lockId(), second.lockId());
+        assertFalse(second.isFenced());
+    }
+
+    @Test
+    void staleReleaseShouldNotDropTheNewHolder() {
+        SettlementLockLease first = provider.acquireLock(KEY);
+        provider.releaseLock(first);
+        SettlementLockLease second = provider.acquireLock(KEY);
+
+        provider.releaseLock(first);
+
+        assertEquals(second.lockId(), provider.getLockStatuses(List.of(KEY)).get(0).holder());
+    }
+
+    @Test
+    void statusShouldReportHeldLocksWithoutExpiry() {
+        SettlementLockLease lease = provider.acquireLock(KEY);
+
+        List<SettlementLockStatus> statuses = provider.getLockStatuses(List.of(KEY, KEY + ":partition-1"));
+
+        assertEquals(new SettlementLockStatus(lease.lockId(), -1L), statuses.get(0));
+        assertEquals(SettlementLockStatus.FREE, statuses.get(1));
+    }
+}
@@ -0,0 +1,96 @@
+package com.kailas.settlementengine.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedStatementReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void csvShouldSkipHeaderAndHandleCrLfAndMissingFinalNewline() throws IOException {
+        Path statement = write("reference,amount,valueDate\r\n"
+                + "101,250.00,2026-03-01\r\n"
+                + "\r\n"
+                + "102,99.5,2026-03-02");
+        List<StatementLine> lines = new ArrayList<>();
+
+        long count = new MappedStatementReader().read(statement, StatementFormat.CSV, lines::add);
+
+        assertEquals(2, count);
+        assertEquals(new StatementLine("101", new BigDecimal("250.00"), LocalDate.of(2026, 3, 1), 2), lines.get(0));
+        assertEquals("102", lines.get(1).reference());
+        assertEquals(4, lines.get(1).lineNumber());
+    }
+
+    @Test
+    void linesSpanningWindowBoundariesShouldBeReadWhole() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 1; i <= 500; i++) {
+            content.append(i).append(',').append(i).append(".25,2026-03-01\n");
+        }
+        Path statement = write(content.toString());
+        List<StatementLine> lines = new ArrayList<>();
+
+        // A 64-byte window holds only a few lines, so most lines cross a window edge.
+        long count = new MappedStatementReader(64).read(statement, StatementFormat.CSV, lines::add);
+
+        assertEquals(500, count);
+        for (int i = 0; i < lines.size(); i++) {
+            assertEquals(Integer.toString(i + 1), lines.get(i).reference());
+            assertEquals(new BigDecimal((i + 1) + ".25"), lines.get(i).amount());
+        }
+    }
+
+    @Test
+    void fixedWidthShouldReadColumns() throws IOException {
+        Path statement = write(String.format("%-20s%18s%s%n", "777", "1200.10", "20260315"));
+        List<StatementLine> lines = new ArrayList<>();
+
+        new MappedStatementReader().read(statement, StatementFormat.FIXED_WIDTH, lines::add);
+
+        assertEquals(1, lines.size());
+        assertEquals("777", lines.get(0).reference());
+        assertEquals(new BigDecimal("1200.10"), lines.get(0).amount());
+        assertEquals(LocalDate.of(2026, 3, 15), lines.get(0).valueDate());
+    }
+
+    @Test
+    void malformedLineShouldReportItsLineNumber() throws IOException {
+        Path statement = write("101,250.00,2026-03-01\n102,not-a-number,2026-03-01\n");
+
+        IllegalArgumentException ex = assertThrows(
+                IllegalArgumentException.class,
+                () -> new MappedStatementReader().read(statement, StatementFormat.CSV, line -> {})
+        );
+
+        assertTrue(ex.getMessage().contains("line 2"));
+    }
+
+    @Test
+    void lineLongerThanWindowShouldFail() throws IOException {
+        Path statement = write("101,250.00,2026-03-01\n102,250.00,2026-03-01\n");
+
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new MappedStatementReader(8).read(statement, StatementFormat.CSV, line -> {})
+        );
+    }
+
+    private Path write(String content) throws IOException {
+        Path statement = tempDir.resolve("statement.txt");
+        Files.writeString(statement, content);
+        return statement;
+    }
+}
@@ -0,0 +1,123 @@
+package com.kailas.settlementengine.service;
+
+import com.kailas.settlementengine.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReconciliationBackfillServiceTest {
+
+    @Test
+    void backfillShouldUpdateAllRowsInKeysetChunks() {
+        TreeSet<Long> withoutStatus = new TreeSet<>(List.of(3L, 5L, 8L, 13L, 21L));
+        List<Collection<Long>> updates = new ArrayList<>();
+        ReconciliationBackfillService service = newService(repository(withoutStatus, updates, false));
+
+        long backfilled = service.runBackfill();
+
+        assertEquals(5, backfilled);
+        assertTrue(withoutStatus.isEmpty());
+        assertEquals(List.of(List.of(3L, 5L), List.of(8L, 13L), List.of(21L)), updates);
+
+        Map<String, Object> progress = service.describe();
+        assertEquals(ReconciliationBackfillService.State.COMPLETED, progress.get("state"));
+        assertEquals(3L, progress.get("chunkCount"));
+        assertNotNull(progress.get("completedAt"));
+    }
+
+    @Test
+    void failedChunkShouldBeReportedWithoutThrowing() {
+        ReconciliationBackfillService service = newService(repository(new TreeSet<>(List.of(1L)), new ArrayList<>(), true));
+
+        service.runBackfill();
+
+        assertEquals(ReconciliationBackfillService.State.FAILED, service.getState());
+        assertEquals("db down", service.describe().get("lastError"));
+    }
+
+    @Test
+    void disabledBackfillShouldReportDisabled() {
+        ReconciliationBackfillService service = new ReconciliationBackfillService(
+                repository(new TreeSet<>(), new ArrayList<>(), false),
+                new TransactionStateMachine(new TransactionStatusCounters()),
+                noOpTransactionManager(),
+                false,
+                2
+        );
+
+        service.startBackfill();
+
+        assertEquals(ReconciliationBackfillService.State.DISABLED, service.getState());
+    }
+
+    private ReconciliationBackfillService newService(TransactionRepository repository) {
+        return new ReconciliationBackfillService(repository, new TransactionStateMachine(new TransactionStatusCounters()), noOpTransactionManager(), true, 2);
+    }
+
+    private static TransactionRepository repository(TreeSet<Long> withoutStatus,
+                                                    List<Collection<Long>> updates,
+                                                    boolean failUpdates) {
+        return (TransactionRepository) Proxy.newProxyInstance(
+                TransactionRepository.class.getClassLoader(),
+                new Class[]{TransactionRepository.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findIdsWithoutReconciliationStatus" -> {
+                            long afterId = (Long) args[0];
+                            Pageable pageable = (Pageable) args[1];
+                            return withoutStatus.tailSet(afterId, false).stream()
+                                    .limit(pageable.getPageSize())
+                                    .toList();
+                        }
+                        case "initializeReconciliationStatus" -> {
+                            if (failUpdates) {
+                                throw new IllegalStateException("db down");
+                            }
+                            @SuppressWarnings("unchecked")
+                            Collection<Long> ids = (Collection<Long>) args[0];
+                            updates.add(List.copyOf(ids));
+                            int updated = 0;
+                            for (Long id : ids) {
+                                if (withoutStatus.remove(id)) {
+                                    updated++;
+                                }
+                            }
+                            return updated;
+                        }
+                        case "toString" -> {
+                            return "BackfillRepositoryStub";
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    }
+                }
+        );
+    }
+
+    private static PlatformTransactionManager noOpTransactionManager() {
+        return new PlatformTransactionManager() {
+            @Override
+            public org.springframework.transaction.TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(org.springframework.transaction.TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(org.springframework.transaction.TransactionStatus status) {
+            }
+        };
+    }
+}
@@ -0,0 +1,153 @@
+package com.kailas.settlementengine.service;
+
+import com.kailas.settlementengine.entity.Merchant;
+import com.kailas.settlementengine.entity.ReconciliationStatus;
+import com.kailas.settlementengine.entity.Transaction;
+import com.kailas.settlementengine.repository.MerchantRepository;
+import com.kailas.settlementengine.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Filtered reads of the exception queue against a real database: keyset pages
+ * where rows sharing a createdAt are ordered only by id, the capped first-page
+ * count, and the id-only selection behind bulk actions.
+ */
+@SpringBootTest(properties = "settlement.reconciliation.exceptions.count-cap=5")
+@ActiveProfiles("h2")
+class ReconciliationExceptionPageTest {
+
+    private static final String REASON = "Gateway timeout";
+
+    @Autowired
+    private ReconciliationService reconciliationService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private MerchantRepository merchantRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        transactionRepository.deleteAllInBatch();
+        merchantRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void pagesShouldNeitherRepeatNorSkipRowsSharingCreatedAt() {
+        Merchant merchant = merchant("Acme");
+        Merchant otherMerchant = merchant("Globex");
+        LocalDateTime earlier = LocalDateTime.now().minusHours(2).truncatedTo(ChronoUnit.SECONDS);
+        LocalDateTime shared = earlier.plusHours(1);
+
+        List<Long> expected = new ArrayList<>();
+        expected.addAll(seed(2, merchant, ReconciliationStatus.EXCEPTION_QUEUED, REASON, "100", earlier));
+        expected.addAll(seed(4, merchant, ReconciliationStatus.EXCEPTION_QUEUED, REASON, "100", shared));
+        // Same createdAt as the matching rows, but each fails one filter.
+        seed(1, merchant, ReconciliationStatus.EXCEPTION_QUEUED, "Amount differs", "100", shared);
+        seed(1, merchant, ReconciliationStatus.EXCEPTION_QUEUED, REASON, "5", shared);
+        seed(1, otherMerchant, ReconciliationStatus.EXCEPTION_QUEUED, REASON, "100", shared);
+        seed(1, merchant, ReconciliationStatus.PENDING, REASON, "100", shared);
+
+        ExceptionQueueFilter filter = new ExceptionQueueFilter(
+                "Gateway", merchant.getId(), new BigDecimal("50"), null, null, null
+        );
+
+        ExceptionQueuePage first = reconciliationService.getExceptionPage(filter, null, 3);
+        // Six rows match; counting stops at the cap of five.
+        assertEquals(5L, first.total());
+        assertTrue(first.totalCapped());
+        assertNotNull(first.nextCursor());
+
+        ExceptionQueuePage second = reconciliationService.getExceptionPage(filter, first.nextCursor(), 3);
+        assertNull(second.total());
+        assertNull(second.totalCapped());
+        assertNull(second.nextCursor());
+
+        List<Long> paged = new ArrayList<>();
+        first.items().forEach(transaction -> paged.add(transaction.getId()));
+        second.items().forEach(transaction -> paged.add(transaction.getId()));
+
+        // The page boundary falls inside the shared createdAt group.
+        assertEquals(shared, first.items().get(2).getCreatedAt());
+        assertEquals(shared, second.items().get(0).getCreatedAt());
+        assertEquals(expected, paged);
+        assertEquals(paged.size(), new HashSet<>(paged).size());
+    }
+
+    @Test
+    void bulkResolveByFilterShouldTouchOnlyTheMatchingIds() {
+        Merchant merchant = merchant("Acme");
+        LocalDateTime createdAt = LocalDateTime.now().minusHours(1).truncatedTo(ChronoUnit.SECONDS);
+        List<Long> matching = seed(3, merchant, ReconciliationStatus.EXCEPTION_QUEUED, REASON, "100", createdAt);
+        List<Long> otherReason = seed(2, merchant, ReconciliationStatus.EXCEPTION_QUEUED, "Amount differs", "100", createdAt);
+
+        ExceptionQueuePage page = reconciliationService.getExceptionPage(
+                new ExceptionQueueFilter("Gateway", null, null, null, null, null), null, 10
+        );
+        assertEquals(3L, page.total());
+        assertFalse(page.totalCapped());
+
+        BulkExceptionResult result = reconciliationService.resolveExceptions(
+                new ExceptionQueueFilter("Gateway", null, null, null, null, null),
+                "bulk"
+        );
+
+        assertFalse(result.truncated());
+        assertEquals(3, result.count(BulkExceptionOutcome.RESOLVED));
+        assertEquals(
+                new HashSet<>(matching),
+                new HashSet<>(result.outcomes().stream().map(BulkExceptionResult.ItemOutcome::transactionId).toList())
+        );
+        for (Transaction transaction : transactionRepository.findAllById(otherReason)) {
+            assertEquals(ReconciliationStatus.EXCEPTION_QUEUED, transaction.getReconciliationStatus());
+        }
+    }
+
+    private Merchant merchant(String name) {
+        Merchant merchant = new Merchant();
+        merchant.setName(name);
+        merchant.setBankAccount(name + "-001");
+        merchant.setSettlementCycle("T+1");
+        return merchantRepository.save(merchant);
+    }
+
+    private List<Long> seed(int count,
+                            Merchant merchant,
+                            ReconciliationStatus reconciliationStatus,
+                            String reason,
+                            String amount,
+                            LocalDateTime createdAt) {
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setAmount(new BigDecimal(amount));
+            transaction.setMerchant(merchant);
+            transaction.setReconciliationStatus(reconciliationStatus);
+            transaction.setExceptionReason(reason);
+            Long id = transactionRepository.save(transaction).getId();
+            // createdAt is stamped on construction and has no setter.
+            jdbcTemplate.update("UPDATE transactions SET created_at = ? WHERE id = ?", createdAt, id);
+            ids.add(id);
+        }
+        ids.sort(null);
+        return ids;
+    }
+}
@@ -1,10 +1,17 @@
 package com.kailas.settlementengine.service;
 
+import com.kailas.settlementengine.entity.ReconciliationCheckpoint;
 import com.kailas.settlementengine.entity.ReconciliationStatus;
 import com.kailas.settlementengine.entity.Transaction;
 import com.kailas.settlementengine.entity.TransactionStatus;
+import com.kailas.settlementengine.repository.ExceptionStateView;
+import com.kailas.settlementengine.repository.ReconciliationCheckpointRepository;
 import com.kailas.settlementengine.repository.TransactionRepository;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationHandler;
@@ -13,6 +20,9 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -22,19 +32,17 @@ class ReconciliationServiceTest {
     void settledPendingTransactionShouldBeMarkedMatched() {
         InMemoryTransactionStore store = new InMemoryTransactionStore();
         TransactionRepository repository = store.asRepository();
-        ReconciliationService service = new ReconciliationService(
-                repository,
-                new TransactionStateMachine()
-        );
+        ReconciliationService service = newService(store);
 
         Transaction transaction = createTransaction(TransactionStatus.SETTLED, ReconciliationStatus.PENDING);
         transaction.setSettledAt(LocalDateTime.now());
         repository.save(transaction);
 
-        long updated = service.reconcilePendingTransactions();
+        ReconciliationRunResult result = service.reconcilePendingTransactions();
         Transaction reloaded = repository.findById(transaction.getId()).orElseThrow();
 
-        assertEquals(1, updated);
+        assertEquals(1, result.updatedCount());
+        assertEquals(1, result.matchedCount());
         assertEquals(ReconciliationStatus.MATCHED, reloaded.getReconciliationStatus());
         assertNull(reloaded.getExceptionReason());
     }
@@ -43,30 +51,132 @@ class ReconciliationServiceTest {
     void failedPendingTransactionShouldBeQueuedAsException() {
         InMemoryTransactionStore store = new InMemoryTransactionStore();
         TransactionRepository repository = store.asRepository();
-        ReconciliationService service = new ReconciliationService(
-                repository,
-                new TransactionStateMachine()
-        );
+        ReconciliationService service = newService(store);
 
         Transaction transaction = createTransaction(TransactionStatus.FAILED, ReconciliationStatus.PENDING);
         repository.save(transaction);
 
-        long updated = service.reconcilePendingTransactions();
+        ReconciliationRunResult result = service.reconcilePendingTransactions();
         Transaction reloaded = repository.findById(transaction.getId()).orElseThrow();
 
-        assertEquals(1, updated);
+        assertEquals(1, result.updatedCount());
+        assertEquals(1, result.failedQueuedCount());
         assertEquals(ReconciliationStatus.EXCEPTION_QUEUED, reloaded.getReconciliationStatus());
         assertEquals("Settlement failed after max retries", reloaded.getExceptionReason());
     }
 
+    @Test
+    void pendingRowsShouldBeReconciledAcrossIdChunksWithPerOutcomeCounts() {
+        InMemoryTransactionStore store = new InMemoryTransactionStore();
+        TransactionRepository repository = store.asRepository();
+        ReconciliationService service = newService(store);
+
+        Transaction settled = createTransaction(TransactionStatus.SETTLED, ReconciliationStatus.PENDING);
+        settled.setSettledAt(LocalDateTime.now());
+        repository.save(settled);
+        Transaction settledWithoutTimestamp =
+                createTransaction(TransactionStatus.SETTLED, ReconciliationStatus.PENDING);
+        repository.save(settledWithoutTimestamp);
+        Transaction captured = createTransaction(TransactionStatus.CAPTURED, ReconciliationStatus.PENDING);
+        repository.save(captured);
+        Transaction alreadyMatched = createTransaction(TransactionStatus.SETTLED, ReconciliationStatus.MATCHED);
+        alreadyMatched.setSettledAt(LocalDateTime.now());
+        repository.save(alreadyMatched);
+        Transaction failed = createTransaction(TransactionStatus.FAILED, ReconciliationStatus.PENDING);
+        repository.save(failed);
+
+        ReconciliationRunResult result = service.reconcilePendingTransactions();
+
+        assertEquals(1, result.matchedCount());
+        assertEquals(1, result.missingSettledAtCount());
+        assertEquals(1, result.failedQueuedCount());
+        assertEquals(ReconciliationStatus.EXCEPTION_QUEUED,
+                repository.findById(settledWithoutTimestamp.getId()).orElseThrow().getReconciliationStatus());
+        assertEquals("SETTLED transaction missing settledAt timestamp",
+                repository.findById(settledWithoutTimestamp.getId()).orElseThrow().getExceptionReason());
+        assertEquals(ReconciliationStatus.PENDING,
+                repository.findById(captured.getId()).orElseThrow().getReconciliationStatus());
+        assertTrue(store.bulkUpdateBatches.size() >= 3 * 2, "expected one update per rule per id chunk");
+    }
+
+    @Test
+    void noPendingRowsShouldSkipUpdates() {
+        InMemoryTransactionStore store = new InMemoryTransactionStore();
+        ReconciliationService service = newService(store);
+
+        assertEquals(0, service.reconcilePendingTransactions().updatedCount());
+        assertTrue(store.bulkUpdateBatches.isEmpty());
+    }
+
+    @Test
+    void watermarkShouldAdvanceAndSkipRowsAlreadyBehindIt() {
+        InMemoryTransactionStore store = new InMemoryTransactionStore();
+        TransactionRepository repository = store.asRepository();
+        ReconciliationService service = newService(store);
+
+        ReconciliationRunResult first = service.reconcilePendingTransactions();
+        assertNotNull(first.watermark());
+        assertEquals(first.watermark(), store.checkpoints.get(ReconciliationService.CHECKPOINT_NAME).getWatermark());
+
+        // Changed before the stored watermark: a full scan would pick it up, the delta scan must not.
+        Transaction stale = createTransaction(TransactionStatus.FAILED, ReconciliationStatus.PENDING);
+        repository.save(stale);
+
+        ReconciliationRunResult second = service.reconcilePendingTransactions();
+
+        assertEquals(0, second.updatedCount());
+        assertFalse(second.watermark().isBefore(first.watermark()));
+        assertTrue(second.watermarkLagMillis() >= 0);
+        assertEquals(ReconciliationStatus.PENDING,
+                repository.findById(stale.getId()).orElseThrow().getReconciliationStatus());
+    }
+
+    @Test
+    void enqueuedRowsShouldBeReconciledInsideTheSafetyLag() {
+        InMemoryTransactionStore store = new InMemoryTransactionStore();
+        TransactionRepository repository = store.asRepository();
+        ReconciliationService service = newService(store);
+
+        Transaction justSettled = createTransaction(TransactionStatus.SETTLED, ReconciliationStatus.PENDING);
+        justSettled.setSettledAt(LocalDateTime.now());
+        justSettled.setReconciliationUpdatedAt(LocalDateTime.now());
+        repository.save(justSettled);
+
+        assertEquals(0, service.reconcilePendingTransactions().updatedCount());
+
+        service.enqueue(List.of(justSettled.getId()));
+        ReconciliationRunResult result = service.reconcilePendingTransactions();
+
+        assertEquals(1, result.matchedCount());
+        assertEquals(ReconciliationStatus.MATCHED,
+                repository.findById(justSettled.getId()).orElseThrow().getReconciliationStatus());
+    }
+
+    @Test
+    void exceptionPageShouldRejectOutOfRangeLimit() {
+        ReconciliationService service = newService(new InMemoryTransactionStore());
+
+        assertThrows(IllegalStateException.class,
+                () -> service.getExceptionPage(ExceptionQueueFilter.NONE, null, 0));
+        assertThrows(IllegalStateException.class,
+                () -> service.getExceptionPage(ExceptionQueueFilter.NONE, null, 201));
+    }
+
+    @Test
+    void exceptionPageShouldRejectTamperedCursor() {
+        ReconciliationService service = newService(new InMemoryTransactionStore());
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> service.getExceptionPage(ExceptionQueueFilter.NONE, "not-a-cursor", 10));
+
+        assertTrue(ex.getMessage().contains("cursor"));
+    }
+
     @Test
     void retryExceptionShouldMoveFailedTransactionBackToCaptured() {
         InMemoryTransactionStore store = new InMemoryTransactionStore();
         TransactionRepository repository = store.asRepository();
-        ReconciliationService service = new ReconciliationService(
-                repository,
-                new TransactionStateMachine()
-        );
+        ReconciliationService service = newService(store);
 
         Transaction transaction = createTransaction(TransactionStatus.FAILED, ReconciliationStatus.EXCEPTION_QUEUED);
         transaction.setExceptionReason("Settlement failed after max retries");
@@ -83,10 +193,7 @@ class ReconciliationServiceTest {
     void resolveExceptionShouldSetResolvedAndPersistNote() {
         InMemoryTransactionStore store = new InMemoryTransactionStore();
         TransactionRepository repository = store.asRepository();
-        ReconciliationService service = new ReconciliationService(
-                repository,
-                new TransactionStateMachine()
-        );
+        ReconciliationService service = newService(store);
 
         Transaction transaction = createTransaction(TransactionStatus.FAILED, ReconciliationStatus.EXCEPTION_QUEUED);
         repository.save(transaction);
@@ -98,14 +205,80 @@ class ReconciliationServiceTest {
     }
 
     @Test
-    void retryExceptionShouldFailWhenTransactionIsNotQueued() {
+    void bulkRetryShouldReportPerIdOutcomesAndFollowStateMachine() {
         InMemoryTransactionStore store = new InMemoryTransactionStore();
         TransactionRepository repository = store.asRepository();
-        ReconciliationService service = new ReconciliationService(
-                repository,
-                new TransactionStateMachine()
+        ReconciliationService service = newService(store);
+
+        Transaction failed = createTransaction(TransactionStatus.FAILED, ReconciliationStatus.EXCEPTION_QUEUED);
+        repository.save(failed);
+        Transaction settled = createTransaction(TransactionStatus.SETTLED, ReconciliationStatus.EXCEPTION_QUEUED);
+        repository.save(settled);
+        Transaction matched = createTransaction(TransactionStatus.SETTLED, ReconciliationStatus.MATCHED);
+        repository.save(matched);
+        Transaction secondFailed = createTransaction(TransactionStatus.FAILED, ReconciliationStatus.EXCEPTION_QUEUED);
+        repository.save(secondFailed);
+
+        BulkExceptionResult result = service.retryExceptions(
+                List.of(failed.getId(), settled.getId(), matched.getId(), 99999L, secondFailed.getId())
         );
 
+        assertEquals(List.of(
+                BulkExceptionOutcome.RETRIED,
+                BulkExceptionOutcome.RETRIED,
+                BulkExceptionOutcome.NOT_IN_EXCEPTION_QUEUE,
+                BulkExceptionOutcome.NOT_FOUND,
+                BulkExceptionOutcome.RETRIED
+        ), result.outcomes().stream().map(BulkExceptionResult.ItemOutcome::outcome).toList());
+        assertEquals(TransactionStatus.CAPTURED, repository.findById(failed.getId()).orElseThrow().getStatus());
+        assertEquals(TransactionStatus.CAPTURED, repository.findById(secondFailed.getId()).orElseThrow().getStatus());
+        assertEquals(TransactionStatus.SETTLED, repository.findById(settled.getId()).orElseThrow().getStatus());
+        assertEquals(ReconciliationStatus.PENDING,
+                repository.findById(settled.getId()).orElseThrow().getReconciliationStatus());
+        assertEquals(ReconciliationStatus.MATCHED,
+                repository.findById(matched.getId()).orElseThrow().getReconciliationStatus());
+        assertEquals(3, store.bulkUpdateBatches.size(), "chunks of 2: one bulk update per chunk and target state");
+    }
+
+    @Test
+    void bulkResolveShouldApplyNoteToQueuedRowsOnly() {
+        InMemoryTransactionStore store = new InMemoryTransactionStore();
+        TransactionRepository repository = store.asRepository();
+        ReconciliationService service = newService(store);
+
+        Transaction queued = createTransaction(TransactionStatus.FAILED, ReconciliationStatus.EXCEPTION_QUEUED);
+        repository.save(queued);
+        Transaction pending = createTransaction(TransactionStatus.FAILED, ReconciliationStatus.PENDING);
+        repository.save(pending);
+
+        BulkExceptionResult result = service.resolveExceptions(
+                List.of(queued.getId(), pending.getId(), queued.getId()),
+                " Processor outage, refunded "
+        );
+
+        assertEquals(1, result.count(BulkExceptionOutcome.RESOLVED));
+        assertEquals(1, result.count(BulkExceptionOutcome.NOT_IN_EXCEPTION_QUEUE));
+        Transaction resolved = repository.findById(queued.getId()).orElseThrow();
+        assertEquals(ReconciliationStatus.RESOLVED, resolved.getReconciliationStatus());
+        assertEquals("Processor outage, refunded", resolved.getExceptionReason());
+        assertEquals(TransactionStatus.FAILED, resolved.getStatus());
+    }
+
+    @Test
+    void bulkActionShouldRejectTooManyIds() {
+        ReconciliationService service = newService(new InMemoryTransactionStore());
+
+        assertThrows(IllegalStateException.class,
+                () -> service.retryExceptions(LongStream.rangeClosed(1, 11).boxed().toList()));
+        assertThrows(IllegalStateException.class, () -> service.resolveExceptions(List.of(), null));
+    }
+
+    @Test
+    void retryExceptionShouldFailWhenTransactionIsNotQueued() {
+        InMemoryTransactionStore store = new InMemoryTransactionStore();
+        TransactionRepository repository = store.asRepository();
+        ReconciliationService service = newService(store);
+
         Transaction transaction = createTransaction(TransactionStatus.FAILED, ReconciliationStatus.PENDING);
         repository.save(transaction);
 
@@ -121,10 +294,7 @@ class ReconciliationServiceTest {
     void resolveExceptionShouldFailWhenTransactionDoesNotExist() {
         InMemoryTransactionStore store = new InMemoryTransactionStore();
         TransactionRepository repository = store.asRepository();
-        ReconciliationService service = new ReconciliationService(
-                repository,
-                new TransactionStateMachine()
-        );
+        ReconciliationService service = newService(store);
 
         IllegalArgumentException ex = assertThrows(
                 IllegalArgumentException.class,
@@ -134,18 +304,51 @@ class ReconciliationServiceTest {
         assertTrue(ex.getMessage().contains("Transaction not found"));
     }
 
+    private ReconciliationService newService(InMemoryTransactionStore store) {
+        PlatformTransactionManager transactionManager = new PlatformTransactionManager() {
+            @Override
+            public org.springframework.transaction.TransactionStatus getTransaction(
+                    TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(org.springframework.transaction.TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(org.springframework.transaction.TransactionStatus status) {
+            }
+        };
+        return new ReconciliationService(
+                store.asRepository(),
+                store.asCheckpointRepository(),
+                new TransactionStateMachine(new TransactionStatusCounters()),
+                transactionManager,
+                2,
+                5,
+                10,
+                1000,
+                SettlementMetrics.noop(),
+                SettlementFlightRecorder.disabled()
+        );
+    }
+
     private Transaction createTransaction(TransactionStatus status, ReconciliationStatus reconciliationStatus) {
         Transaction transaction = new Transaction();
         transaction.setAmount(BigDecimal.valueOf(1000));
         transaction.setStatus(status);
         transaction.setReconciliationStatus(reconciliationStatus);
-        transaction.setReconciliationUpdatedAt(LocalDateTime.now());
+        // Old enough to be outside the watermark safety lag.
+        transaction.setReconciliationUpdatedAt(LocalDateTime.now().minusMinutes(1));
         return transaction;
     }
 
     private static final class InMemoryTransactionStore {
         private final Map<Long, Transaction> data = new LinkedHashMap<>();
         private final AtomicLong sequence = new AtomicLong(1);
+        private final List<Collection<Long>> bulkUpdateBatches = new ArrayList<>();
+        private final Map<String, ReconciliationCheckpoint> checkpoints = new HashMap<>();
         private final Field idField;
 
         private InMemoryTransactionStore() {
@@ -157,6 +360,34 @@ class ReconciliationServiceTest {
             }
         }
 
+        private int bulkUpdate(Object[] args,
+                               ReconciliationStatus source,
+                               Predicate<Transaction> rule,
+                               Consumer<Transaction> change) {
+            @SuppressWarnings("unchecked")
+            Collection<Long> ids = (Collection<Long>) args[0];
+            bulkUpdateBatches.add(List.copyOf(ids));
+
+            int updated = 0;
+            for (Transaction transaction : data.values()) {
+                if (ids.contains(transaction.getId())
+                        && transaction.getReconciliationStatus() == source
+                        && rule.test(transaction)) {
+                    change.accept(transaction);
+                    updated++;
+                }
+            }
+            return updated;
+        }
+
+        private static Consumer<Transaction> moveTo(ReconciliationStatus target, String reason, LocalDateTime now) {
+            return transaction -> {
+                transaction.setReconciliationStatus(target);
+                transaction.setExceptionReason(reason);
+                transaction.setReconciliationUpdatedAt(now);
+            };
+        }
+
         private TransactionRepository asRepository() {
             InvocationHandler handler = (proxy, method, args) -> {
                 String name = method.getName();
@@ -182,6 +413,79 @@ class ReconciliationServiceTest {
                             .toList();
                 }
 
+                if (name.equals("findReconcilableIdsChangedBetween")) {
+                    LocalDateTime after = (LocalDateTime) args[0];
+                    LocalDateTime upTo = (LocalDateTime) args[1];
+                    long afterId = (Long) args[2];
+                    Pageable pageable = (Pageable) args[3];
+                    return data.values().stream()
+                            .filter(t -> t.getReconciliationStatus() == ReconciliationStatus.PENDING)
+                            .filter(t -> t.getStatus() == TransactionStatus.SETTLED
+                                    || t.getStatus() == TransactionStatus.FAILED)
+                            .filter(t -> t.getReconciliationUpdatedAt().isAfter(after)
+                                    && !t.getReconciliationUpdatedAt().isAfter(upTo))
+                            .map(Transaction::getId)
+                            .filter(id -> id > afterId)
+                            .sorted()
+                            .limit(pageable.getPageSize())
+                            .toList();
+                }
+
+                if (name.equals("lockExceptionStates")) {
+                    @SuppressWarnings("unchecked")
+                    Collection<Long> ids = (Collection<Long>) args[0];
+                    return ids.stream()
+                            .map(data::get)
+                            .filter(Objects::nonNull)
+                            .map(t -> new ExceptionStateView(t.getId(), t.getStatus(), t.getReconciliationStatus()))
+                            .toList();
+                }
+
+                if (name.equals("retryFailedExceptions")) {
+                    LocalDateTime now = (LocalDateTime) args[1];
+                    return bulkUpdate(args, ReconciliationStatus.EXCEPTION_QUEUED,
+                            t -> t.getStatus() == TransactionStatus.FAILED,
+                            moveTo(ReconciliationStatus.PENDING, null, now).andThen(t -> {
+                                t.setStatus(TransactionStatus.CAPTURED);
+                                t.setNextAttemptAt(now);
+                            }));
+                }
+
+                if (name.equals("requeueExceptions")) {
+                    return bulkUpdate(args, ReconciliationStatus.EXCEPTION_QUEUED, t -> true,
+                            moveTo(ReconciliationStatus.PENDING, null, (LocalDateTime) args[1]));
+                }
+
+                if (name.equals("resolveExceptions")) {
+                    return bulkUpdate(args, ReconciliationStatus.EXCEPTION_QUEUED, t -> true, t -> {
+                        t.setReconciliationStatus(ReconciliationStatus.RESOLVED);
+                        t.setReconciliationUpdatedAt((LocalDateTime) args[1]);
+                    });
+                }
+
+                if (name.equals("resolveExceptionsWithNote")) {
+                    return bulkUpdate(args, ReconciliationStatus.EXCEPTION_QUEUED, t -> true,
+                            moveTo(ReconciliationStatus.RESOLVED, (String) args[1], (LocalDateTime) args[2]));
+                }
+
+                if (name.equals("markSettledPendingMatched")) {
+                    return bulkUpdate(args, ReconciliationStatus.PENDING,
+                            t -> t.getStatus() == TransactionStatus.SETTLED && t.getSettledAt() != null,
+                            moveTo(ReconciliationStatus.MATCHED, null, (LocalDateTime) args[1]));
+                }
+
+                if (name.equals("queueSettledPendingWithoutSettledAt")) {
+                    return bulkUpdate(args, ReconciliationStatus.PENDING,
+                            t -> t.getStatus() == TransactionStatus.SETTLED && t.getSettledAt() == null,
+                            moveTo(ReconciliationStatus.EXCEPTION_QUEUED, (String) args[1], (LocalDateTime) args[2]));
+                }
+
+                if (name.equals("queueFailedPending")) {
+                    return bulkUpdate(args, ReconciliationStatus.PENDING,
+                            t -> t.getStatus() == TransactionStatus.FAILED,
+                            moveTo(ReconciliationStatus.EXCEPTION_QUEUED, (String) args[1], (LocalDateTime) args[2]));
+                }
+
                 if (name.equals("findByReconciliationStatusOrderByCreatedAtAsc")) {
                     ReconciliationStatus status = (ReconciliationStatus) args[0];
                     return data.values().stream()
@@ -209,5 +513,39 @@ class ReconciliationServiceTest {
                     handler
             );
         }
+
+        private ReconciliationCheckpointRepository asCheckpointRepository() {
+            InvocationHandler handler = (proxy, method, args) -> {
+                String name = method.getName();
+
+                if (name.equals("findById")) {
+                    return Optional.ofNullable(checkpoints.get((String) args[0]));
+                }
+
+                if (name.equals("save")) {
+                    ReconciliationCheckpoint checkpoint = (ReconciliationCheckpoint) args[0];
+                    checkpoints.put(checkpoint.getName(), checkpoint);
+                    return checkpoint;
+                }
+
+                if (name.equals("toString")) {
+                    return "InMemoryCheckpointRepositoryProxy";
+                }
+                if (name.equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                }
+                if (name.equals("equals")) {
+                    return proxy == args[0];
+                }
+
+                throw new UnsupportedOperationException("Method not supported in test stub: " + name);
+            };
+
+            return (ReconciliationCheckpointRepository) Proxy.newProxyInstance(
+                    ReconciliationCheckpointRepository.class.getClassLoader(),
+                    new Class[]{ReconciliationCheckpointRepository.class},
+                    handler
+            );
+        }
     }
 }
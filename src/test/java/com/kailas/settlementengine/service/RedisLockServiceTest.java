@@ -0,0 +1,148 @@
+package com.kailas.settlementengine.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The lock-*.lua scripts as Redis runs them. Needs Docker; skipped without it.
+ * Expiry is simulated by deleting the lock key, which is what the scripts see
+ * once its TTL runs out.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RedisLockServiceTest {
+
+    private static final String KEY = "settlement-lock";
+
+    @Container
+    private static final GenericContainer<?> REDIS =
+            new GenericContainer<>(DockerImageName.parse("redis:7-alpine")).withExposedPorts(6379);
+
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redis;
+    private RedisLockService nodeA;
+    private RedisLockService nodeB;
+
+    @BeforeEach
+    void setUp() {
+        connectionFactory = new LettuceConnectionFactory(REDIS.getHost(), REDIS.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redis = new StringRedisTemplate(connectionFactory);
+        redis.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        });
+        nodeA = lockService("node-a");
+        nodeB = lockService("node-b");
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodeA.shutdown();
+        nodeB.shutdown();
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void acquireShouldIssueIncreasingTokens() {
+        SettlementLockLease first = nodeA.acquireLock(KEY);
+        assertNull(nodeB.acquireLock(KEY));
+        nodeA.releaseLock(first);
+
+        SettlementLockLease second = nodeB.acquireLock(KEY);
+
+        assertEquals("node-a#1", first.lockId());
+        assertEquals("node-b#2", second.lockId());
+        assertEquals(second.lockId(), redis.opsForValue().get(KEY));
+        assertTrue(second.fencingToken() > first.fencingToken());
+    }
+
+    @Test
+    void failedAcquireShouldNotDrawAToken() {
+        nodeA.acquireLock(KEY);
+        assertNull(nodeB.acquireLock(KEY));
+
+        assertEquals("1", redis.opsForValue().get(RedisLockService.fenceKey(KEY)));
+    }
+
+    @Test
+    void acquireShouldSetTheTtl() {
+        nodeA.acquireLock(KEY);
+
+        Long ttlMillis = redis.getExpire(KEY, TimeUnit.MILLISECONDS);
+        assertTrue(ttlMillis > 20_000 && ttlMillis <= 25_000, "ttl " + ttlMillis);
+    }
+
+    @Test
+    void releaseShouldNotDeleteANewerHoldersLock() {
+        SettlementLockLease stale = nodeA.acquireLock(KEY);
+        redis.delete(KEY);
+        SettlementLockLease current = nodeB.acquireLock(KEY);
+
+        nodeA.releaseLock(stale);
+
+        assertEquals(current.lockId(), redis.opsForValue().get(KEY));
+    }
+
+    @Test
+    void renewShouldExtendOnlyWhileTheLeaseHoldsTheLock() {
+        SettlementLockLease lease = nodeA.acquireLock(KEY);
+        redis.expire(KEY, Duration.ofSeconds(5));
+        assertTrue(nodeA.renew(lease));
+        assertTrue(redis.getExpire(KEY) > 20);
+        assertFalse(lease.isLost());
+
+        redis.delete(KEY);
+        nodeB.acquireLock(KEY);
+
+        assertFalse(nodeA.renew(lease));
+        assertTrue(lease.isLost());
+    }
+
+    @Test
+    void statusShouldReadHolderAndTtlOfEveryKey() {
+        SettlementLockLease lease = nodeA.acquireLock(KEY);
+
+        List<SettlementLockStatus> statuses = nodeA.getLockStatuses(List.of(KEY, KEY + ":partition-1"));
+
+        assertEquals(lease.lockId(), statuses.get(0).holder());
+        assertTrue(statuses.get(0).ttlMillis() > 20_000 && statuses.get(0).ttlMillis() <= 25_000);
+        assertEquals(SettlementLockStatus.FREE, statuses.get(1));
+    }
+
+    @Test
+    void fencingFloorShouldRaiseButNeverLowerTheCounter() {
+        nodeA.raiseFencingFloor(KEY, 40);
+        SettlementLockLease afterReset = nodeA.acquireLock(KEY);
+        nodeA.releaseLock(afterReset);
+
+        nodeA.raiseFencingFloor(KEY, 7);
+        SettlementLockLease next = nodeA.acquireLock(KEY);
+
+        assertEquals(41, afterReset.fencingToken());
+        assertEquals(42, next.fencingToken());
+    }
+
+    @Test
+    void fenceKeyShouldShareTheLockKeysHashSlot() {
+        assertEquals("{settlement-lock:partition-3}:fence", RedisLockService.fenceKey("settlement-lock:partition-3"));
+    }
+
+    private RedisLockService lockService(String nodeId) {
+        return new RedisLockService(redis, new SettlementNodeIdentity(nodeId), SettlementFlightRecorder.disabled(), 25);
+    }
+}
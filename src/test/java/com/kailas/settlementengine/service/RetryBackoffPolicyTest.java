@@ -0,0 +1,57 @@
+package com.kailas.settlementengine.service;
+
+import com.kailas.settlementengine.entity.Merchant;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryBackoffPolicyTest {
+
+    @Test
+    void delayShouldGrowExponentiallyUpToTheCap() {
+        RetryBackoffPolicy policy = new RetryBackoffPolicy(30, 200, 2.0, 0.0, () -> 0.5);
+
+        assertEquals(Duration.ofSeconds(30), policy.delayAfter(1, null));
+        assertEquals(Duration.ofSeconds(60), policy.delayAfter(2, null));
+        assertEquals(Duration.ofSeconds(120), policy.delayAfter(3, null));
+        assertEquals(Duration.ofSeconds(200), policy.delayAfter(4, null));
+        assertEquals(Duration.ofSeconds(200), policy.delayAfter(40, null));
+    }
+
+    @Test
+    void jitterShouldSpreadDelayWithinBounds() {
+        RetryBackoffPolicy low = new RetryBackoffPolicy(100, 1000, 2.0, 0.2, () -> 0.0);
+        RetryBackoffPolicy high = new RetryBackoffPolicy(100, 1000, 2.0, 0.2, () -> 0.999999);
+
+        assertEquals(Duration.ofSeconds(80), low.delayAfter(1, null));
+        assertTrue(high.delayAfter(1, null).compareTo(Duration.ofSeconds(120)) <= 0);
+        assertTrue(high.delayAfter(1, null).compareTo(Duration.ofSeconds(119)) > 0);
+    }
+
+    @Test
+    void jitterShouldNotExceedTheCap() {
+        RetryBackoffPolicy policy = new RetryBackoffPolicy(100, 100, 2.0, 0.5, () -> 1.0);
+
+        assertEquals(Duration.ofSeconds(100), policy.delayAfter(3, null));
+    }
+
+    @Test
+    void merchantOverridesShouldReplaceGlobalDefaults() {
+        RetryBackoffPolicy policy = new RetryBackoffPolicy(30, 3600, 2.0, 0.0, () -> 0.5);
+        Merchant merchant = new Merchant();
+        merchant.setRetryBackoffBaseSeconds(5L);
+        merchant.setRetryBackoffMaxSeconds(8L);
+
+        assertEquals(Duration.ofSeconds(5), policy.delayAfter(1, merchant));
+        assertEquals(Duration.ofSeconds(8), policy.delayAfter(2, merchant));
+    }
+
+    @Test
+    void invalidConfigurationShouldFail() {
+        assertThrows(IllegalStateException.class, () -> new RetryBackoffPolicy(60, 30, 2.0, 0.0, () -> 0.5));
+        assertThrows(IllegalStateException.class, () -> new RetryBackoffPolicy(30, 60, 0.5, 0.0, () -> 0.5));
+        assertThrows(IllegalStateException.class, () -> new RetryBackoffPolicy(30, 60, 2.0, 1.5, () -> 0.5));
+    }
+}
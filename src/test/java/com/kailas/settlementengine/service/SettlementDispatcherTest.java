@@ -0,0 +1,101 @@
+package com.kailas.settlementengine.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SettlementDispatcherTest {
+
+    @Test
+    void nodeWithoutPartitionsShouldGoIdleAfterOneRun() throws InterruptedException {
+        ScriptedExecutionService executionService = new ScriptedExecutionService(
+                SettlementExecutionService.SettlementRunResult.nothingAssigned()
+        );
+        SettlementDispatcher dispatcher = dispatcher(executionService, 5);
+
+        dispatcher.signalWork();
+
+        assertEquals(1, drain(dispatcher));
+        assertEquals(1, executionService.calls);
+    }
+
+    @Test
+    void heldLockShouldBeRetriedAtMostMaxAttemptsTimes() throws InterruptedException {
+        ScriptedExecutionService executionService = new ScriptedExecutionService(
+                SettlementExecutionService.SettlementRunResult.lockHeld()
+        );
+        SettlementDispatcher dispatcher = dispatcher(executionService, 3);
+
+        dispatcher.signalWork();
+
+        // The first run plus three retries, then the rows are left to the sweep.
+        assertEquals(4, drain(dispatcher));
+        assertEquals(4, executionService.calls);
+    }
+
+    @Test
+    void retriesShouldStopOnceTheLockIsTaken() throws InterruptedException {
+        ScriptedExecutionService executionService = new ScriptedExecutionService(
+                SettlementExecutionService.SettlementRunResult.lockHeld(),
+                SettlementExecutionService.SettlementRunResult.lockHeld(),
+                SettlementExecutionService.SettlementRunResult.completed(7)
+        );
+        SettlementDispatcher dispatcher = dispatcher(executionService, 5);
+
+        dispatcher.signalWork();
+
+        assertEquals(3, drain(dispatcher));
+        assertEquals(3, executionService.calls);
+    }
+
+    @Test
+    void retryDelayShouldDoubleEachAttempt() {
+        SettlementDispatcher dispatcher = dispatcher(new ScriptedExecutionService(), 5);
+
+        assertEquals(List.of(1L, 2L, 4L, 8L), List.of(
+                dispatcher.lockRetryDelayMillis(1),
+                dispatcher.lockRetryDelayMillis(2),
+                dispatcher.lockRetryDelayMillis(3),
+                dispatcher.lockRetryDelayMillis(4)
+        ));
+    }
+
+    private static int drain(SettlementDispatcher dispatcher) throws InterruptedException {
+        int runs = 0;
+        while (dispatcher.dispatchPending()) {
+            runs++;
+            assertTrue(runs < 100, "dispatcher kept re-queueing runs");
+        }
+        return runs;
+    }
+
+    private static SettlementDispatcher dispatcher(SettlementExecutionService executionService, int maxAttempts) {
+        SettlementMonitoringService monitoringService = new SettlementMonitoringService(
+                null, null, null, null, new TransactionStatusCounters(), SettlementMetrics.noop(), 1000, 10
+        );
+        return new SettlementDispatcher(executionService, monitoringService, true, 1, maxAttempts);
+    }
+
+    /**
+     * Returns the scripted results in order, then repeats the last one.
+     */
+    private static final class ScriptedExecutionService extends SettlementExecutionService {
+        private final Deque<SettlementRunResult> results;
+        private int calls;
+
+        private ScriptedExecutionService(SettlementRunResult... results) {
+            super(null, null, null, null, null, null);
+            this.results = new ArrayDeque<>(List.of(results));
+        }
+
+        @Override
+        public SettlementRunResult runWithLock(String triggerSource, long minLockHoldMillis) {
+            calls++;
+            return results.size() > 1 ? results.poll() : results.peek();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.kailas.settlementengine.service;
+
+import com.kailas.settlementengine.entity.SettlementFence;
+import com.kailas.settlementengine.repository.SettlementFenceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SettlementFenceServiceTest {
+
+    private static final String KEY = "settlement-lock:partition-0";
+
+    private final Map<String, Long> fences = new HashMap<>();
+    private final List<Long> raisedFloors = new ArrayList<>();
+    // Runs between this node finding no fence row and inserting one.
+    private Runnable concurrentFirstClaim = () -> {};
+    private final SettlementFenceService fenceService = new SettlementFenceService(
+            repository(),
+            lockProvider(SettlementLockBackend.REDIS),
+            transactionManager()
+    );
+
+    @Test
+    void firstClaimShouldCreateTheFence() {
+        fenceService.check(lease("node-a#3", 3L));
+
+        assertEquals(3L, fences.get("redis:" + KEY));
+    }
+
+    @Test
+    void newerTokenShouldMoveTheFenceUp() {
+        fenceService.check(lease("node-a#3", 3L));
+        fenceService.check(lease("node-b#4", 4L));
+
+        assertEquals(4L, fences.get("redis:" + KEY));
+    }
+
+    @Test
+    void holderShouldKeepClaimingWithItsOwnToken() {
+        SettlementLockLease lease = lease("node-a#3", 3L);
+        fenceService.check(lease);
+        fenceService.check(lease);
+
+        assertEquals(3L, fences.get("redis:" + KEY));
+    }
+
+    @Test
+    void staleTokenShouldBeRefused() {
+        fenceService.check(lease("node-b#4", 4L));
+
+        IllegalStateException error = assertThrows(
+                IllegalStateException.class,
+                () -> fenceService.check(lease("node-a#3", 3L))
+        );
+        assertTrue(error.getMessage().contains("Stale fencing token 3"));
+        assertEquals(4L, fences.get("redis:" + KEY));
+    }
+
+    @Test
+    void backendsShouldKeepSeparateFences() {
+        fenceService.check(lease("node-b#40", 40L));
+        fenceService.check(new SettlementLockLease(SettlementLockBackend.POSTGRES, KEY, "node-a#3", 3L));
+
+        assertEquals(40L, fences.get("redis:" + KEY));
+        assertEquals(3L, fences.get("postgres:" + KEY));
+    }
+
+    @Test
+    void newerTokenShouldWinAConcurrentFirstClaim() {
+        concurrentFirstClaim = () -> {
+            concurrentFirstClaim = () -> {};
+            fenceService.check(lease("node-b#5", 5L));
+        };
+
+        fenceService.check(lease("node-a#7", 7L));
+
+        assertEquals(7L, fences.get("redis:" + KEY));
+    }
+
+    @Test
+    void olderTokenShouldLoseAConcurrentFirstClaim() {
+        concurrentFirstClaim = () -> {
+            concurrentFirstClaim = () -> {};
+            fenceService.check(lease("node-b#5", 5L));
+        };
+
+        IllegalStateException error = assertThrows(
+                IllegalStateException.class,
+                () -> fenceService.check(lease("node-a#3", 3L))
+        );
+        assertTrue(error.getMessage().contains("Stale fencing token 3"));
+        assertEquals(5L, fences.get("redis:" + KEY));
+    }
+
+    @Test
+    void refusedTokenShouldRaiseTheCounterAboveTheFence() {
+        fenceService.check(lease("node-a#40", 40L));
+
+        // The counter restarted after a Redis flush.
+        assertThrows(IllegalStateException.class, () -> fenceService.check(lease("node-a#1", 1L)));
+
+        assertEquals(List.of(40L), raisedFloors);
+    }
+
+    @Test
+    void refusedTokenOfAnotherBackendShouldNotTouchTheActiveCounter() {
+        fenceService.check(new SettlementLockLease(SettlementLockBackend.POSTGRES, KEY, "node-a#40", 40L));
+
+        assertThrows(
+                IllegalStateException.class,
+                () -> fenceService.check(new SettlementLockLease(SettlementLockBackend.POSTGRES, KEY, "node-a#1", 1L))
+        );
+
+        assertTrue(raisedFloors.isEmpty());
+    }
+
+    private static SettlementLockLease lease(String lockId, long token) {
+        return new SettlementLockLease(SettlementLockBackend.REDIS, KEY, lockId, token);
+    }
+
+    private SettlementLockProvider lockProvider(SettlementLockBackend backend) {
+        return new SettlementLockProvider() {
+            @Override
+            public SettlementLockBackend backend() {
+                return backend;
+            }
+
+            @Override
+            public SettlementLockLease acquireLock(String key) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void releaseLock(SettlementLockLease lease) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<SettlementLockStatus> getLockStatuses(List<String> keys) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void raiseFencingFloor(String key, long floor) {
+                raisedFloors.add(floor);
+            }
+        };
+    }
+
+    private static PlatformTransactionManager transactionManager() {
+        return new PlatformTransactionManager() {
+            @Override
+            public org.springframework.transaction.TransactionStatus getTransaction(
+                    TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(org.springframework.transaction.TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(org.springframework.transaction.TransactionStatus status) {
+            }
+        };
+    }
+
+    private SettlementFenceRepository repository() {
+        return (SettlementFenceRepository) Proxy.newProxyInstance(
+                SettlementFenceRepository.class.getClassLoader(),
+                new Class[]{SettlementFenceRepository.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "advance" -> {
+                            String key = (String) args[0];
+                            long token = (Long) args[1];
+                            Long current = fences.get(key);
+                            if (current == null || current > token) {
+                                return 0;
+                            }
+                            fences.put(key, token);
+                            return 1;
+                        }
+                        case "findById" -> {
+                            String key = (String) args[0];
+                            return Optional.ofNullable(fences.get(key)).map(token -> new SettlementFence(key, token));
+                        }
+                        case "create" -> {
+                            concurrentFirstClaim.run();
+                            String key = (String) args[0];
+                            if (fences.putIfAbsent(key, 0L) != null) {
+                                throw new DataIntegrityViolationException("duplicate key " + key);
+                            }
+                            return 1;
+                        }
+                        case "toString" -> {
+                            return "FenceRepositoryStub";
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    }
+                }
+        );
+    }
+}
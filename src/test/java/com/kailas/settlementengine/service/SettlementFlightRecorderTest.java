@@ -0,0 +1,78 @@
+package com.kailas.settlementengine.service;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SettlementFlightRecorderTest {
+
+    @Test
+    void disabledRecorderShouldHandOutNoEvents() {
+        SettlementFlightRecorder recorder = SettlementFlightRecorder.disabled();
+
+        assertNull(recorder.beginRun("SCHEDULER"));
+        assertNull(recorder.beginLockAcquire("settlement-lock"));
+        assertNull(recorder.beginReconciliationPass());
+        recorder.endRun(null, null, SettlementRunStats.EMPTY, null);
+        recorder.endLock(null, null, false);
+    }
+
+    @Test
+    void eventsShouldBeSkippedWhenNoRecordingIsRunning() {
+        SettlementFlightRecorder recorder = new SettlementFlightRecorder(true);
+
+        assertNull(recorder.beginRun("SCHEDULER"));
+    }
+
+    @Test
+    void runAndLockEventsShouldCarryIdsAndDurations() throws IOException {
+        SettlementFlightRecorder recorder = new SettlementFlightRecorder(true);
+        Path dump = Files.createTempFile("settlement", ".jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("settlement.Run");
+            recording.enable("settlement.LockAcquire");
+            recording.start();
+
+            SettlementFlightRecorder.RunEvent run = recorder.beginRun("MANUAL_TRIGGER");
+            SettlementFlightRecorder.LockEvent lock = recorder.beginLockAcquire("settlement-lock:0");
+            recorder.endLock(lock, "node-1", true);
+            recorder.endRun(run, "node-1", new SettlementRunStats(7L, 8L, 3L, Map.of(), Map.of()), null);
+
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        Files.deleteIfExists(dump);
+
+        RecordedEvent runEvent = only(events, "settlement.Run");
+        assertEquals("MANUAL_TRIGGER", runEvent.getString("triggerSource"));
+        assertEquals("node-1", runEvent.getString("lockId"));
+        assertEquals(8L, runEvent.getLong("claimedCount"));
+        assertEquals(7L, runEvent.getLong("processedCount"));
+        assertTrue(runEvent.getBoolean("succeeded"));
+        assertFalse(runEvent.getDuration().isNegative());
+
+        RecordedEvent lockEvent = only(events, "settlement.LockAcquire");
+        assertEquals("settlement-lock:0", lockEvent.getString("key"));
+        assertTrue(lockEvent.getBoolean("succeeded"));
+    }
+
+    private static RecordedEvent only(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matching = events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .toList();
+        assertEquals(1, matching.size());
+        return matching.get(0);
+    }
+}
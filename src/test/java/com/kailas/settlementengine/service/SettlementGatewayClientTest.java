@@ -0,0 +1,141 @@
+package com.kailas.settlementengine.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SettlementGatewayClientTest {
+
+    @Test
+    void gatewayAnswersShouldBecomeDecisions() {
+        ControllableGateway gateway = new ControllableGateway();
+        SettlementGatewayClient client = new SettlementGatewayClient(List.of(gateway), "controllable", 10, 1_000, SettlementMetrics.noop());
+
+        CompletableFuture<SettlementDecision> accepted = client.settle(1L);
+        CompletableFuture<SettlementDecision> declined = client.settle(2L);
+        gateway.pending.get(0).complete(true);
+        gateway.pending.get(1).complete(false);
+
+        assertEquals(new SettlementDecision(1L, true), accepted.join());
+        assertEquals(new SettlementDecision(2L, false), declined.join());
+        assertEquals(1L, client.describe().get("declinedTotal"));
+    }
+
+    @Test
+    void callsBeyondTheInFlightCapShouldWaitForAPermit() throws InterruptedException {
+        ControllableGateway gateway = new ControllableGateway();
+        SettlementGatewayClient client = new SettlementGatewayClient(List.of(gateway), "controllable", 2, 5_000, SettlementMetrics.noop());
+
+        client.settle(1L);
+        client.settle(2L);
+        Thread third = new Thread(() -> client.settle(3L));
+        third.start();
+        third.join(200);
+
+        assertTrue(third.isAlive(), "third call should wait while two are in flight");
+        assertEquals(2, client.describe().get("inFlight"));
+
+        gateway.pending.get(0).complete(true);
+        third.join(1_000);
+
+        assertFalse(third.isAlive());
+        assertEquals(3, gateway.pending.size());
+    }
+
+    @Test
+    void timeoutShouldLeaveTheOutcomeUnknownAndFreeThePermit() {
+        ControllableGateway gateway = new ControllableGateway();
+        SettlementGatewayClient client = new SettlementGatewayClient(List.of(gateway), "controllable", 1, 50, SettlementMetrics.noop());
+
+        SettlementDecision decision = client.settle(7L).join();
+
+        assertEquals(SettlementDecision.unknown(7L), decision);
+        Map<String, Object> view = client.describe();
+        assertEquals(1L, view.get("timeoutsTotal"));
+        assertEquals(0, view.get("inFlight"));
+    }
+
+    @Test
+    void resendShouldCarryTheSameIdempotencyKey() {
+        ControllableGateway gateway = new ControllableGateway();
+        SettlementGatewayClient client = new SettlementGatewayClient(List.of(gateway), "controllable", 10, 50, SettlementMetrics.noop());
+
+        assertTrue(client.settle(7L).join().outcomeUnknown());
+        client.settle(7L);
+        client.settle(8L);
+
+        assertEquals(List.of("settlement-7", "settlement-7", "settlement-8"), gateway.keys);
+    }
+
+    @Test
+    void gatewayErrorShouldLeaveTheOutcomeUnknown() {
+        SettlementGateway failing = new SettlementGateway() {
+            @Override
+            public String name() {
+                return "failing";
+            }
+
+            @Override
+            public CompletableFuture<Boolean> settle(Long transactionId, String idempotencyKey) {
+                throw new IllegalStateException("connection refused");
+            }
+        };
+        SettlementGatewayClient client = new SettlementGatewayClient(List.of(failing), "failing", 1, 1_000, SettlementMetrics.noop());
+
+        assertEquals(SettlementDecision.unknown(1L), client.settle(1L).join());
+        assertEquals(1L, client.describe().get("errorsTotal"));
+    }
+
+    @Test
+    void gatewayCallsShouldBeTimedPerOutcome() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ControllableGateway gateway = new ControllableGateway();
+        SettlementGatewayClient client = new SettlementGatewayClient(
+                List.of(gateway), "controllable", 10, 1_000, new SettlementMetrics(registry)
+        );
+
+        client.settle(1L);
+        client.settle(2L);
+        client.settle(3L);
+        gateway.pending.get(0).complete(true);
+        gateway.pending.get(1).complete(true);
+        gateway.pending.get(2).complete(false);
+
+        assertEquals(2L, registry.get("settlement.gateway.decision").tag("outcome", "settled").timer().count());
+        assertEquals(1L, registry.get("settlement.gateway.decision").tag("outcome", "declined").timer().count());
+    }
+
+    @Test
+    void unknownGatewayShouldFailFast() {
+        IllegalStateException ex = assertThrows(
+                IllegalStateException.class,
+                () -> new SettlementGatewayClient(List.of(new ControllableGateway()), "bank", 1, 1_000, SettlementMetrics.noop())
+        );
+
+        assertTrue(ex.getMessage().contains("Invalid settlement.gateway.name"));
+    }
+
+    private static class ControllableGateway implements SettlementGateway {
+        private final List<CompletableFuture<Boolean>> pending = new CopyOnWriteArrayList<>();
+        private final List<String> keys = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String name() {
+            return "controllable";
+        }
+
+        @Override
+        public CompletableFuture<Boolean> settle(Long transactionId, String idempotencyKey) {
+            CompletableFuture<Boolean> response = new CompletableFuture<>();
+            pending.add(response);
+            keys.add(idempotencyKey);
+            return response;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.kailas.settlementengine.service;
+
+import com.kailas.settlementengine.entity.Transaction;
+import com.kailas.settlementengine.entity.TransactionStatus;
+import com.kailas.settlementengine.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class SettlementLeaseServiceTest {
+
+    @Autowired
+    private SettlementLeaseService leaseService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        transactionRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void orphanedClaimShouldBeReapedWhileInFlightClaimIsRenewed() {
+        // Both leases have already run out; only the in-flight one gets renewed.
+        List<Long> ids = seedExpiredClaims(2);
+        Long inFlightId = ids.get(0);
+        Long orphanedId = ids.get(1);
+
+        try (SettlementLeaseService.InFlightClaims claims = leaseService.openClaims()) {
+            claims.add(List.of(inFlightId));
+
+            assertEquals(1, leaseService.renewLeases());
+            assertEquals(1, leaseService.reapExpiredLeases());
+
+            Transaction inFlight = transactionRepository.findById(inFlightId).orElseThrow();
+            assertEquals(TransactionStatus.PROCESSING, inFlight.getStatus());
+            assertEquals(leaseService.getOwnerId(), inFlight.getClaimOwner());
+            assertTrue(inFlight.getLeaseExpiresAt().isAfter(LocalDateTime.now()));
+
+            Transaction orphaned = transactionRepository.findById(orphanedId).orElseThrow();
+            assertEquals(TransactionStatus.CAPTURED, orphaned.getStatus());
+            assertNull(orphaned.getClaimOwner());
+            assertNull(orphaned.getLeaseExpiresAt());
+        }
+    }
+
+    @Test
+    void claimsShouldStopBeingRenewedOnceTheRunCloses() {
+        List<Long> ids = seedExpiredClaims(1);
+
+        SettlementLeaseService.InFlightClaims claims = leaseService.openClaims();
+        claims.add(ids);
+        claims.close();
+
+        assertEquals(0, leaseService.renewLeases());
+        assertEquals(1, leaseService.reapExpiredLeases());
+        assertEquals(
+                TransactionStatus.CAPTURED,
+                transactionRepository.findById(ids.get(0)).orElseThrow().getStatus()
+        );
+    }
+
+    @Test
+    void settledIdsShouldLeaveTheInFlightSet() {
+        try (SettlementLeaseService.InFlightClaims claims = leaseService.openClaims()) {
+            claims.add(List.of(1L, 2L, 3L));
+            claims.remove(List.of(1L, 3L));
+
+            assertEquals(1, claims.size());
+        }
+    }
+
+    private List<Long> seedExpiredClaims(int count) {
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setAmount(BigDecimal.valueOf(100));
+            ids.add(transactionRepository.save(transaction).getId());
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                transactionRepository.claimTransactions(
+                        ids,
+                        leaseService.getOwnerId(),
+                        LocalDateTime.now().minusSeconds(1)
+                )
+        );
+        return ids;
+    }
+}
@@ -0,0 +1,112 @@
+package com.kailas.settlementengine.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Acquire+release latency per lock backend. Disabled by default; run with
+ * <pre>
+ * ./mvnw test -Dtest=SettlementLockProviderBenchmarkTest -Dsettlement.benchmark=true \
+ *     -Dsettlement.benchmark.redis-host=localhost \
+ *     -Dsettlement.benchmark.url=jdbc:postgresql://localhost:5432/settlement_bench \
+ *     -Dsettlement.benchmark.username=postgres -Dsettlement.benchmark.password=postgres
+ * </pre>
+ * IN_PROCESS always runs; REDIS runs when a Redis host is given and POSTGRES when
+ * a PostgreSQL URL is given. Each iteration is one acquire and its release on a
+ * warm connection, the cost a run pays per partition.
+ */
+@EnabledIfSystemProperty(named = "settlement.benchmark", matches = "true")
+class SettlementLockProviderBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(SettlementLockProviderBenchmarkTest.class);
+
+    private static final int ITERATIONS = Integer.getInteger("settlement.benchmark.lock-iterations", 10_000);
+    private static final int WARMUP_ITERATIONS = 1_000;
+    private static final String KEY = "settlement-lock:benchmark";
+
+    private final SettlementNodeIdentity nodeIdentity = new SettlementNodeIdentity("benchmark-node");
+    private final SettlementFlightRecorder flightRecorder = SettlementFlightRecorder.disabled();
+
+    @Test
+    void compareLockBackends() {
+        measure(new InProcessLockProvider(nodeIdentity, flightRecorder));
+
+        String redisHost = System.getProperty("settlement.benchmark.redis-host");
+        if (redisHost != null) {
+            LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(
+                    redisHost, Integer.getInteger("settlement.benchmark.redis-port", 6379)
+            );
+            connectionFactory.afterPropertiesSet();
+            connectionFactory.start();
+            RedisLockService provider = new RedisLockService(
+                    new StringRedisTemplate(connectionFactory), nodeIdentity, flightRecorder, 25
+            );
+            try {
+                measure(provider);
+            } finally {
+                provider.shutdown();
+                connectionFactory.destroy();
+            }
+        }
+
+        String url = System.getProperty("settlement.benchmark.url");
+        if (url != null) {
+            try (HikariDataSource dataSource = new HikariDataSource()) {
+                dataSource.setJdbcUrl(url);
+                dataSource.setUsername(System.getProperty("settlement.benchmark.username", "postgres"));
+                dataSource.setPassword(System.getProperty("settlement.benchmark.password", ""));
+                dataSource.setMaximumPoolSize(4);
+                PostgresAdvisoryLockProvider provider =
+                        new PostgresAdvisoryLockProvider(dataSource, nodeIdentity, flightRecorder, 25);
+                try {
+                    measure(provider);
+                } finally {
+                    provider.shutdown();
+                }
+            }
+        }
+    }
+
+    private static void measure(SettlementLockProvider provider) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            acquireAndRelease(provider);
+        }
+
+        long[] samples = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long startedAt = System.nanoTime();
+            acquireAndRelease(provider);
+            samples[i] = System.nanoTime() - startedAt;
+        }
+        Arrays.sort(samples);
+
+        log.info(
+                "event=settlement_lock_benchmark backend={} iterations={} p50Micros={} p99Micros={} avgMicros={}",
+                provider.backend(),
+                ITERATIONS,
+                micros(samples[ITERATIONS / 2]),
+                micros(samples[(int) (ITERATIONS * 0.99)]),
+                micros(Arrays.stream(samples).average().orElse(0))
+        );
+    }
+
+    private static String micros(double nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1_000.0);
+    }
+
+    private static void acquireAndRelease(SettlementLockProvider provider) {
+        SettlementLockLease lease = provider.acquireLock(KEY);
+        assertNotNull(lease, provider.backend() + " lock is held by someone else");
+        provider.releaseLock(lease);
+    }
+}
@@ -0,0 +1,57 @@
+package com.kailas.settlementengine.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SettlementMonitoringServiceTest {
+
+    private final SettlementWorkerPool workerPool = new SettlementWorkerPool(1);
+    private final SettlementPipeline pipeline = new SettlementPipeline(workerPool, 2);
+    private final SettlementMonitoringService monitoringService = new SettlementMonitoringService(
+            null, null, pipeline, null, new TransactionStatusCounters(), SettlementMetrics.noop(), 1000, 10
+    );
+
+    @AfterEach
+    void tearDown() {
+        pipeline.shutdown();
+        workerPool.shutdown();
+    }
+
+    @Test
+    void overlappingRunsShouldKeepTheirOwnClaimCounts() {
+        long sweep = monitoringService.recordLockAcquired("node-a#1", "SCHEDULER");
+        monitoringService.recordBatchClaimed(sweep, 5);
+        long manual = monitoringService.recordLockAcquired("node-a#2", "MANUAL");
+        monitoringService.recordBatchClaimed(manual, 2);
+        monitoringService.recordBatchClaimed(sweep, 3);
+
+        Map<String, Object> active = monitoringService.describeActiveRun();
+        assertEquals(sweep, active.get("runId"));
+        assertEquals(8L, active.get("claimed"));
+        assertEquals(2, active.get("activeRuns"));
+
+        monitoringService.recordLastRun(manual, 2, "MANUAL", 10);
+        monitoringService.recordLastRun(sweep, 8, "SCHEDULER", 20);
+
+        assertEquals(2L, monitoringService.recentRuns(2).get(1).claimedCount());
+        assertEquals(8L, monitoringService.recentRuns(2).get(0).claimedCount());
+        assertNull(monitoringService.describeActiveRun());
+    }
+
+    @Test
+    void runFailingBeforeItsFirstLockShouldLeaveOtherRunsActive() {
+        long sweep = monitoringService.recordLockAcquired("node-a#1", "SCHEDULER");
+        monitoringService.recordBatchClaimed(sweep, 4);
+
+        monitoringService.recordRunFailed(SettlementMonitoringService.NO_RUN, "MANUAL", 5, new IllegalStateException());
+        monitoringService.recordBatchClaimed(SettlementMonitoringService.NO_RUN, 7);
+
+        assertEquals(0L, monitoringService.recentRuns(1).get(0).claimedCount());
+        assertEquals(sweep, monitoringService.describeActiveRun().get("runId"));
+        assertEquals(4L, monitoringService.describeActiveRun().get("claimed"));
+    }
+}
@@ -38,6 +38,29 @@ class SettlementOutcomeDeciderTest {
         }
     }
 
+    @Test
+    void randomModeShouldHonourFailureRate() {
+        SettlementOutcomeDecider neverFails =
+                new SettlementOutcomeDecider(SettlementOutcomeMode.RANDOM, 7L, 0.0);
+        SettlementOutcomeDecider alwaysFails =
+                new SettlementOutcomeDecider(SettlementOutcomeMode.RANDOM, 7L, 1.0);
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(neverFails.shouldSucceed());
+            assertFalse(alwaysFails.shouldSucceed());
+        }
+    }
+
+    @Test
+    void invalidFailureRateShouldThrowClearError() {
+        IllegalStateException ex = assertThrows(
+                IllegalStateException.class,
+                () -> new SettlementOutcomeDecider(SettlementOutcomeMode.RANDOM, null, 1.5)
+        );
+
+        assertTrue(ex.getMessage().contains("Invalid settlement.outcome.failure-rate"));
+    }
+
     @Test
     void invalidModeShouldThrowClearError() {
         IllegalStateException ex = assertThrows(
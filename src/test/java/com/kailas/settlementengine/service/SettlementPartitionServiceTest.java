@@ -0,0 +1,42 @@
+package com.kailas.settlementengine.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SettlementPartitionServiceTest {
+
+    @Test
+    void liveNodesShouldOwnDisjointAndCompletePartitions() {
+        List<String> nodes = List.of("node-c", "node-a", "node-b");
+        List<Integer> all = new ArrayList<>();
+
+        for (String node : nodes) {
+            List<Integer> owned = SettlementPartitionService.assign(nodes, node, 8);
+            for (Integer partition : owned) {
+                assertFalse(all.contains(partition), "partition owned twice: " + partition);
+            }
+            all.addAll(owned);
+        }
+
+        assertEquals(8, all.size());
+        assertEquals(List.of(0, 3, 6), SettlementPartitionService.assign(nodes, "node-a", 8));
+    }
+
+    @Test
+    void partitionsOfLeavingNodeShouldMoveToRemainingNodes() {
+        List<String> before = List.of("node-a", "node-b");
+        List<String> after = List.of("node-a");
+
+        assertEquals(List.of(0, 2), SettlementPartitionService.assign(before, "node-a", 4));
+        assertEquals(List.of(0, 1, 2, 3), SettlementPartitionService.assign(after, "node-a", 4));
+    }
+
+    @Test
+    void unknownNodeShouldOwnNothing() {
+        assertTrue(SettlementPartitionService.assign(List.of("node-a"), "node-x", 4).isEmpty());
+    }
+}
@@ -0,0 +1,166 @@
+package com.kailas.settlementengine.service;
+
+import com.kailas.settlementengine.entity.Transaction;
+import com.kailas.settlementengine.entity.TransactionStatus;
+import com.kailas.settlementengine.repository.SettlementLogRepository;
+import com.kailas.settlementengine.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Before/after benchmark for settlement persistence. Claimed rows go through
+ * SettlementService.persistDecisions, the pipeline's persist stage, in chunks of
+ * settlement.persistence.batch-size spread over the worker pool. Results are
+ * logged as event=settlement_persistence_benchmark. Disabled by default; run with
+ * <pre>
+ * ./mvnw test -Dtest=SettlementPersistenceBenchmarkTest -Dsettlement.benchmark=true
+ * ./mvnw test -Dtest=SettlementPersistenceBenchmarkTest -Dsettlement.benchmark=true \
+ *     -Dsettlement.benchmark.url=jdbc:postgresql://localhost:5432/settlement_bench \
+ *     -Dsettlement.benchmark.username=postgres -Dsettlement.benchmark.password=postgres
+ * </pre>
+ * H2 in-memory is used when no URL is given. Append {@code ?reWriteBatchedInserts=true}
+ * to the PostgreSQL URL to let the driver collapse batches into multi-row inserts.
+ */
+@SpringBootTest(properties = {
+        "spring.quartz.auto-startup=false",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@EnabledIfSystemProperty(named = "settlement.benchmark", matches = "true")
+class SettlementPersistenceBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(SettlementPersistenceBenchmarkTest.class);
+
+    private static final int TRANSACTION_COUNT =
+            Integer.getInteger("settlement.benchmark.transactions", 100_000);
+    private static final int CHUNK_SIZE = 1_000;
+
+    @DynamicPropertySource
+    static void benchmarkDataSource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getProperty(
+                "settlement.benchmark.url",
+                "jdbc:h2:mem:settlement-benchmark;DB_CLOSE_DELAY=-1"
+        ));
+        registry.add("spring.datasource.username",
+                () -> System.getProperty("settlement.benchmark.username", "sa"));
+        registry.add("spring.datasource.password",
+                () -> System.getProperty("settlement.benchmark.password", ""));
+    }
+
+    @Autowired
+    private SettlementService settlementService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private SettlementLogRepository settlementLogRepository;
+
+    @Autowired
+    private SettlementLeaseService leaseService;
+
+    @Autowired
+    private SettlementWorkerPool workerPool;
+
+    @Value("${settlement.persistence.batch-size:50}")
+    private int persistenceBatchSize;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void compareBatchedAndPerTransactionPersistence() {
+        long perTransactionMillis = settleBacklog(SettlementPersistenceMode.PER_TRANSACTION);
+        long batchedMillis = settleBacklog(SettlementPersistenceMode.BATCHED);
+
+        log.info(
+                "event=settlement_persistence_benchmark transactions={} perTransactionMillis={} batchedMillis={} speedup={}",
+                TRANSACTION_COUNT,
+                perTransactionMillis,
+                batchedMillis,
+                String.format(Locale.ROOT, "%.2fx", (double) perTransactionMillis / Math.max(batchedMillis, 1L))
+        );
+    }
+
+    private long settleBacklog(SettlementPersistenceMode mode) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        seedCapturedTransactions(transactionTemplate);
+        List<Long> claimedIds = claimAll(transactionTemplate);
+
+        List<List<SettlementDecision>> chunks = new ArrayList<>();
+        for (int from = 0; from < claimedIds.size(); from += persistenceBatchSize) {
+            chunks.add(claimedIds.subList(from, Math.min(from + persistenceBatchSize, claimedIds.size())).stream()
+                    .map(id -> new SettlementDecision(id, true))
+                    .toList());
+        }
+
+        long startedAt = System.nanoTime();
+        long settled = workerPool.settleAll(chunks, chunk -> settlementService.persistDecisions(chunk, mode))
+                .values()
+                .stream()
+                .mapToLong(Long::longValue)
+                .sum();
+        long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+
+        assertEquals(TRANSACTION_COUNT, settled);
+        settlementLogRepository.deleteAllInBatch();
+        transactionRepository.deleteAllInBatch();
+        return elapsedMillis;
+    }
+
+    private void seedCapturedTransactions(TransactionTemplate transactionTemplate) {
+        for (int from = 0; from < TRANSACTION_COUNT; from += CHUNK_SIZE) {
+            int size = Math.min(CHUNK_SIZE, TRANSACTION_COUNT - from);
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Transaction> chunk = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    Transaction transaction = new Transaction();
+                    transaction.setAmount(BigDecimal.valueOf(100));
+                    chunk.add(transaction);
+                }
+                transactionRepository.saveAll(chunk);
+            });
+        }
+    }
+
+    private List<Long> claimAll(TransactionTemplate transactionTemplate) {
+        List<Long> claimedIds = new ArrayList<>(TRANSACTION_COUNT);
+        long afterId = 0;
+        while (true) {
+            List<Long> page = transactionRepository.findDueIdsByStatusAfter(
+                    TransactionStatus.CAPTURED,
+                    afterId,
+                    LocalDateTime.now(),
+                    PageRequest.of(0, CHUNK_SIZE)
+            );
+            if (page.isEmpty()) {
+                return claimedIds;
+            }
+            transactionTemplate.executeWithoutResult(status -> transactionRepository.claimTransactions(
+                    page,
+                    leaseService.getOwnerId(),
+                    leaseService.nextLeaseExpiry()
+            ));
+            claimedIds.addAll(page);
+            afterId = page.get(page.size() - 1);
+        }
+    }
+}
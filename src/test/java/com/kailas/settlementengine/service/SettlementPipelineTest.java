@@ -0,0 +1,120 @@
+package com.kailas.settlementengine.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SettlementPipelineTest {
+
+    private final SettlementWorkerPool workerPool = new SettlementWorkerPool(2);
+    private final SettlementPipeline pipeline = new SettlementPipeline(workerPool, 2);
+
+    @AfterEach
+    void tearDown() {
+        pipeline.shutdown();
+        workerPool.shutdown();
+    }
+
+    @Test
+    void everySubmittedChunkShouldBeDecidedAndPersistedOnce() {
+        Set<Long> persisted = ConcurrentHashMap.newKeySet();
+
+        SettlementPipeline.Run run = pipeline.start(
+                ids -> CompletableFuture.completedFuture(
+                        ids.stream().map(id -> new SettlementDecision(id, id % 2 == 0)).toList()
+                ),
+                decisions -> {
+                    decisions.forEach(decision -> assertTrue(persisted.add(decision.transactionId())));
+                    return decisions.size();
+                }
+        );
+        for (long from = 1; from <= 100; from += 10) {
+            long start = from;
+            run.submit(LongStream.range(start, start + 10).boxed().toList());
+        }
+
+        Map<String, Long> processedByWorker = run.finish();
+
+        assertEquals(100, persisted.size());
+        assertEquals(100L, processedByWorker.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    void stalledPersistStageShouldHoldBackTheClaimer() throws InterruptedException {
+        CountDownLatch releasePersist = new CountDownLatch(1);
+        AtomicInteger submitted = new AtomicInteger();
+
+        SettlementPipeline.Run run = pipeline.start(
+                SettlementPipelineTest::succeedAll,
+                decisions -> {
+                    try {
+                        releasePersist.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return decisions.size();
+                }
+        );
+
+        Thread claimer = new Thread(() -> {
+            for (long id = 1; id <= 20; id++) {
+                run.submit(List.of(id));
+                submitted.incrementAndGet();
+            }
+        });
+        claimer.start();
+
+        // 2 chunks held by persist workers + 2 decided + 1 with the decider + 2 claimed.
+        Thread.sleep(500);
+        assertTrue(submitted.get() < 20, "claimer should wait on full queues");
+
+        releasePersist.countDown();
+        claimer.join(TimeUnit.SECONDS.toMillis(5));
+
+        assertEquals(20, submitted.get());
+        assertEquals(20L, run.finish().values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    void persistFailureShouldSurfaceFromFinish() {
+        SettlementPipeline.Run run = pipeline.start(
+                SettlementPipelineTest::succeedAll,
+                decisions -> {
+                    throw new IllegalStateException("db down");
+                }
+        );
+        run.submit(List.of(1L, 2L));
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, run::finish);
+        assertEquals("db down", error.getMessage());
+    }
+
+    @Test
+    void stagesShouldReportQueueCapacity() {
+        List<Map<String, Object>> stages = pipeline.describeStages();
+
+        assertEquals(List.of("claim", "decide", "persist"), stages.stream().map(stage -> stage.get("stage")).toList());
+        assertEquals(2, stages.get(1).get("queueCapacity"));
+        assertEquals(0, stages.get(2).get("queueDepth"));
+    }
+
+    @Test
+    void invalidQueueCapacityShouldFail() {
+        assertThrows(IllegalStateException.class, () -> new SettlementPipeline(workerPool, 0));
+    }
+
+    private static CompletableFuture<List<SettlementDecision>> succeedAll(List<Long> ids) {
+        return CompletableFuture.completedFuture(ids.stream().map(id -> new SettlementDecision(id, true)).toList());
+    }
+}
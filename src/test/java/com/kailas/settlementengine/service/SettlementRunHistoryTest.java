@@ -0,0 +1,75 @@
+package com.kailas.settlementengine.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SettlementRunHistoryTest {
+
+    @Test
+    void recentRunsShouldComeNewestFirst() {
+        SettlementRunHistory history = new SettlementRunHistory(4);
+        record(history, "SCHEDULER");
+        record(history, "MANUAL");
+
+        List<SettlementRunRecord> runs = history.recent(10);
+
+        assertEquals(List.of("MANUAL", "SCHEDULER"), runs.stream().map(SettlementRunRecord::source).toList());
+        assertEquals(List.of(1L, 0L), runs.stream().map(SettlementRunRecord::sequence).toList());
+    }
+
+    @Test
+    void oldestRunsShouldBeOverwrittenOnceTheRingIsFull() {
+        SettlementRunHistory history = new SettlementRunHistory(3);
+        for (int i = 0; i < 7; i++) {
+            record(history, "RUN-" + i);
+        }
+
+        assertEquals(List.of("RUN-6", "RUN-5", "RUN-4"),
+                history.recent(10).stream().map(SettlementRunRecord::source).toList());
+        assertEquals(List.of("RUN-6"), history.recent(1).stream().map(SettlementRunRecord::source).toList());
+    }
+
+    @Test
+    void reservedButUnpublishedSlotShouldBeSkipped() {
+        SettlementRunHistory history = new SettlementRunHistory(3);
+        record(history, "RUN-0");
+        history.nextSequence();
+
+        assertEquals(List.of("RUN-0"), history.recent(3).stream().map(SettlementRunRecord::source).toList());
+    }
+
+    @Test
+    void concurrentWritersShouldEachGetTheirOwnSequence() throws InterruptedException {
+        SettlementRunHistory history = new SettlementRunHistory(1000);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 1000; i++) {
+            executor.submit(() -> record(history, "SCHEDULER"));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        List<SettlementRunRecord> runs = history.recent(1000);
+        assertEquals(1000, runs.size());
+        assertEquals(1000L, runs.stream().map(SettlementRunRecord::sequence).distinct().count());
+    }
+
+    @Test
+    void invalidCapacityShouldFail() {
+        assertThrows(IllegalStateException.class, () -> new SettlementRunHistory(0));
+    }
+
+    private static void record(SettlementRunHistory history, String source) {
+        LocalDateTime now = LocalDateTime.now();
+        history.publish(new SettlementRunRecord(
+                history.nextSequence(), source, now, now, 5L, true, null,
+                10L, 10L, 9L, 1L, 0L, 1L, 3L, 1L
+        ));
+    }
+}
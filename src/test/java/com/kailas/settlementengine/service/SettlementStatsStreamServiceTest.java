@@ -0,0 +1,62 @@
+package com.kailas.settlementengine.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SettlementStatsStreamServiceTest {
+
+    private final AtomicInteger statsBuilds = new AtomicInteger();
+    private final Map<String, Object> stats = new HashMap<>(Map.of("captured", 3L, "settled", 1L));
+
+    private final SettlementStatsStreamService service = new SettlementStatsStreamService(() -> {
+        statsBuilds.incrementAndGet();
+        return stats;
+    }, 250);
+
+    @Test
+    void statsShouldBeBuiltOncePerTickForAllSubscribers() {
+        service.subscribe();
+        service.subscribe();
+        service.subscribe();
+
+        service.tick();
+        stats.put("settled", 2L);
+        service.tick();
+
+        assertEquals(3, service.subscriberCount());
+        assertEquals(2, statsBuilds.get());
+    }
+
+    @Test
+    void nothingShouldBeBuiltWithoutSubscribers() {
+        service.tick();
+
+        assertEquals(0, statsBuilds.get());
+    }
+
+    @Test
+    void onlyChangedKeysShouldBeSent() {
+        Map<String, Object> previous = new HashMap<>(Map.of("captured", 3L, "settled", 1L));
+        previous.put("lastRunError", "TimeoutException");
+        Map<String, Object> current = new HashMap<>(Map.of("captured", 3L, "settled", 2L, "failed", 0L));
+        current.put("lastRunError", null);
+
+        Map<String, Object> changed = SettlementStatsStreamService.changedEntries(previous, current);
+
+        assertEquals(3, changed.size());
+        assertEquals(2L, changed.get("settled"));
+        assertEquals(0L, changed.get("failed"));
+        assertTrue(changed.containsKey("lastRunError"));
+        assertNull(changed.get("lastRunError"));
+    }
+
+    @Test
+    void invalidIntervalShouldFail() {
+        assertThrows(IllegalStateException.class, () -> new SettlementStatsStreamService(Map::of, 0));
+    }
+}
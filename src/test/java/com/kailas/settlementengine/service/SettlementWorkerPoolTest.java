@@ -0,0 +1,89 @@
+package com.kailas.settlementengine.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SettlementWorkerPoolTest {
+
+    private final SettlementWorkerPool pool = new SettlementWorkerPool(4);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void everyIdShouldBeSettledExactlyOnce() {
+        List<Long> ids = LongStream.rangeClosed(1, 500).boxed().toList();
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+
+        Map<String, Long> processedByWorker = pool.settleAll(ids, id -> {
+            assertTrue(seen.add(id), "id settled twice: " + id);
+            return 1L;
+        });
+
+        assertEquals(500, seen.size());
+        assertEquals(500L, processedByWorker.values().stream().mapToLong(Long::longValue).sum());
+        assertTrue(processedByWorker.size() <= pool.getWorkerCount());
+    }
+
+    @Test
+    void unprocessedIdsShouldNotBeCounted() {
+        List<Long> ids = LongStream.rangeClosed(1, 10).boxed().toList();
+
+        Map<String, Long> processedByWorker = pool.settleAll(ids, id -> id % 2 == 0 ? 1L : 0L);
+
+        assertEquals(5L, processedByWorker.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    void chunkedWorkItemsShouldReportTransactionCounts() {
+        List<List<Long>> chunks = List.of(
+                List.of(1L, 2L, 3L),
+                List.of(4L, 5L),
+                List.of(6L)
+        );
+
+        Map<String, Long> processedByWorker = pool.settleAll(chunks, chunk -> chunk.size());
+
+        assertEquals(6L, processedByWorker.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    void workerFailureShouldSurfaceAfterAllWorkersDrain() {
+        List<Long> ids = LongStream.rangeClosed(1, 50).boxed().toList();
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+
+        IllegalStateException ex = assertThrows(
+                IllegalStateException.class,
+                () -> pool.settleAll(ids, id -> {
+                    seen.add(id);
+                    if (id == 7L) {
+                        throw new IllegalStateException("boom");
+                    }
+                    return 1L;
+                })
+        );
+
+        assertEquals("boom", ex.getMessage());
+        assertEquals(50, seen.size());
+    }
+
+    @Test
+    void invalidWorkerCountShouldThrowClearError() {
+        IllegalStateException ex = assertThrows(
+                IllegalStateException.class,
+                () -> new SettlementWorkerPool(0)
+        );
+
+        assertTrue(ex.getMessage().contains("settlement.workers.count"));
+    }
+}
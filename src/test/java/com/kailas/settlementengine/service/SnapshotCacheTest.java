@@ -0,0 +1,122 @@
+package com.kailas.settlementengine.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void valueShouldBeReusedUntilTtlExpires() {
+        SnapshotCache<Integer> cache = new SnapshotCache<>(loads::incrementAndGet, 1000, nanos::get);
+
+        assertEquals(1, cache.get());
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        assertEquals(1, cache.get());
+        assertEquals(999, cache.ageMillis());
+
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(2, cache.get());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void concurrentCallersShouldShareOneLoad() throws Exception {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        SnapshotCache<Integer> cache = new SnapshotCache<>(() -> {
+            loadStarted.countDown();
+            await(releaseLoad);
+            return loads.incrementAndGet();
+        }, 1000, nanos::get);
+
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            results.add(callers.submit(cache::get));
+            assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 7; i++) {
+                results.add(callers.submit(cache::get));
+            }
+            releaseLoad.countDown();
+
+            for (Future<Integer> result : results) {
+                assertEquals(1, result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void staleValueShouldBeServedWhileAnotherCallerRefreshes() throws Exception {
+        CountDownLatch refreshStarted = new CountDownLatch(1);
+        CountDownLatch releaseRefresh = new CountDownLatch(1);
+        SnapshotCache<Integer> cache = new SnapshotCache<>(() -> {
+            if (loads.get() > 0) {
+                refreshStarted.countDown();
+                await(releaseRefresh);
+            }
+            return loads.incrementAndGet();
+        }, 1000, nanos::get);
+        assertEquals(1, cache.get());
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(2));
+
+        ExecutorService refresher = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> refreshed = refresher.submit(cache::get);
+            assertTrue(refreshStarted.await(5, TimeUnit.SECONDS));
+
+            assertEquals(1, cache.get());
+
+            releaseRefresh.countDown();
+            assertEquals(2, refreshed.get(5, TimeUnit.SECONDS));
+            assertEquals(2, cache.get());
+        } finally {
+            refresher.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedLoadShouldPropagateAndBeRetriedOnNextCall() {
+        SnapshotCache<Integer> cache = new SnapshotCache<>(() -> {
+            if (loads.incrementAndGet() == 1) {
+                throw new IllegalStateException("db down");
+            }
+            return loads.get();
+        }, 1000, nanos::get);
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, cache::get);
+        assertEquals("db down", error.getMessage());
+        assertEquals(-1, cache.ageMillis());
+        assertEquals(2, cache.get());
+    }
+
+    @Test
+    void negativeTtlShouldFail() {
+        assertThrows(IllegalStateException.class, () -> new SnapshotCache<>(() -> 1, -1));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
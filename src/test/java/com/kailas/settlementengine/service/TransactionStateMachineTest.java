@@ -10,7 +10,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TransactionStateMachineTest {
 
-    private final TransactionStateMachine stateMachine = new TransactionStateMachine();
+    private final TransactionStateMachine stateMachine = new TransactionStateMachine(new TransactionStatusCounters());
 
     @Test
     void shouldAllowCapturedToProcessing() {
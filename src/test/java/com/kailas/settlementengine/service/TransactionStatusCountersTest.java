@@ -0,0 +1,166 @@
+package com.kailas.settlementengine.service;
+
+import com.kailas.settlementengine.entity.ReconciliationStatus;
+import com.kailas.settlementengine.entity.Transaction;
+import com.kailas.settlementengine.entity.TransactionStatus;
+import com.kailas.settlementengine.repository.TransactionStatusAggregate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionStatusCountersTest {
+
+    private final TransactionStatusCounters counters = new TransactionStatusCounters();
+    private final TransactionStateMachine stateMachine = new TransactionStateMachine(counters);
+
+    @Test
+    void transitionsShouldMoveCountsBetweenStatuses() {
+        Transaction transaction = new Transaction();
+        stateMachine.recordCreated(transaction);
+
+        stateMachine.transition(transaction, TransactionStatus.PROCESSING, "claim");
+        stateMachine.transition(transaction, TransactionStatus.SETTLED, "settlement-success");
+        stateMachine.changeReconciliationStatus(transaction, ReconciliationStatus.MATCHED);
+
+        assertEquals(1, counters.total());
+        assertEquals(0, counters.count(TransactionStatus.CAPTURED));
+        assertEquals(0, counters.count(TransactionStatus.PROCESSING));
+        assertEquals(1, counters.count(TransactionStatus.SETTLED));
+        assertEquals(0, counters.count(ReconciliationStatus.PENDING));
+        assertEquals(1, counters.count(ReconciliationStatus.MATCHED));
+    }
+
+    @Test
+    void deltasShouldOnlyCountOnceTheTransactionCommits() {
+        Transaction committed = new Transaction();
+        Transaction rolledBack = new Transaction();
+        stateMachine.recordCreated(committed);
+        stateMachine.recordCreated(rolledBack);
+
+        inTransaction(true, () -> stateMachine.transition(committed, TransactionStatus.PROCESSING, "claim"));
+        inTransaction(false, () -> stateMachine.transition(rolledBack, TransactionStatus.PROCESSING, "claim"));
+
+        assertEquals(1, counters.count(TransactionStatus.CAPTURED));
+        assertEquals(1, counters.count(TransactionStatus.PROCESSING));
+    }
+
+    @Test
+    void settlementOutcomesShouldOnlyCountOnceTheTransactionCommits() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SettlementMonitoringService monitoringService = new SettlementMonitoringService(
+                null, null, null, null, counters, new SettlementMetrics(registry), 1000, 10
+        );
+
+        inTransaction(true, monitoringService::recordTransactionSettled);
+        inTransaction(false, () -> {
+            monitoringService.recordTransactionSettled();
+            monitoringService.recordTransactionRetried();
+        });
+
+        assertEquals(1.0, outcomeCount(registry, "settled"));
+        assertEquals(0.0, outcomeCount(registry, "retried"));
+    }
+
+    @Test
+    void rejectedTransitionShouldNotChangeCounts() {
+        Transaction transaction = new Transaction();
+        stateMachine.recordCreated(transaction);
+
+        assertThrows(
+                IllegalStateException.class,
+                () -> stateMachine.transition(transaction, TransactionStatus.SETTLED, "invalid-shortcut")
+        );
+
+        assertEquals(1, counters.count(TransactionStatus.CAPTURED));
+        assertEquals(0, counters.count(TransactionStatus.SETTLED));
+    }
+
+    @Test
+    void bulkChangesShouldMoveTheUpdatedCount() {
+        counters.correct(List.of(
+                new TransactionStatusAggregate(TransactionStatus.FAILED, ReconciliationStatus.EXCEPTION_QUEUED, 5L, 15L)
+        ));
+
+        stateMachine.recordBulkTransition(TransactionStatus.FAILED, TransactionStatus.CAPTURED, 3);
+        stateMachine.recordBulkReconciliationChange(
+                ReconciliationStatus.EXCEPTION_QUEUED, ReconciliationStatus.PENDING, 3
+        );
+
+        assertEquals(2, counters.count(TransactionStatus.FAILED));
+        assertEquals(3, counters.count(TransactionStatus.CAPTURED));
+        assertEquals(2, counters.count(ReconciliationStatus.EXCEPTION_QUEUED));
+        assertEquals(3, counters.count(ReconciliationStatus.PENDING));
+    }
+
+    @Test
+    void correctionShouldResetCountsAndReportDrift() {
+        Transaction transaction = new Transaction();
+        stateMachine.recordCreated(transaction);
+        stateMachine.recordCreated(new Transaction());
+        assertFalse(counters.isCorrected());
+
+        // The DB also has a row created by another node, and one of ours settled there.
+        long drift = counters.correct(List.of(
+                new TransactionStatusAggregate(TransactionStatus.CAPTURED, ReconciliationStatus.PENDING, 2L, 2L),
+                new TransactionStatusAggregate(TransactionStatus.SETTLED, ReconciliationStatus.MATCHED, 1L, 0L)
+        ));
+
+        assertTrue(counters.isCorrected());
+        // CAPTURED 2 vs 2, SETTLED 1 vs 0, PENDING 2 vs 2, MATCHED 1 vs 0.
+        assertEquals(2, drift);
+        assertEquals(drift, counters.getLastDrift());
+        assertEquals(3, counters.total());
+        assertEquals(1, counters.count(ReconciliationStatus.MATCHED));
+        assertEquals(2.0 / 3, counters.getAverageRetryCount(), 1e-9);
+        assertNotNull(counters.getLastCorrectedAt());
+
+        assertEquals(0, counters.correct(List.of(
+                new TransactionStatusAggregate(TransactionStatus.CAPTURED, ReconciliationStatus.PENDING, 2L, 2L),
+                new TransactionStatusAggregate(TransactionStatus.SETTLED, ReconciliationStatus.MATCHED, 1L, 0L)
+        )));
+    }
+
+    @Test
+    void rowsWithoutReconciliationStatusShouldBeTrackedForBackfill() {
+        counters.correct(List.of(
+                new TransactionStatusAggregate(TransactionStatus.SETTLED, null, 4L, 0L)
+        ));
+
+        stateMachine.recordBulkReconciliationChange(null, ReconciliationStatus.PENDING, 4);
+
+        assertEquals(4, counters.count(ReconciliationStatus.PENDING));
+        assertEquals(0, counters.correct(List.of(
+                new TransactionStatusAggregate(TransactionStatus.SETTLED, ReconciliationStatus.PENDING, 4L, 0L)
+        )));
+    }
+
+    private static double outcomeCount(SimpleMeterRegistry registry, String outcome) {
+        return registry.get("settlement.transactions.outcome").tag("outcome", outcome).functionCounter().count();
+    }
+
+    /**
+     * Runs the work with transaction synchronization active, then completes it
+     * the way a commit or rollback would.
+     */
+    private static void inTransaction(boolean commit, Runnable work) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            work.run();
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                if (commit) {
+                    synchronization.afterCommit();
+                }
+                synchronization.afterCompletion(commit
+                        ? TransactionSynchronization.STATUS_COMMITTED
+                        : TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}